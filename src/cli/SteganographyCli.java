@@ -0,0 +1,391 @@
+package cli;
+
+import model.batch.BatchJob;
+import model.batch.BatchPipeline;
+import model.batch.BatchReport;
+import model.genetic_algorithm.GeneticAlgorithm;
+import model.genetic_algorithm.GeneticAlgorithmConfig;
+import model.image.ArgbImage;
+import model.image.CoverCache;
+import model.image.ImageFiles;
+import model.image.PngFilter;
+import model.image.PngWriter;
+import model.image.RowStreamingImage;
+import model.payload.PayloadCodec;
+import model.payload.PayloadCompression;
+import model.payload.PayloadDecoder;
+import model.payload.PayloadSink;
+import model.payload.PayloadSource;
+import model.shard.ShardAssembler;
+import model.shard.ShardedEncoder;
+import model.utils.UtilsMethods;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A command line entry point that encodes and decodes without the UI. Images are read and written with
+ * ImageIO in headless mode, so no display and no JavaFX runtime are needed, and the model is used directly.
+ * <pre>
+ * encode &lt;cover&gt; &lt;output.png&gt; (--text &lt;message&gt; | --file &lt;payload&gt;) [--compress codec] [--generations n] [--population n] [--local-search n] [--png-level n] [--png-filter filter] [--png-threads n]
+ * decode &lt;stego image&gt; [output file]
+ * batch &lt;covers dir&gt; &lt;payloads dir&gt; &lt;output dir&gt; [--readers n] [--searchers n] [--writers n] [--queue n] [--cache-mb n] [--compress codec] [--generations n] [--population n] [--local-search n] [--png-level n] [--png-filter filter] [--png-threads n]
+ * shard &lt;payload&gt; &lt;output dir&gt; &lt;cover&gt;... [--threads n] [--compress codec] [--generations n] [--population n] [--local-search n] [--png-level n] [--png-filter filter] [--png-threads n]
+ * unshard &lt;output file&gt; &lt;stego image&gt;...
+ * </pre>
+ * A decoded payload is written to standard output unless an output file is given. A batch pairs every
+ * cover with the payload of the same file name without extension and writes {@code <name>.png}; covers with
+ * the same content are decoded once while they fit in a cache of {@code --cache-mb} megabytes, 512 unless
+ * given, 0 turns it off. A shard spreads one payload over all the covers given and writes
+ * {@code <cover name>.png} for each, unshard takes these images in any order.
+ * <p>
+ * Payloads are compressed with deflate before they are embedded, unless it does not make them smaller;
+ * {@code --compress} picks {@code deflate}, {@code lz} or {@code none}. Decoding detects the codec.
+ * <p>
+ * Stego images are written as PNGs with deflate level 6, the adaptive row filter and one thread per
+ * processor; {@code --png-level} takes 0 to 9, {@code --png-filter} one of {@code none}, {@code sub},
+ * {@code up}, {@code average}, {@code paeth} or {@code adaptive}, and {@code --png-threads} the number of
+ * threads deflating one image.
+ */
+public class SteganographyCli {
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final int DEFAULT_COVER_CACHE_MB = 512;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length == 0) {
+            usage();
+            System.exit(EXIT_USAGE);
+        }
+        try {
+            int exitCode = switch (args[0]) {
+                case "encode" -> encode(args);
+                case "decode" -> decode(args);
+                case "batch" -> batch(args);
+                case "shard" -> shard(args);
+                case "unshard" -> unshard(args);
+                default -> {
+                    usage();
+                    yield EXIT_USAGE;
+                }
+            };
+            System.exit(exitCode);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            System.exit(EXIT_FAILURE);
+        } catch (UncheckedIOException e) {
+            System.err.println("error: " + e.getCause().getMessage());
+            System.exit(EXIT_FAILURE);
+        } catch (InterruptedException e) {
+            System.exit(EXIT_FAILURE);
+        }
+    }
+
+    private static int encode(String[] args) throws IOException {
+        if (args.length < 3) {
+            usage();
+            return EXIT_USAGE;
+        }
+        Path coverFile = Path.of(args[1]);
+        Path outputFile = Path.of(args[2]);
+        PayloadSource payload = null;
+        PayloadCodec codec = PayloadCodec.DEFLATE;
+        GeneticAlgorithmConfig config = new GeneticAlgorithmConfig();
+        config.setVerbose(false);
+        PngWriter pngWriter = new PngWriter();
+
+        for (int i = 3; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing the value of " + args[i]);
+            }
+            String value = args[i + 1];
+            if (parsePngOption(pngWriter, args[i], value)) {
+                continue;
+            }
+            switch (args[i]) {
+                case "--text" -> payload = PayloadSource.ofText(value);
+                case "--file" -> payload = PayloadSource.ofFile(Path.of(value));
+                case "--compress" -> codec = parseCodec(value);
+                case "--generations" -> config.setGenerations(Integer.parseInt(value));
+                case "--population" -> config.setPopulationSize(Integer.parseInt(value));
+                case "--local-search" -> config.setLocalSearchCount(Integer.parseInt(value));
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (payload == null || payload.length() == 0) {
+            throw new IllegalArgumentException("Nothing to encode, give --text or --file");
+        }
+
+        long payloadLength = payload.length();
+        PayloadSource embedded = PayloadCompression.compress(payload, codec);
+        ArgbImage cover = ImageFiles.read(coverFile);
+        int maxBytes = UtilsMethods.secretMessageMaxLength(cover.getWidth(), cover.getHeight());
+        if (embedded.length() > maxBytes) {
+            throw new IllegalArgumentException("The payload of " + embedded.length() + " bytes is too large, the max size for this image is " + maxBytes + " bytes");
+        }
+
+        GeneticAlgorithm geneticAlgorithm = new GeneticAlgorithm(cover, embedded, config);
+        ImageFiles.writePng(geneticAlgorithm.run(), outputFile, pngWriter);
+        System.err.printf("encoded %d bytes as %d, PSNR %.3f%n", payloadLength, embedded.length(),
+                geneticAlgorithm.getFittestChromosome().getFitnessScore());
+        return 0;
+    }
+
+    private static int decode(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            usage();
+            return EXIT_USAGE;
+        }
+        long decodedBytes;
+        // only the rows holding the payload are decoded
+        try (RowStreamingImage stegoImage = RowStreamingImage.open(Path.of(args[1]))) {
+            PayloadDecoder decoder = new PayloadDecoder(stegoImage);
+            if (args.length == 3) {
+                try (PayloadSink sink = PayloadSink.ofFile(Path.of(args[2]))) {
+                    decodedBytes = decoder.decodeTo(sink);
+                }
+            } else {
+                decodedBytes = decoder.decodeTo(PayloadSink.ofStream(System.out));
+                System.out.flush();
+            }
+        }
+        if (decodedBytes < 0) {
+            if (args.length == 3) {
+                Files.deleteIfExists(Path.of(args[2]));
+            }
+            System.err.println("The image was not encoded by this algorithm");
+            return EXIT_FAILURE;
+        }
+        return 0;
+    }
+
+    private static int batch(String[] args) throws IOException, InterruptedException {
+        if (args.length < 4) {
+            usage();
+            return EXIT_USAGE;
+        }
+        Path coversDir = Path.of(args[1]);
+        Path payloadsDir = Path.of(args[2]);
+        Path outputDir = Path.of(args[3]);
+        int searchers = Runtime.getRuntime().availableProcessors();
+        int readers = 2;
+        int writers = 2;
+        int queue = -1;
+        int cacheMegabytes = DEFAULT_COVER_CACHE_MB;
+        PayloadCodec codec = PayloadCodec.DEFLATE;
+        GeneticAlgorithmConfig config = new GeneticAlgorithmConfig();
+        config.setVerbose(false);
+        PngWriter pngWriter = new PngWriter();
+
+        for (int i = 4; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing the value of " + args[i]);
+            }
+            if (parsePngOption(pngWriter, args[i], args[i + 1])) {
+                continue;
+            }
+            if (args[i].equals("--compress")) {
+                codec = parseCodec(args[i + 1]);
+                continue;
+            }
+            int value = Integer.parseInt(args[i + 1]);
+            switch (args[i]) {
+                case "--readers" -> readers = value;
+                case "--searchers" -> searchers = value;
+                case "--writers" -> writers = value;
+                case "--queue" -> queue = value;
+                case "--cache-mb" -> cacheMegabytes = value;
+                case "--generations" -> config.setGenerations(value);
+                case "--population" -> config.setPopulationSize(value);
+                case "--local-search" -> config.setLocalSearchCount(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (queue < 0) {
+            queue = 2 * searchers;
+        }
+
+        Map<String, Path> payloads = new HashMap<>();
+        for (Path payload : listFiles(payloadsDir)) {
+            payloads.putIfAbsent(stem(payload), payload);
+        }
+        Files.createDirectories(outputDir);
+        List<BatchJob> jobs = new ArrayList<>();
+        for (Path cover : listFiles(coversDir)) {
+            String name = stem(cover);
+            jobs.add(new BatchJob(name, cover, payloads.get(name), outputDir.resolve(name + ".png")));
+        }
+
+        CoverCache coverCache = cacheMegabytes > 0 ? new CoverCache(cacheMegabytes * 1024L * 1024) : null;
+        BatchPipeline pipeline = new BatchPipeline(config, codec, readers, searchers, writers, queue, coverCache);
+        pipeline.setPngWriter(pngWriter);
+        BatchReport report = pipeline.run(jobs);
+        report.printSummary(System.err);
+        if (coverCache != null) {
+            System.err.println(coverCache);
+        }
+        return report.getFailed() == 0 ? 0 : EXIT_FAILURE;
+    }
+
+    private static int shard(String[] args) throws IOException, InterruptedException {
+        if (args.length < 4) {
+            usage();
+            return EXIT_USAGE;
+        }
+        Path payloadFile = Path.of(args[1]);
+        Path outputDir = Path.of(args[2]);
+        List<Path> coverFiles = new ArrayList<>();
+        int i = 3;
+        for (; i < args.length && !args[i].startsWith("--"); i++) {
+            coverFiles.add(Path.of(args[i]));
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        PayloadCodec codec = PayloadCodec.DEFLATE;
+        GeneticAlgorithmConfig config = new GeneticAlgorithmConfig();
+        config.setVerbose(false);
+        PngWriter pngWriter = new PngWriter();
+
+        for (; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing the value of " + args[i]);
+            }
+            if (parsePngOption(pngWriter, args[i], args[i + 1])) {
+                continue;
+            }
+            if (args[i].equals("--compress")) {
+                codec = parseCodec(args[i + 1]);
+                continue;
+            }
+            int value = Integer.parseInt(args[i + 1]);
+            switch (args[i]) {
+                case "--threads" -> threads = value;
+                case "--generations" -> config.setGenerations(value);
+                case "--population" -> config.setPopulationSize(value);
+                case "--local-search" -> config.setLocalSearchCount(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (coverFiles.isEmpty()) {
+            throw new IllegalArgumentException("No cover to shard the payload into");
+        }
+
+        Map<String, Path> outputs = new HashMap<>();
+        for (Path cover : coverFiles) {
+            if (outputs.put(stem(cover), cover) != null) {
+                throw new IllegalArgumentException("Two covers are named " + stem(cover) + ", their outputs would collide");
+            }
+        }
+        PayloadSource payload = PayloadSource.ofFile(payloadFile);
+        if (payload.length() == 0) {
+            throw new IllegalArgumentException("Nothing to encode, " + payloadFile + " is empty");
+        }
+        long payloadLength = payload.length();
+        // the whole payload is compressed before it is split, unshard decompresses it once reassembled
+        PayloadSource embedded = PayloadCompression.compress(payload, codec);
+        List<ArgbImage> covers = new ArrayList<>();
+        for (Path cover : coverFiles) {
+            covers.add(ImageFiles.read(cover));
+        }
+
+        List<ArgbImage> encoded = new ShardedEncoder(config, threads).encode(covers, embedded);
+        Files.createDirectories(outputDir);
+        for (int shard = 0; shard < encoded.size(); shard++) {
+            ImageFiles.writePng(encoded.get(shard), outputDir.resolve(stem(coverFiles.get(shard)) + ".png"), pngWriter);
+        }
+        System.err.printf("encoded %d bytes as %d into %d shards%n", payloadLength, embedded.length(), encoded.size());
+        return 0;
+    }
+
+    private static int unshard(String[] args) throws IOException {
+        if (args.length < 3) {
+            usage();
+            return EXIT_USAGE;
+        }
+        // a payload of more shards than the images given could never be completed
+        ShardAssembler assembler = new ShardAssembler(args.length - 2);
+        for (int i = 2; i < args.length; i++) {
+            boolean added;
+            try (RowStreamingImage stegoImage = RowStreamingImage.open(Path.of(args[i]))) {
+                added = assembler.addImage(stegoImage);
+            }
+            if (!added) {
+                throw new IllegalArgumentException(args[i] + " holds no shard of this algorithm");
+            }
+        }
+        Path outputFile = Path.of(args[1]);
+        try (PayloadSink sink = PayloadSink.ofFile(outputFile)) {
+            assembler.writeTo(sink);
+        } catch (IOException | IllegalArgumentException e) {
+            Files.deleteIfExists(outputFile);
+            throw e;
+        }
+        return 0;
+    }
+
+    private static PayloadCodec parseCodec(String name) {
+        for (PayloadCodec codec : PayloadCodec.values()) {
+            if (codec.name().equals(name.toUpperCase(Locale.ROOT))) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown codec " + name + ", use deflate, lz or none");
+    }
+
+    /**
+     * Applies an option of the PNG writer.
+     *
+     * @return true if the option was one of the writer, false if it is left to the command.
+     */
+    private static boolean parsePngOption(PngWriter writer, String option, String value) {
+        switch (option) {
+            case "--png-level" -> writer.setCompressionLevel(Integer.parseInt(value));
+            case "--png-filter" -> writer.setFilter(parseFilter(value));
+            case "--png-threads" -> writer.setThreads(Integer.parseInt(value));
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static PngFilter parseFilter(String name) {
+        for (PngFilter filter : PngFilter.values()) {
+            if (filter.name().equals(name.toUpperCase(Locale.ROOT))) {
+                return filter;
+            }
+        }
+        throw new IllegalArgumentException("Unknown PNG filter " + name + ", use none, sub, up, average, paeth or adaptive");
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(Files::isRegularFile).sorted().toList();
+        }
+    }
+
+    private static String stem(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static void usage() {
+        PrintStream err = System.err;
+        err.println("usage:");
+        err.println("  encode <cover> <output.png> (--text <message> | --file <payload>) [--compress codec] [--generations n] [--population n] [--local-search n] [--png-level n] [--png-filter filter] [--png-threads n]");
+        err.println("  decode <stego image> [output file]");
+        err.println("  batch <covers dir> <payloads dir> <output dir> [--readers n] [--searchers n] [--writers n] [--queue n] [--cache-mb n] [--compress codec] [--generations n] [--population n] [--local-search n] [--png-level n] [--png-filter filter] [--png-threads n]");
+        err.println("  shard <payload> <output dir> <cover>... [--threads n] [--compress codec] [--generations n] [--population n] [--local-search n] [--png-level n] [--png-filter filter] [--png-threads n]");
+        err.println("  unshard <output file> <stego image>...");
+    }
+}
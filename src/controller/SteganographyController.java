@@ -1,32 +1,40 @@
 package controller;
 
 import javafx.application.Platform;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.control.Alert;
 import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
 import javafx.stage.FileChooser;
-import model.data_managers.BitArray;
-import model.data_managers.DataExtractor;
-import model.data_managers.DataManipulation;
-import model.data_managers.image_metedate.ImageMetadata;
 import model.genetic_algorithm.GeneticAlgorithm;
+import model.genetic_algorithm.GeneticAlgorithmConfig;
+import model.image.ArgbImage;
+import model.image.ImageFiles;
+import model.image.RowStreamingImage;
+import model.payload.PayloadCodec;
+import model.payload.PayloadCompression;
+import model.payload.PayloadDecoder;
+import model.payload.PayloadSource;
+import model.payload.PreviewPayloadSink;
 import model.utils.UtilsMethods;
 import view.DynamicGraph;
 import view.SteganographyUI;
-import javax.imageio.ImageIO;
 import javafx.scene.control.Alert.AlertType;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 
 /**
  * Controls interactions between the view and the model in the Steganography application.
  * This controller handles actions for encoding, decoding, and loading images.
  */
 public class SteganographyController {
+    private static final int PREVIEW_BYTES = 64 * 1024;
+
     private final SteganographyUI view;
 
+    // the file of the loaded image, the view only holds a preview of it
+    private Path imageFile;
+
     /**
      * Initializes the controller with the application's UI view.
      *
@@ -70,24 +78,49 @@ public class SteganographyController {
             return;
         }
 
-        if (!testMessageSize(secretMessage)){
+        // the model works on the pixels of the file, not on the preview shown in the view
+        ArgbImage cover;
+        try {
+            cover = ImageFiles.read(imageFile);
+        } catch (IOException e) {
+            loadAlertMessage("Image cannot be read", e.getMessage());
+            return;
+        }
+
+        // text compresses well, the message is embedded deflated unless that does not make it smaller
+        PayloadSource payload;
+        try {
+            payload = PayloadCompression.compress(PayloadSource.ofText(secretMessage), PayloadCodec.DEFLATE);
+        } catch (IOException e) {
+            loadAlertMessage("Message cannot be compressed", e.getMessage());
+            return;
+        }
+
+        if (!testMessageSize(payload, cover)){
             loadAlertMessage("Message Size Too Large",
                     "The secret message is too large to be encoded in the selected image." +
                     "\nThe max size for this image is: " +
-                    UtilsMethods.secretMessageMaxLength((int)view.getImage().getWidth(),
-                                                        (int)view.getImage().getHeight())+ " chars");
+                    UtilsMethods.secretMessageMaxLength(cover.getWidth(), cover.getHeight()) + " bytes of compressed UTF-8 text");
             return;
         }
 
         // Initialize the Dynamic Graph
         DynamicGraph.initialize();
 
+        GeneticAlgorithmConfig config = new GeneticAlgorithmConfig();
+        config.setGenerationListener(DynamicGraph::updateSeries);
+
         new Thread(() -> {
-            // Encode the secret message using the model
-            GeneticAlgorithm geneticAlgorithm = new GeneticAlgorithm(view.getImage(), secretMessage);
+            // Encode the secret message using the model, the payload is held in memory so reading it cannot fail
+            GeneticAlgorithm geneticAlgorithm;
+            try {
+                geneticAlgorithm = new GeneticAlgorithm(cover, payload, config);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
 
             // get the modified image, after the genetic algorithm
-            Image modifiedImage = geneticAlgorithm.run();
+            ArgbImage modifiedImage = geneticAlgorithm.run();
 
             Platform.runLater(() -> {
                 saveImageToFile(modifiedImage);
@@ -108,31 +141,27 @@ public class SteganographyController {
             return;
         }
 
-        Image stegoImage = view.getImage();
-
-        DataExtractor dataExtractor = new DataExtractor(stegoImage);
-
-        ImageMetadata extracted = dataExtractor.extractMetadata();
-
-        BitArray extractData = dataExtractor.extractData(extracted);
+        // only the beginning of the payload is kept for the text area, however large it is
+        PreviewPayloadSink preview = new PreviewPayloadSink(PREVIEW_BYTES);
+        long decodedBytes;
+        // only the rows of the file holding the payload are decoded
+        try (RowStreamingImage stegoImage = RowStreamingImage.open(imageFile)) {
+            decodedBytes = new PayloadDecoder(stegoImage).decodeTo(preview);
+        } catch (IOException | UncheckedIOException e) {
+            loadAlertMessage("Image cannot be read", e.getMessage());
+            return;
+        }
 
-        if (extractData == null){
+        if (decodedBytes < 0){
             loadAlertMessage("Image was not encoded by this algorithm", "Please try other image");
             view.clearView();
             return;
         }
 
-        DataManipulation dataManipulation = new DataManipulation(extractData);
-
-        int adjustedDp = adjustDpForReversal(extracted.getDataPolarity());
-
-
-        BitArray originalMessage = dataManipulation.modifyBitArray(extracted.getNumberOfSwaps(),
-                extracted.getOffset(),
-                extracted.getDataDirection(),
-                adjustedDp);
-
-        String decodedText = UtilsMethods.convertBitArrayToItsChars(originalMessage);
+        String decodedText = preview.getPreviewText();
+        if (preview.isTruncated()) {
+            decodedText += "\n[showing the first " + PREVIEW_BYTES + " of " + preview.getTotalBytes() + " bytes]";
+        }
         view.setText(decodedText);
     }
 
@@ -144,7 +173,10 @@ public class SteganographyController {
         File file = fileChooser.showOpenDialog(view.getPrimaryStage());
 
         if (file != null) {
-            Image image = new Image(file.toURI().toString());
+            // a preview of the size of the view, the pixels are read from the file when needed
+            Image image = new Image(file.toURI().toString(), SteganographyUI.IMAGE_VIEW_SIZE,
+                    SteganographyUI.IMAGE_VIEW_SIZE, true, true);
+            imageFile = file.toPath();
             view.displayImage(image);
         }
     }
@@ -154,7 +186,7 @@ public class SteganographyController {
      *
      * @param image The image to be saved.
      */
-    private void saveImageToFile(Image image) {
+    private void saveImageToFile(ArgbImage image) {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Encoded Image");
         fileChooser.getExtensionFilters().add(
@@ -165,26 +197,7 @@ public class SteganographyController {
 
         if (file != null) {
             try {
-                // Create a new WritableImage of the same width and height as the original Image
-                WritableImage writableImage = new WritableImage(
-                        (int) image.getWidth(),
-                        (int) image.getHeight());
-
-                // Get the PixelReader from the original Image
-                PixelReader pixelReader = image.getPixelReader();
-
-                // Get the PixelWriter from the WritableImage
-                PixelWriter pixelWriter = writableImage.getPixelWriter();
-
-                // Copy the pixels from the original Image to the WritableImage
-                for (int y = 0; y < image.getHeight(); y++) {
-                    for (int x = 0; x < image.getWidth(); x++) {
-                        pixelWriter.setArgb(x, y, pixelReader.getArgb(x, y));
-                    }
-                }
-
-                // Use ImageIO to write the WritableImage to a file
-                ImageIO.write(SwingFXUtils.fromFXImage(writableImage, null), "png", file);
+                ImageFiles.writePng(image, file.toPath());
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -194,12 +207,12 @@ public class SteganographyController {
     /**
      * Checks if the secret message size is appropriate for the loaded image.
      *
-     * @param message The secret message to encode.
+     * @param payload The secret message to encode, as the bytes that are embedded.
+     * @param cover The image to encode the message into.
      * @return true if the message can be encoded in the image, false otherwise.
      */
-    private boolean testMessageSize(String message) {
-        return message.length() <= UtilsMethods.secretMessageMaxLength((int)view.getImage().getWidth(),
-                                                                        (int)view.getImage().getHeight());
+    private boolean testMessageSize(PayloadSource payload, ArgbImage cover) {
+        return payload.length() <= UtilsMethods.secretMessageMaxLength(cover.getWidth(), cover.getHeight());
     }
 
     /**
@@ -224,19 +237,4 @@ public class SteganographyController {
         alert.setContentText(contentText);
         alert.showAndWait();
     }
-
-    /**
-     * Adjusts the data polarity (dp) parameter for the reverse operation during decoding.
-     *
-     * @param dp The data polarity parameter to be adjusted.
-     * @return The adjusted data polarity parameter.
-     */
-    private int adjustDpForReversal(int dp) {
-        // If dp is 1 or 2, subtract it by 3 to reverse the complementing operation
-        if (dp == 1 || dp == 2) {
-            return 3 - dp;
-        }
-        // If dp is 0 or 3, leave it as it is
-        return dp;
-    }
 }
\ No newline at end of file
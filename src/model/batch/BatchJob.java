@@ -0,0 +1,44 @@
+package model.batch;
+
+import java.nio.file.Path;
+
+/**
+ * One item of a batch: a cover image, the payload to hide in it and the file to write the result to.
+ */
+public class BatchJob {
+    private final String name;
+    private final Path cover;
+    private final Path payload;
+    private final Path output;
+
+    /**
+     * Constructs a job.
+     *
+     * @param name The name of the job in the report.
+     * @param cover The cover image file.
+     * @param payload The payload file, or null if none was found, which fails the job.
+     * @param output The PNG file to write.
+     */
+    public BatchJob(String name, Path cover, Path payload, Path output) {
+        this.name = name;
+        this.cover = cover;
+        this.payload = payload;
+        this.output = output;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Path getCover() {
+        return cover;
+    }
+
+    public Path getPayload() {
+        return payload;
+    }
+
+    public Path getOutput() {
+        return output;
+    }
+}
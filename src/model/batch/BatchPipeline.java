@@ -0,0 +1,268 @@
+package model.batch;
+
+import model.data_managers.BitArray;
+import model.genetic_algorithm.GeneticAlgorithm;
+import model.genetic_algorithm.GeneticAlgorithmConfig;
+import model.image.ArgbImage;
+import model.image.CoverCache;
+import model.image.ImageFiles;
+import model.image.PngWriter;
+import model.image.PreparedCover;
+import model.payload.PayloadCodec;
+import model.payload.PayloadCompression;
+import model.payload.PayloadSource;
+import model.utils.UtilsMethods;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encodes a list of jobs in three stages that overlap: reading the cover and compressing the payload,
+ * searching for the embedding with the genetic algorithm, and writing the PNG. Every stage runs on its own
+ * threads and the stages are joined by bounded queues, so a slow stage blocks the one before it instead of
+ * letting decoded covers pile up in memory. At most {@code queueCapacity} covers wait between two stages.
+ * <p>
+ * A job that fails in a stage is recorded with its error and skips the remaining stages, the others go
+ * on. The report lists the jobs in their original order.
+ * <p>
+ * With a {@link CoverCache}, jobs whose covers have the same content share one decoded and prepared cover,
+ * the readers decode each of them once while it stays in the cache.
+ * <p>
+ * The writing threads share one pool deflating the chunks of their PNGs, of as many threads as the
+ * {@link PngWriter} of the pipeline uses for one image, so the writers do not multiply them.
+ */
+public class BatchPipeline {
+    private final GeneticAlgorithmConfig config;
+    private final PayloadCodec codec;
+    private final int readers;
+    private final int searchers;
+    private final int writers;
+    private final int queueCapacity;
+    private final CoverCache coverCache;
+    private PngWriter pngWriter = new PngWriter();
+
+    /**
+     * Constructs a pipeline.
+     *
+     * @param config The configuration of every genetic algorithm run, shared and only read.
+     * @param codec The codec the payloads are compressed with by the reading threads.
+     * @param readers The number of threads reading covers and payloads.
+     * @param searchers The number of threads running the genetic algorithm.
+     * @param writers The number of threads writing the PNG files.
+     * @param queueCapacity The number of jobs that can wait between two stages.
+     */
+    public BatchPipeline(GeneticAlgorithmConfig config, PayloadCodec codec, int readers, int searchers, int writers, int queueCapacity) {
+        this(config, codec, readers, searchers, writers, queueCapacity, null);
+    }
+
+    /**
+     * Constructs a pipeline that reads its covers through a cache.
+     *
+     * @param config The configuration of every genetic algorithm run, shared and only read.
+     * @param codec The codec the payloads are compressed with by the reading threads.
+     * @param readers The number of threads reading covers and payloads.
+     * @param searchers The number of threads running the genetic algorithm.
+     * @param writers The number of threads writing the PNG files.
+     * @param queueCapacity The number of jobs that can wait between two stages.
+     * @param coverCache The cache of the covers, which may be shared with other pipelines, or null to decode every cover.
+     */
+    public BatchPipeline(GeneticAlgorithmConfig config, PayloadCodec codec, int readers, int searchers, int writers,
+                         int queueCapacity, CoverCache coverCache) {
+        if (readers < 1 || searchers < 1 || writers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Thread counts and the queue capacity must be positive");
+        }
+        this.config = config;
+        this.codec = codec;
+        this.readers = readers;
+        this.searchers = searchers;
+        this.writers = writers;
+        this.queueCapacity = queueCapacity;
+        this.coverCache = coverCache;
+    }
+
+    public PngWriter getPngWriter() {
+        return pngWriter;
+    }
+
+    /**
+     * @param pngWriter The settings of the PNG files, copied when a run starts.
+     */
+    public void setPngWriter(PngWriter pngWriter) {
+        this.pngWriter = pngWriter;
+    }
+
+    /**
+     * Runs all jobs and waits for the last one.
+     *
+     * @param jobs The jobs to run.
+     * @return The outcome of every job and the throughput of the batch.
+     * @throws InterruptedException if the calling thread is interrupted, the stage threads are stopped.
+     */
+    public BatchReport run(List<BatchJob> jobs) throws InterruptedException {
+        long start = System.nanoTime();
+        BatchResult[] results = new BatchResult[jobs.size()];
+        BlockingQueue<Item> read = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Item> searched = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger nextJob = new AtomicInteger();
+        ExecutorService deflaters = Executors.newFixedThreadPool(pngWriter.getThreads(),
+                Thread.ofPlatform().name("batch-deflate-", 0).daemon().factory());
+        PngWriter writer = new PngWriter();
+        writer.setCompressionLevel(pngWriter.getCompressionLevel());
+        writer.setFilter(pngWriter.getFilter());
+        writer.setThreads(pngWriter.getThreads());
+        writer.setExecutor(deflaters);
+
+        List<Thread> readThreads = startStage("read", readers, () -> readStage(jobs, nextJob, read, results));
+        List<Thread> searchThreads = startStage("search", searchers, () -> searchStage(read, searched, results));
+        List<Thread> writeThreads = startStage("write", writers, () -> writeStage(searched, writer, results));
+        List<Thread> all = new ArrayList<>(readThreads);
+        all.addAll(searchThreads);
+        all.addAll(writeThreads);
+
+        try {
+            // Every stage ends with one poison item per thread of the next stage once its own threads are done
+            joinAll(readThreads);
+            for (int i = 0; i < searchers; i++) {
+                read.put(Item.POISON);
+            }
+            joinAll(searchThreads);
+            for (int i = 0; i < writers; i++) {
+                searched.put(Item.POISON);
+            }
+            joinAll(writeThreads);
+        } catch (InterruptedException e) {
+            all.forEach(Thread::interrupt);
+            throw e;
+        } finally {
+            deflaters.shutdownNow();
+        }
+        return new BatchReport(Arrays.asList(results), System.nanoTime() - start);
+    }
+
+    private void readStage(List<BatchJob> jobs, AtomicInteger nextJob, BlockingQueue<Item> out, BatchResult[] results) {
+        int index;
+        while ((index = nextJob.getAndIncrement()) < jobs.size()) {
+            BatchJob job = jobs.get(index);
+            long start = System.nanoTime();
+            try {
+                if (job.getPayload() == null) {
+                    throw new IllegalArgumentException("No payload for " + job.getCover().getFileName());
+                }
+                PreparedCover prepared = coverCache != null ? coverCache.get(job.getCover()) : null;
+                ArgbImage cover = prepared != null ? prepared.getImage() : ImageFiles.read(job.getCover());
+                PayloadSource file = PayloadSource.ofFile(job.getPayload());
+                if (file.length() == 0) {
+                    throw new IllegalArgumentException("The payload file " + job.getPayload().getFileName() + " is empty");
+                }
+                PayloadSource payload = PayloadCompression.compress(file, codec);
+                int maxBytes = UtilsMethods.secretMessageMaxLength(cover.getWidth(), cover.getHeight());
+                if (payload.length() > maxBytes) {
+                    throw new IllegalArgumentException("The payload of " + payload.length() + " bytes does not fit, the max size for this image is " + maxBytes + " bytes");
+                }
+                Item item = new Item(index, job, cover, payload.toBitArray());
+                item.prepared = prepared;
+                item.readNanos = System.nanoTime() - start;
+                out.put(item);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                results[index] = BatchResult.failed(job, e, System.nanoTime() - start, 0, 0);
+            }
+        }
+    }
+
+    private void searchStage(BlockingQueue<Item> in, BlockingQueue<Item> out, BatchResult[] results) {
+        try {
+            Item item;
+            while ((item = in.take()) != Item.POISON) {
+                long start = System.nanoTime();
+                try {
+                    GeneticAlgorithm geneticAlgorithm = item.prepared != null
+                            ? new GeneticAlgorithm(item.prepared, item.payload, config)
+                            : new GeneticAlgorithm(item.cover, item.payload, config);
+                    item.stego = geneticAlgorithm.run();
+                    item.fitness = geneticAlgorithm.getFittestChromosome().getFitnessScore();
+                    // The cover and the payload are not needed any more while the item waits for a writer
+                    item.cover = null;
+                    item.prepared = null;
+                    item.payload = null;
+                    item.searchNanos = System.nanoTime() - start;
+                } catch (RuntimeException e) {
+                    results[item.index] = BatchResult.failed(item.job, e, item.readNanos, System.nanoTime() - start, 0);
+                    continue;
+                }
+                out.put(item);
+            }
+        } catch (InterruptedException ignored) {
+            // The batch was cancelled
+        }
+    }
+
+    private void writeStage(BlockingQueue<Item> in, PngWriter writer, BatchResult[] results) {
+        try {
+            Item item;
+            while ((item = in.take()) != Item.POISON) {
+                long start = System.nanoTime();
+                try {
+                    ImageFiles.writePng(item.stego, item.job.getOutput(), writer);
+                    results[item.index] = BatchResult.succeeded(item.job, item.fitness, item.readNanos,
+                            item.searchNanos, System.nanoTime() - start);
+                } catch (Exception e) {
+                    results[item.index] = BatchResult.failed(item.job, e, item.readNanos, item.searchNanos,
+                            System.nanoTime() - start);
+                }
+                item.stego = null;
+            }
+        } catch (InterruptedException ignored) {
+            // The batch was cancelled
+        }
+    }
+
+    private static List<Thread> startStage(String name, int count, Runnable body) {
+        List<Thread> threads = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Thread thread = new Thread(body, "batch-" + name + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        return threads;
+    }
+
+    private static void joinAll(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * A job moving through the stages. Its fields are handed over through the queues, which publish them
+     * safely to the next thread.
+     */
+    private static class Item {
+        static final Item POISON = new Item(-1, null, null, null);
+
+        final int index;
+        final BatchJob job;
+        ArgbImage cover;
+        PreparedCover prepared;
+        BitArray payload;
+        ArgbImage stego;
+        double fitness;
+        long readNanos;
+        long searchNanos;
+
+        Item(int index, BatchJob job, ArgbImage cover, BitArray payload) {
+            this.index = index;
+            this.job = job;
+            this.cover = cover;
+            this.payload = payload;
+        }
+    }
+}
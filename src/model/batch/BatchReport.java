@@ -0,0 +1,69 @@
+package model.batch;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * The results of a batch in the order of its jobs, with the wall-clock time of the whole batch.
+ */
+public class BatchReport {
+    private final List<BatchResult> results;
+    private final long elapsedNanos;
+
+    BatchReport(List<BatchResult> results, long elapsedNanos) {
+        this.results = results;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<BatchResult> getResults() {
+        return results;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public int getSucceeded() {
+        return (int) results.stream().filter(BatchResult::isSucceeded).count();
+    }
+
+    public int getFailed() {
+        return results.size() - getSucceeded();
+    }
+
+    /**
+     * @return The number of images written per second of wall-clock time.
+     */
+    public double getImagesPerSecond() {
+        return elapsedNanos == 0 ? 0 : getSucceeded() / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Prints the error of every failed job, then the throughput and the mean time of every stage.
+     *
+     * @param out The stream to print to.
+     */
+    public void printSummary(PrintStream out) {
+        for (BatchResult result : results) {
+            if (!result.isSucceeded()) {
+                out.println("FAILED " + result.getJob().getName() + ": " + result.getError());
+            }
+        }
+        int succeeded = getSucceeded();
+        out.printf("%d jobs, %d written, %d failed in %.2f s: %.2f images/s%n",
+                results.size(), succeeded, getFailed(), elapsedNanos / 1e9, getImagesPerSecond());
+        if (succeeded > 0) {
+            double read = 0, search = 0, write = 0, fitness = 0;
+            for (BatchResult result : results) {
+                if (result.isSucceeded()) {
+                    read += result.getReadNanos();
+                    search += result.getSearchNanos();
+                    write += result.getWriteNanos();
+                    fitness += result.getFitness();
+                }
+            }
+            out.printf("mean per image: read %.1f ms, search %.1f ms, write %.1f ms, fitness %.3f%n",
+                    read / succeeded / 1e6, search / succeeded / 1e6, write / succeeded / 1e6, fitness / succeeded);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package model.batch;
+
+/**
+ * The outcome of one job of a batch: the fitness reached or the error that stopped it, and the time
+ * spent in every stage it went through.
+ */
+public class BatchResult {
+    private final BatchJob job;
+    private final String error;
+    private final double fitness;
+    private final long readNanos;
+    private final long searchNanos;
+    private final long writeNanos;
+
+    private BatchResult(BatchJob job, String error, double fitness, long readNanos, long searchNanos, long writeNanos) {
+        this.job = job;
+        this.error = error;
+        this.fitness = fitness;
+        this.readNanos = readNanos;
+        this.searchNanos = searchNanos;
+        this.writeNanos = writeNanos;
+    }
+
+    /**
+     * Creates the result of a job that was written.
+     */
+    static BatchResult succeeded(BatchJob job, double fitness, long readNanos, long searchNanos, long writeNanos) {
+        return new BatchResult(job, null, fitness, readNanos, searchNanos, writeNanos);
+    }
+
+    /**
+     * Creates the result of a job that failed in some stage, with the times of the stages it went through.
+     */
+    static BatchResult failed(BatchJob job, Exception error, long readNanos, long searchNanos, long writeNanos) {
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        return new BatchResult(job, message, Double.NaN, readNanos, searchNanos, writeNanos);
+    }
+
+    public BatchJob getJob() {
+        return job;
+    }
+
+    public boolean isSucceeded() {
+        return error == null;
+    }
+
+    /**
+     * @return The message of the error that failed the job, or null if it succeeded.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return The fitness of the written image, NaN if the job failed.
+     */
+    public double getFitness() {
+        return fitness;
+    }
+
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+}
@@ -3,13 +3,28 @@ package model.data_managers;
 import model.utils.ConstantsClass;
 import model.utils.UtilsMethods;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * Represents a binary array where each element can be either 0 or 1.
- * This class provides methods to manipulate bits within a byte array,
+ * This class provides methods to manipulate bits within a long array,
  * allowing for efficient storage and manipulation of binary data.
+ * Bit {@code i} is stored in word {@code i / 64} at bit position {@code i % 64}, so ranges of up to 64 bits
+ * are read, written and copied with a couple of shifts instead of one bit at a time. Bits beyond the size
+ * are always 0. Every public method checks its range once and then works on the words directly.
  */
 public class BitArray implements Cloneable{
-    private byte[] bitArray;
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final int BITS_PER_WORD = Long.SIZE;
+
+    // the bitwise operations combining two arrays
+    private static final int XOR = 0;
+    private static final int AND = 1;
+    private static final int OR = 2;
+    private static final int AND_NOT = 3;
+
+    private long[] words;
     private final int size;
 
     /**
@@ -19,7 +34,7 @@ public class BitArray implements Cloneable{
      */
     public BitArray(int size) {
         this.size = size;
-        this.bitArray = new byte[(size + ConstantsClass.BITS_PER_BYTE) / ConstantsClass.BITS_PER_BYTE];
+        this.words = new long[wordsFor(size)];
     }
 
     /**
@@ -33,13 +48,7 @@ public class BitArray implements Cloneable{
         if (index < 0 || index >= size) {
             throw new IndexOutOfBoundsException("Index out of bounds: " + index);
         }
-        int byteIndex = index / ConstantsClass.BITS_PER_BYTE;
-        int bitIndex = index % ConstantsClass.BITS_PER_BYTE;
-        if (value) {
-            bitArray[byteIndex] |= (byte) (1 << bitIndex); // Set the bit to 1
-        } else {
-            bitArray[byteIndex] &= (byte) ~(1 << bitIndex); // Set the bit to 0
-        }
+        setBit(index, value);
     }
 
     /**
@@ -54,18 +63,10 @@ public class BitArray implements Cloneable{
         if (startIndex < 0 || startIndex >= size || startIndex + n - 1 >= size) {
             throw new IndexOutOfBoundsException("Index out of bounds: " + (startIndex + n) + "\nThe BitArray size is: " + size);
         }
-        int byteIndex,  bitIndex;
-
-        for (int i = startIndex; i < startIndex + n; i++) {
-             byteIndex = i / ConstantsClass.BITS_PER_BYTE;
-             bitIndex = i % ConstantsClass.BITS_PER_BYTE;
-            if (value) {
-                bitArray[byteIndex] |= (byte) (1 << bitIndex); // Set the bit to 1
-            } else {
-                bitArray[byteIndex] &= (byte) ~(1 << bitIndex); // Set the bit to 0
-            }
+        long fill = value ? -1L : 0L;
+        for (int done = 0; done < n; done += BITS_PER_WORD) {
+            setWord(startIndex + done, Math.min(BITS_PER_WORD, n - done), fill);
         }
-
     }
 
     /**
@@ -76,13 +77,28 @@ public class BitArray implements Cloneable{
      * @throws IndexOutOfBoundsException if copying would result in access of data outside array bounds.
      */
     public void set(int startIndex, BitArray values){
-        if(startIndex + values.size > size)
+        if(startIndex < 0 || startIndex + values.size > size)
             throw new IndexOutOfBoundsException("Index out of bounds: " + (startIndex + values.size()) + "\nThe BitArray size is: " + size);
 
-        int valuesIndex = 0;
-        for (int i = startIndex; i < startIndex + values.size; i++) {
-            set(i, values.get(valuesIndex++));
+        copyBits(values, 0, startIndex, values.size);
+    }
+
+    /**
+     * Copies a range of bits of another BitArray into this BitArray. The two ranges may start at any bit
+     * offsets, the bits are moved up to 64 at a time. Copying within the same BitArray is supported, even
+     * when the ranges overlap.
+     *
+     * @param startIndex The index of the first bit to write in this BitArray.
+     * @param values The BitArray to copy from.
+     * @param valuesIndex The index of the first bit to copy from the values.
+     * @param length The number of bits to copy.
+     * @throws IndexOutOfBoundsException if either range is out of bounds.
+     */
+    public void set(int startIndex, BitArray values, int valuesIndex, int length){
+        if (length < 0 || startIndex < 0 || startIndex + length > size || valuesIndex < 0 || valuesIndex + length > values.size) {
+            throw new IndexOutOfBoundsException("Invalid copy of " + length + " bits from index " + valuesIndex + " to index " + startIndex);
         }
+        copyBits(values, valuesIndex, startIndex, length);
     }
 
     /**
@@ -96,9 +112,7 @@ public class BitArray implements Cloneable{
         if (index < 0 || index >= size) {
             throw new IndexOutOfBoundsException("Index out of bounds: " + index);
         }
-        int byteIndex = index / ConstantsClass.BITS_PER_BYTE;
-        int bitIndex = index % ConstantsClass.BITS_PER_BYTE;
-        return (bitArray[byteIndex] & (1 << bitIndex)) != 0;
+        return getBit(index);
     }
 
     /**
@@ -115,10 +129,7 @@ public class BitArray implements Cloneable{
         }
 
         BitArray result = new BitArray(length);
-        for (int i = 0; i < length; i++) {
-            boolean bitValue = get(startingIndex + i);
-            result.set(i, bitValue);
-        }
+        result.copyBits(this, startingIndex, 0, length);
         return result;
     }
 
@@ -138,11 +149,11 @@ public class BitArray implements Cloneable{
      */
     @Override
     public String toString() {
-        StringBuilder str = new StringBuilder();
+        StringBuilder str = new StringBuilder(size + size / ConstantsClass.BITS_PER_BYTE);
         for (int i = 0; i < size; i++) {
             if(i != 0 && i % ConstantsClass.BITS_PER_BYTE == 0)
                 str.append(" ");
-           str.append(get(i)? "1": "0");
+           str.append(getBit(i)? "1": "0");
         }
         return str.toString();
     }
@@ -156,20 +167,411 @@ public class BitArray implements Cloneable{
     public BitArray clone() {
         try {
             BitArray cloned = (BitArray) super.clone();
-            cloned.bitArray = bitArray.clone(); // Deep copy of the array
+            cloned.words = words.clone(); // Deep copy of the array
             return cloned;
         } catch (CloneNotSupportedException e) {
             throw new AssertionError(); // Can never happen
         }
     }
 
+    /**
+     * Reads up to 64 bits starting at a given index into a long: bit {@code j} of the result is the bit at
+     * {@code startIndex + j}, the same layout as {@link #xorWord(int, long)}. Bits beyond the length are 0.
+     *
+     * @param startIndex The index of the first bit to read.
+     * @param length The number of bits to read, between 0 and 64.
+     * @return The bits packed into a long.
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public long getLong(int startIndex, int length) {
+        if (length < 0 || length > Long.SIZE || startIndex < 0 || startIndex + length > size) {
+            throw new IndexOutOfBoundsException("Invalid starting index or length");
+        }
+        return getWord(startIndex, length);
+    }
+
+    /**
+     * Writes up to 64 bits starting at a given index from a long: the bit at {@code startIndex + j} is set
+     * to bit {@code j} of the value, the layout of {@link #getLong(int, int)}. Bits of the value beyond the
+     * length are ignored.
+     *
+     * @param startIndex The index of the first bit to write.
+     * @param length The number of bits to write, between 0 and 64.
+     * @param bits The bits to write.
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public void setLong(int startIndex, int length, long bits) {
+        if (length < 0 || length > Long.SIZE || startIndex < 0 || startIndex + length > size) {
+            throw new IndexOutOfBoundsException("Invalid starting index or length");
+        }
+        setWord(startIndex, length, bits);
+    }
+
+    /**
+     * Overwrites this BitArray with the bits of another BitArray of the same size, without allocating.
+     *
+     * @param other The BitArray to copy from.
+     * @throws IllegalArgumentException if the sizes differ.
+     */
+    public void copyFrom(BitArray other) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("Cannot copy a BitArray of size " + other.size + " into size " + size);
+        }
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
     /**
      * Flips the value of the bit at the specified index (0 becomes 1, and 1 becomes 0).
      *
      * @param index The index of the bit to flip.
+     * @throws IndexOutOfBoundsException if the index is out of bounds.
      */
     public void flip(int index) {
-        set(index, !get(index));
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index out of bounds: " + index);
+        }
+        words[index >>> ADDRESS_BITS_PER_WORD] ^= 1L << index;
+    }
+
+    /**
+     * Flips a range of bits, up to 64 at a time.
+     *
+     * @param startIndex The index of the first bit to flip.
+     * @param length The number of bits to flip.
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public void flip(int startIndex, int length) {
+        checkRange(startIndex, length);
+        for (int done = 0; done < length; done += BITS_PER_WORD) {
+            int chunk = Math.min(BITS_PER_WORD, length - done);
+            setWord(startIndex + done, chunk, ~getWord(startIndex + done, chunk));
+        }
+    }
+
+    /**
+     * Copies a range of bits of another BitArray into this BitArray in reverse order: the bit at
+     * {@code startIndex + j} is set to the bit at {@code valuesIndex + length - 1 - j}. The bits are
+     * moved up to 64 at a time with {@link Long#reverse(long)}.
+     *
+     * @param startIndex The index of the first bit to write in this BitArray.
+     * @param values The BitArray to copy from, must not be this BitArray.
+     * @param valuesIndex The index of the first bit of the range to copy from the values.
+     * @param length The number of bits to copy.
+     * @throws IndexOutOfBoundsException if either range is out of bounds.
+     * @throws IllegalArgumentException if the values are this BitArray.
+     */
+    public void setReversed(int startIndex, BitArray values, int valuesIndex, int length) {
+        if (values == this) {
+            throw new IllegalArgumentException("Cannot copy a BitArray into itself in reverse order");
+        }
+        checkRange(startIndex, length);
+        values.checkRange(valuesIndex, length);
+        for (int done = 0; done < length; done += BITS_PER_WORD) {
+            int chunk = Math.min(BITS_PER_WORD, length - done);
+            long bits = values.getWord(valuesIndex + length - done - chunk, chunk);
+            setWord(startIndex + done, chunk, Long.reverse(bits) >>> (BITS_PER_WORD - chunk));
+        }
+    }
+
+    /**
+     * Flips the bits selected by a 64-bit mask: bit {@code j} of the mask flips the bit at
+     * {@code startIndex + j}. The range is checked once for the whole mask.
+     *
+     * @param startIndex The index matching the lowest bit of the mask.
+     * @param mask The bits to flip.
+     * @throws IndexOutOfBoundsException if a selected bit is out of bounds.
+     */
+    public void xorWord(int startIndex, long mask) {
+        if (mask == 0) {
+            return;
+        }
+        int lastIndex = startIndex + Long.SIZE - 1 - Long.numberOfLeadingZeros(mask);
+        if (startIndex < 0 || lastIndex >= size) {
+            throw new IndexOutOfBoundsException("Index out of bounds: " + lastIndex + "\nThe BitArray size is: " + size);
+        }
+
+        int wordIndex = startIndex >>> ADDRESS_BITS_PER_WORD;
+        int shift = startIndex & (BITS_PER_WORD - 1);
+        words[wordIndex] ^= mask << shift;
+        if (shift != 0 && (mask >>> (BITS_PER_WORD - shift)) != 0) {
+            words[wordIndex + 1] ^= mask >>> (BITS_PER_WORD - shift);
+        }
+    }
+
+    /**
+     * Sets this BitArray to the exclusive or of itself and another BitArray of the same size.
+     *
+     * @param other The BitArray to combine with.
+     * @throws IllegalArgumentException if the sizes differ.
+     */
+    public void xor(BitArray other) {
+        combine(XOR, other);
+    }
+
+    /**
+     * Sets this BitArray to the and of itself and another BitArray of the same size.
+     *
+     * @param other The BitArray to combine with.
+     * @throws IllegalArgumentException if the sizes differ.
+     */
+    public void and(BitArray other) {
+        combine(AND, other);
+    }
+
+    /**
+     * Sets this BitArray to the or of itself and another BitArray of the same size.
+     *
+     * @param other The BitArray to combine with.
+     * @throws IllegalArgumentException if the sizes differ.
+     */
+    public void or(BitArray other) {
+        combine(OR, other);
+    }
+
+    /**
+     * Clears the bits of this BitArray that are set in another BitArray of the same size.
+     *
+     * @param other The BitArray whose set bits are cleared.
+     * @throws IllegalArgumentException if the sizes differ.
+     */
+    public void andNot(BitArray other) {
+        combine(AND_NOT, other);
+    }
+
+    /**
+     * Sets a range of this BitArray to the exclusive or of itself and a range of another BitArray.
+     *
+     * @param startIndex The index of the first bit to change in this BitArray.
+     * @param other The BitArray to combine with, may be this BitArray.
+     * @param otherIndex The index of the first bit to read from the other BitArray.
+     * @param length The number of bits.
+     * @throws IndexOutOfBoundsException if either range is out of bounds.
+     */
+    public void xor(int startIndex, BitArray other, int otherIndex, int length) {
+        combine(XOR, startIndex, other, otherIndex, length);
+    }
+
+    /**
+     * Sets a range of this BitArray to the and of itself and a range of another BitArray.
+     *
+     * @param startIndex The index of the first bit to change in this BitArray.
+     * @param other The BitArray to combine with, may be this BitArray.
+     * @param otherIndex The index of the first bit to read from the other BitArray.
+     * @param length The number of bits.
+     * @throws IndexOutOfBoundsException if either range is out of bounds.
+     */
+    public void and(int startIndex, BitArray other, int otherIndex, int length) {
+        combine(AND, startIndex, other, otherIndex, length);
+    }
+
+    /**
+     * Sets a range of this BitArray to the or of itself and a range of another BitArray.
+     *
+     * @param startIndex The index of the first bit to change in this BitArray.
+     * @param other The BitArray to combine with, may be this BitArray.
+     * @param otherIndex The index of the first bit to read from the other BitArray.
+     * @param length The number of bits.
+     * @throws IndexOutOfBoundsException if either range is out of bounds.
+     */
+    public void or(int startIndex, BitArray other, int otherIndex, int length) {
+        combine(OR, startIndex, other, otherIndex, length);
+    }
+
+    /**
+     * Clears the bits of a range of this BitArray that are set in a range of another BitArray.
+     *
+     * @param startIndex The index of the first bit to change in this BitArray.
+     * @param other The BitArray whose set bits are cleared, may be this BitArray.
+     * @param otherIndex The index of the first bit to read from the other BitArray.
+     * @param length The number of bits.
+     * @throws IndexOutOfBoundsException if either range is out of bounds.
+     */
+    public void andNot(int startIndex, BitArray other, int otherIndex, int length) {
+        combine(AND_NOT, startIndex, other, otherIndex, length);
+    }
+
+    /**
+     * Counts the set bits of the BitArray.
+     *
+     * @return The number of bits that are 1.
+     */
+    public int popcount() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Counts the set bits in a range of the BitArray.
+     *
+     * @param startIndex The index of the first bit to count.
+     * @param length The number of bits to count.
+     * @return The number of bits in the range that are 1.
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public int popcount(int startIndex, int length) {
+        checkRange(startIndex, length);
+        int count = 0;
+        for (int done = 0; done < length; done += BITS_PER_WORD) {
+            count += Long.bitCount(getWord(startIndex + done, Math.min(BITS_PER_WORD, length - done)));
+        }
+        return count;
+    }
+
+    /**
+     * Finds the first set bit at or after a given index.
+     *
+     * @param fromIndex The index to start searching from.
+     * @return The index of the first bit that is 1, or -1 if there is none.
+     * @throws IndexOutOfBoundsException if the index is negative.
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            throw new IndexOutOfBoundsException("Index out of bounds: " + fromIndex);
+        }
+        if (fromIndex >= size) {
+            return -1;
+        }
+        int wordIndex = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        long word = words[wordIndex] & (-1L << fromIndex);
+        while (word == 0) {
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+        return (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word); // bits past the size are 0
+    }
+
+    /**
+     * Finds the first clear bit at or after a given index.
+     *
+     * @param fromIndex The index to start searching from.
+     * @return The index of the first bit that is 0, or -1 if there is none.
+     * @throws IndexOutOfBoundsException if the index is negative.
+     */
+    public int nextClearBit(int fromIndex) {
+        if (fromIndex < 0) {
+            throw new IndexOutOfBoundsException("Index out of bounds: " + fromIndex);
+        }
+        if (fromIndex >= size) {
+            return -1;
+        }
+        int wordIndex = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        long word = ~words[wordIndex] & (-1L << fromIndex);
+        while (word == 0) {
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = ~words[wordIndex];
+        }
+        int index = (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+        return index < size ? index : -1;
+    }
+
+    /**
+     * Checks whether a range of this BitArray holds the same bits as a range of another BitArray,
+     * comparing up to 64 bits at a time.
+     *
+     * @param startIndex The index of the first bit to compare in this BitArray.
+     * @param other The BitArray to compare with.
+     * @param otherIndex The index of the first bit to compare in the other BitArray.
+     * @param length The number of bits to compare.
+     * @return Whether the two ranges are equal.
+     * @throws IndexOutOfBoundsException if either range is out of bounds.
+     */
+    public boolean rangeEquals(int startIndex, BitArray other, int otherIndex, int length) {
+        checkRange(startIndex, length);
+        other.checkRange(otherIndex, length);
+        for (int done = 0; done < length; done += BITS_PER_WORD) {
+            int chunk = Math.min(BITS_PER_WORD, length - done);
+            if (getWord(startIndex + done, chunk) != other.getWord(otherIndex + done, chunk)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts the BitArray to bytes: byte {@code k} holds the bits {@code 8k} to {@code 8k + 7},
+     * the first of them in its lowest bit.
+     *
+     * @return The bytes of the BitArray, the last byte padded with 0 bits.
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[(size + ConstantsClass.BITS_PER_BYTE - 1) / ConstantsClass.BITS_PER_BYTE];
+        writeTo(ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Writes the bytes of the BitArray, in the layout of {@link #toByteArray()}, at the position of a buffer
+     * and advances it. Whole words are written at once, the byte order of the buffer is left unchanged.
+     *
+     * @param buffer The buffer to write to.
+     * @throws java.nio.BufferOverflowException if the buffer has too little space remaining.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        int byteCount = (size + ConstantsClass.BITS_PER_BYTE - 1) / ConstantsClass.BITS_PER_BYTE;
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            int fullWords = byteCount / Long.BYTES;
+            for (int i = 0; i < fullWords; i++) {
+                buffer.putLong(words[i]);
+            }
+            for (int i = fullWords * Long.BYTES; i < byteCount; i++) {
+                buffer.put((byte) (words[i / Long.BYTES] >>> ((i % Long.BYTES) * ConstantsClass.BITS_PER_BYTE)));
+            }
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    /**
+     * Creates a BitArray from bytes in the layout of {@link #toByteArray()}.
+     *
+     * @param bytes The bytes to read.
+     * @param size The size of the BitArray in bits, at most 8 bits per byte.
+     * @return The new BitArray.
+     * @throws IllegalArgumentException if the bytes hold fewer bits than the size.
+     */
+    public static BitArray fromByteArray(byte[] bytes, int size) {
+        return readFrom(ByteBuffer.wrap(bytes), size);
+    }
+
+    /**
+     * Creates a BitArray from the bytes at the position of a buffer, in the layout of {@link #toByteArray()},
+     * and advances it past them. The byte order of the buffer is left unchanged.
+     *
+     * @param buffer The buffer to read from.
+     * @param size The size of the BitArray in bits.
+     * @return The new BitArray.
+     * @throws IllegalArgumentException if the buffer has fewer bytes remaining than the size needs.
+     */
+    public static BitArray readFrom(ByteBuffer buffer, int size) {
+        int byteCount = (size + ConstantsClass.BITS_PER_BYTE - 1) / ConstantsClass.BITS_PER_BYTE;
+        if (size < 0 || buffer.remaining() < byteCount) {
+            throw new IllegalArgumentException("Cannot read " + size + " bits from " + buffer.remaining() + " bytes");
+        }
+        BitArray result = new BitArray(size);
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            int fullWords = byteCount / Long.BYTES;
+            for (int i = 0; i < fullWords; i++) {
+                result.words[i] = buffer.getLong();
+            }
+            for (int i = fullWords * Long.BYTES; i < byteCount; i++) {
+                result.words[i / Long.BYTES] |= (buffer.get() & 0xFFL) << ((i % Long.BYTES) * ConstantsClass.BITS_PER_BYTE);
+            }
+        } finally {
+            buffer.order(order);
+        }
+        result.clearUnusedBits();
+        return result;
     }
 
     /**
@@ -178,12 +580,13 @@ public class BitArray implements Cloneable{
      * @return The integer value represented by the BitArray.
      */
     public int toInt() {
-        int sum = 0, base = 1;
-        for (int i = size() - 1; i >= 0; i--) {
-            sum += (get(i)? 1 : 0) * base;
-            base *= 2;
+        // the first bit is the most significant, reversing the read word puts the last bit lowest
+        int start = Math.max(0, size - BITS_PER_WORD);
+        int length = size - start;
+        if (length == 0) {
+            return 0;
         }
-        return sum;
+        return (int) (Long.reverse(getWord(start, length)) >>> (BITS_PER_WORD - length));
     }
 
     /**
@@ -199,17 +602,159 @@ public class BitArray implements Cloneable{
             throw new IllegalArgumentException("Number is too large to insert into this BitArray.");
         }
 
-        // Clear the BitArray before setting new values
-        for (int i = 0; i < size; i++) {
-            set(i, false);
+        if (size <= Integer.SIZE) {
+            // the most significant of the size lowest bits of the number goes first
+            long value = number & (-1L >>> (BITS_PER_WORD - size));
+            setWord(0, size, size == 0 ? 0 : Long.reverse(value) >>> (BITS_PER_WORD - size));
+            return;
         }
 
-
         for (int i = 0; i < size; i++) {
             boolean value = ((number >> (size - 1 - i)) & 1) == 1;
-            set(i, value);
+            setBit(i, value);
+        }
+    }
+
+    /**
+     * Checks that a range lies within the BitArray.
+     */
+    private void checkRange(int startIndex, int length) {
+        if (length < 0 || startIndex < 0 || startIndex + length > size) {
+            throw new IndexOutOfBoundsException("Invalid range of " + length + " bits from index " + startIndex
+                    + "\nThe BitArray size is: " + size);
         }
+    }
+
+    /**
+     * Clears the bits of the last word beyond the size, keeping the invariant that they are 0.
+     */
+    private void clearUnusedBits() {
+        int used = size & (BITS_PER_WORD - 1);
+        if (used != 0) {
+            words[words.length - 1] &= (1L << used) - 1;
+        }
+    }
+
+    private static long apply(int operation, long word, long otherWord) {
+        return switch (operation) {
+            case XOR -> word ^ otherWord;
+            case AND -> word & otherWord;
+            case OR -> word | otherWord;
+            default -> word & ~otherWord;
+        };
+    }
+
+    /**
+     * Combines whole arrays word by word.
+     */
+    private void combine(int operation, BitArray other) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("Cannot combine a BitArray of size " + other.size + " with size " + size);
+        }
+        for (int i = 0; i < words.length; i++) {
+            words[i] = apply(operation, words[i], other.words[i]);
+        }
+    }
+
+    /**
+     * Combines ranges 64 bits at a time, backwards when a forward pass within the same array would
+     * read bits it has already changed.
+     */
+    private void combine(int operation, int startIndex, BitArray other, int otherIndex, int length) {
+        checkRange(startIndex, length);
+        other.checkRange(otherIndex, length);
+        if (other == this && startIndex > otherIndex && startIndex < otherIndex + length) {
+            for (int remaining = length; remaining > 0; remaining -= BITS_PER_WORD) {
+                int chunk = Math.min(BITS_PER_WORD, remaining);
+                int from = remaining - chunk;
+                setWord(startIndex + from, chunk,
+                        apply(operation, getWord(startIndex + from, chunk), getWord(otherIndex + from, chunk)));
+            }
+            return;
+        }
+        for (int done = 0; done < length; done += BITS_PER_WORD) {
+            int chunk = Math.min(BITS_PER_WORD, length - done);
+            setWord(startIndex + done, chunk,
+                    apply(operation, getWord(startIndex + done, chunk), other.getWord(otherIndex + done, chunk)));
+        }
+    }
+
+    /**
+     * Returns the number of words needed to hold the given number of bits.
+     */
+    private static int wordsFor(int bits) {
+        return (bits + BITS_PER_WORD - 1) >>> ADDRESS_BITS_PER_WORD;
+    }
 
+    /**
+     * Reads a bit without checking the index.
+     */
+    private boolean getBit(int index) {
+        return (words[index >>> ADDRESS_BITS_PER_WORD] & (1L << index)) != 0;
+    }
+
+    /**
+     * Writes a bit without checking the index.
+     */
+    private void setBit(int index, boolean value) {
+        if (value) {
+            words[index >>> ADDRESS_BITS_PER_WORD] |= 1L << index; // Set the bit to 1
+        } else {
+            words[index >>> ADDRESS_BITS_PER_WORD] &= ~(1L << index); // Set the bit to 0
+        }
+    }
+
+    /**
+     * Reads up to 64 bits without checking the range, the bits may straddle two words.
+     */
+    private long getWord(int startIndex, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int wordIndex = startIndex >>> ADDRESS_BITS_PER_WORD;
+        int shift = startIndex & (BITS_PER_WORD - 1);
+        long value = words[wordIndex] >>> shift;
+        if (shift + length > BITS_PER_WORD) {
+            value |= words[wordIndex + 1] << (BITS_PER_WORD - shift);
+        }
+        return length == BITS_PER_WORD ? value : value & ((1L << length) - 1);
+    }
+
+    /**
+     * Writes up to 64 bits without checking the range, merging them into one or two words.
+     */
+    private void setWord(int startIndex, int length, long value) {
+        if (length == 0) {
+            return;
+        }
+        long mask = length == BITS_PER_WORD ? -1L : (1L << length) - 1;
+        value &= mask;
+        int wordIndex = startIndex >>> ADDRESS_BITS_PER_WORD;
+        int shift = startIndex & (BITS_PER_WORD - 1);
+        words[wordIndex] = (words[wordIndex] & ~(mask << shift)) | (value << shift);
+        if (shift + length > BITS_PER_WORD) {
+            int written = BITS_PER_WORD - shift;
+            words[wordIndex + 1] = (words[wordIndex + 1] & ~(mask >>> written)) | (value >>> written);
+        }
+    }
+
+    /**
+     * Copies bits from a source array 64 at a time without checking the ranges. When copying forward
+     * within the same array would overwrite bits before they are read, the copy runs backwards.
+     */
+    private void copyBits(BitArray source, int sourceIndex, int destinationIndex, int length) {
+        if (source == this && destinationIndex > sourceIndex && destinationIndex < sourceIndex + length) {
+            for (int remaining = length; remaining > 0; remaining -= BITS_PER_WORD) {
+                int chunk = Math.min(BITS_PER_WORD, remaining);
+                int from = remaining - chunk;
+                setWord(destinationIndex + from, chunk, getWord(sourceIndex + from, chunk));
+            }
+            return;
+        }
+        for (int done = 0; done < length; done += BITS_PER_WORD) {
+            int chunk = Math.min(BITS_PER_WORD, length - done);
+            setWord(destinationIndex + done, chunk, source.getWord(sourceIndex + done, chunk));
+        }
     }
 
     public static void main(String[] args){
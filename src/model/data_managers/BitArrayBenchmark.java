@@ -0,0 +1,143 @@
+package model.data_managers;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the word-level bulk operations of {@link BitArray} with the single-bit loops they replace.
+ * Every operation is run on random arrays for a warmup and then timed, both ways, and the results of
+ * both ways are checked to agree. The numbers are only indicative, a few warm runs of the same JVM.
+ * Usage: {@code BitArrayBenchmark [bits] [iterations]}
+ */
+public class BitArrayBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+
+    // keeps the results alive so the work is not optimized away
+    private static long sink;
+
+    public static void main(String[] args) {
+        int bits = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 16;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        Random random = new Random(42);
+        BitArray first = randomBitArray(random, bits);
+        BitArray second = randomBitArray(random, bits);
+        BitArray equalCopy = first.clone();
+
+        System.out.printf("%d bits, %d iterations, ns per operation%n", bits, iterations);
+        System.out.printf("%-14s %12s %12s %8s%n", "operation", "per bit", "bulk", "speedup");
+
+        compare("xor", iterations,
+                () -> {
+                    BitArray target = first.clone();
+                    for (int i = 0; i < bits; i++) {
+                        target.set(i, target.get(i) ^ second.get(i));
+                    }
+                    return target.getLong(0, Long.SIZE);
+                },
+                () -> {
+                    BitArray target = first.clone();
+                    target.xor(second);
+                    return target.getLong(0, Long.SIZE);
+                });
+
+        compare("ranged and", iterations,
+                () -> {
+                    BitArray target = first.clone();
+                    for (int i = 0; i < bits - 7; i++) {
+                        target.set(i + 3, target.get(i + 3) & second.get(i + 4));
+                    }
+                    return target.getLong(0, Long.SIZE);
+                },
+                () -> {
+                    BitArray target = first.clone();
+                    target.and(3, second, 4, bits - 7);
+                    return target.getLong(0, Long.SIZE);
+                });
+
+        compare("popcount", iterations,
+                () -> {
+                    long count = 0;
+                    for (int i = 0; i < bits; i++) {
+                        if (first.get(i))
+                            count++;
+                    }
+                    return count;
+                },
+                () -> first.popcount());
+
+        compare("nextSetBit", iterations,
+                () -> {
+                    long sum = 0;
+                    for (int i = 0; i < bits; i++) {
+                        if (first.get(i))
+                            sum += i;
+                    }
+                    return sum;
+                },
+                () -> {
+                    long sum = 0;
+                    for (int i = first.nextSetBit(0); i >= 0; i = first.nextSetBit(i + 1)) {
+                        sum += i;
+                    }
+                    return sum;
+                });
+
+        compare("rangeEquals", iterations,
+                () -> {
+                    for (int i = 0; i < bits; i++) {
+                        if (first.get(i) != equalCopy.get(i))
+                            return 0L;
+                    }
+                    return 1L;
+                },
+                () -> first.rangeEquals(0, equalCopy, 0, bits) ? 1L : 0L);
+
+        compare("toByteArray", iterations,
+                () -> {
+                    byte[] bytes = new byte[(bits + 7) / 8];
+                    for (int i = 0; i < bits; i++) {
+                        if (first.get(i))
+                            bytes[i / 8] |= (byte) (1 << (i % 8));
+                    }
+                    return Arrays.hashCode(bytes);
+                },
+                () -> Arrays.hashCode(first.toByteArray()));
+
+        System.out.println("checksum " + sink);
+    }
+
+    private static void compare(String name, int iterations, Operation perBit, Operation bulk) {
+        if (perBit.run() != bulk.run()) {
+            throw new IllegalStateException(name + ": the bulk operation disagrees with the per-bit loop");
+        }
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            time(perBit, iterations);
+            time(bulk, iterations);
+        }
+        double perBitNanos = time(perBit, iterations);
+        double bulkNanos = time(bulk, iterations);
+        System.out.printf("%-14s %12.0f %12.0f %7.1fx%n", name, perBitNanos, bulkNanos, perBitNanos / bulkNanos);
+    }
+
+    private static double time(Operation operation, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += operation.run();
+        }
+        return (double) (System.nanoTime() - start) / iterations;
+    }
+
+    private static BitArray randomBitArray(Random random, int bits) {
+        BitArray bitArray = new BitArray(bits);
+        for (int i = 0; i < bits; i += Long.SIZE) {
+            bitArray.setLong(i, Math.min(Long.SIZE, bits - i), random.nextLong());
+        }
+        return bitArray;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        long run();
+    }
+}
@@ -0,0 +1,204 @@
+package model.data_managers;
+
+import model.data_managers.image_metedate.CompactHeader;
+import model.data_managers.image_metedate.ImageMetadata;
+import model.data_managers.image_metedate.MetadataSerializer;
+import model.image.ArgbImage;
+import model.image.PixelBuffer;
+import model.payload.PayloadBits;
+import model.payload.PayloadDecoder;
+import model.payload.PayloadSink;
+import model.utils.ConstantsClass;
+import model.utils.UtilsMethods;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Verifies the capacity and header arithmetic at the sizes where 9 bits per pixel stop fitting into an int,
+ * about 238 megapixels. Below that size the header must keep the field widths of the old int arithmetic,
+ * above it every field must hold its largest value, and a payload must round trip through a 2 gigapixel
+ * cover, with a {@link CompactHeader} and with legacy metadata. The large covers only exist as their leading
+ * pixels, the rest of the image reads as black.
+ * Exits with status 1 if any check fails.
+ */
+public class CapacityCheck {
+    private static final int BITS_PER_PIXEL = ConstantsClass.BITS_REPLACED_PER_BYTE * ConstantsClass.BYTES_IN_PIXEL;
+
+    // the largest number of pixels whose capacity in bits fits into an int
+    private static final int LAST_INT_PIXELS = Integer.MAX_VALUE / BITS_PER_PIXEL;
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        int[][] oldSizes = {{1, 1}, {16, 16}, {1920, 1080}, {15446, 15446}, {LAST_INT_PIXELS, 1}, {1, LAST_INT_PIXELS}};
+        for (int[] size : oldSizes) {
+            check(ImageMetadata.getSizeInBits(size[0], size[1]) == oldSizeInBits(size[0], size[1]),
+                    "header of " + size[0] + "x" + size[1] + " keeps its old size");
+        }
+
+        int[][] sizes = {{16, 16}, {LAST_INT_PIXELS, 1}, {LAST_INT_PIXELS + 1, 1}, {15448, 15448}, {46340, 46340}, {65536, 65536}};
+        for (int[] size : sizes) {
+            checkCapacity(size[0], size[1]);
+            checkMetadataRoundTrip(size[0], size[1]);
+        }
+
+        int largestHeader = EmbeddingLayout.pixelsFor(CompactHeader.MAX_SIZE_IN_BITS) * BITS_PER_PIXEL;
+        check(UtilsMethods.secretMessageMaxLength(46340, 46340) == (Integer.MAX_VALUE - largestHeader) / ConstantsClass.BITS_PER_BYTE,
+                "capacity is capped at one BitArray");
+        try {
+            new ArgbImage(65536, 65536);
+            check(false, "an image of 2^32 pixels is rejected");
+        } catch (IllegalArgumentException expected) {
+            check(true, "an image of 2^32 pixels is rejected");
+        }
+
+        checkDecoding(LAST_INT_PIXELS + 1, 1);
+        checkDecoding(46340, 46340);
+
+        System.out.println(failures == 0 ? "all checks passed" : failures + " checks failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares the capacity with exact arithmetic.
+     */
+    private static void checkCapacity(int width, int height) {
+        BigInteger capacity = BigInteger.valueOf(width).multiply(BigInteger.valueOf(height)).multiply(BigInteger.valueOf(BITS_PER_PIXEL));
+        String name = width + "x" + height;
+        check(BigInteger.valueOf(UtilsMethods.maxDataSizeNoHeaderInBits(width, height)).equals(capacity), "capacity of " + name);
+        int expectedHeader = capacity.bitLength() + 2 * capacity.shiftRight(1).bitLength()
+                + UtilsMethods.bitsNeeded(ConstantsClass.DATA_DIRECTION_SIZE) + UtilsMethods.bitsNeeded(ConstantsClass.DATA_POLARITY_SIZE);
+        check(ImageMetadata.getSizeInBits(width, height) == expectedHeader, "header size of " + name);
+        check(UtilsMethods.secretMessageMaxLength(width, height) > 0, "positive payload capacity of " + name);
+    }
+
+    /**
+     * Writes and reads back metadata whose fields hold their largest values.
+     */
+    private static void checkMetadataRoundTrip(int width, int height) {
+        long dataLength = UtilsMethods.maxDataSizeNoHeaderInBits(width, height);
+        long swaps = UtilsMethods.maxNumberOfSwapsAndOffsetSize(width, height);
+        ImageMetadata metadata = new ImageMetadata(dataLength, swaps, swaps - 1, 1, 3, width, height);
+        BitArray bits = MetadataSerializer.serialize(metadata);
+        ImageMetadata read = MetadataSerializer.deserialize(bits, width, height);
+        check(bits.size() == ImageMetadata.getSizeInBits(width, height)
+                && read.getDataLength() == dataLength && read.getNumberOfSwaps() == swaps && read.getOffset() == swaps - 1
+                && read.getDataDirection() == 1 && read.getDataPolarity() == 3, "metadata round trip of " + width + "x" + height);
+
+        long compactLength = Math.min(dataLength, Integer.MAX_VALUE);
+        long compactSwaps = UtilsMethods.numberOfSwapsForData(compactLength) - 1;
+        ImageMetadata compact = new ImageMetadata(compactLength, compactSwaps, compactSwaps, 1, 3, -1, width, height);
+        BitArray compactBits = new BitArray(CompactHeader.MAX_SIZE_IN_BITS);
+        compactBits.set(0, CompactHeader.serialize(compact));
+        read = CompactHeader.read(compactBits, 0, width, height);
+        check(read != null && read.isCompact() && read.getSizeInBits() == CompactHeader.getSizeInBits(compactLength)
+                && read.getDataLength() == compactLength && read.getNumberOfSwaps() == compactSwaps && read.getOffset() == compactSwaps
+                && read.getDataDirection() == 1 && read.getDataPolarity() == 3 && read.getChecksum() == -1,
+                "compact header round trip of " + width + "x" + height);
+    }
+
+    /**
+     * Embeds a payload into the leading pixels of a large cover and decodes it, with a compact header and
+     * with legacy metadata, then claims data longer than a BitArray in the header, which must be rejected
+     * instead of overflowing. A payload damaged after embedding must fail the checksum of its header.
+     */
+    private static void checkDecoding(int width, int height) throws IOException {
+        String name = width + "x" + height;
+        byte[] payload = "a payload hidden in a very large cover".getBytes(StandardCharsets.UTF_8);
+        BitArray data = PayloadBits.fromBytes(payload);
+        int ns = 100, off = 37, dd = 1, dp = 2;
+        BitArray manipulated = new DataManipulation(data).modifyBitArray(ns, off, dd, dp);
+
+        Random random = new Random(11);
+        int[] prefix = new int[1024];
+        for (int i = 0; i < prefix.length; i++) {
+            prefix[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        EmbeddingLayout layout = new EmbeddingLayout(width, height, data.size());
+        int checksum = CompactHeader.checksum(data);
+        int[] stego = prefix.clone();
+        embed(layout.writeHeader(ns, off, dd, dp, checksum), 0, stego);
+        embed(manipulated, layout.getDataPixel(), stego);
+        check(Arrays.equals(decode(width, height, stego), payload), "payload round trip through " + name);
+
+        int[] damaged = stego.clone();
+        damaged[layout.getDataPixel() + 3] ^= 0x010000;
+        check(decode(width, height, damaged) == null, "a damaged payload fails its checksum in " + name);
+
+        int[] legacy = prefix.clone();
+        int legacyDataPixel = EmbeddingLayout.pixelsFor(ImageMetadata.getSizeInBits(width, height));
+        embed(MetadataSerializer.serialize(new ImageMetadata(data.size(), ns, off, dd, dp, width, height)), 0, legacy);
+        embed(manipulated, legacyDataPixel, legacy);
+        embed(PayloadBits.fromText(ConstantsClass.ENCODING_PASSKEY), legacyDataPixel + EmbeddingLayout.pixelsFor(data.size()), legacy);
+        check(Arrays.equals(decode(width, height, legacy), payload), "legacy payload round trip through " + name);
+
+        // headers claiming one bit more than the extracted bits can hold
+        long tooLong = Integer.MAX_VALUE - (long) legacyDataPixel * BITS_PER_PIXEL + 1;
+        int[] claimed = legacy.clone();
+        embed(MetadataSerializer.serialize(new ImageMetadata(tooLong, 0, 0, 0, 0, width, height)), 0, claimed);
+        check(decode(width, height, claimed) == null, "legacy data longer than a BitArray is rejected in " + name);
+
+        int compactLength = Integer.MAX_VALUE - EmbeddingLayout.pixelsFor(CompactHeader.getSizeInBits(Integer.MAX_VALUE)) * BITS_PER_PIXEL + 1;
+        claimed = stego.clone();
+        embed(CompactHeader.serialize(new ImageMetadata(compactLength, 0, 0, 0, 0, checksum, width, height)), 0, claimed);
+        check(decode(width, height, claimed) == null, "compact data longer than a BitArray is rejected in " + name);
+    }
+
+    private static byte[] decode(int width, int height, int[] prefix) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long decoded = new PayloadDecoder(prefixImage(width, height, prefix)).decodeTo(PayloadSink.ofStream(out));
+        return decoded < 0 ? null : out.toByteArray();
+    }
+
+    private static void embed(BitArray bits, int firstPixel, int[] pixels) {
+        for (int bitIndex = 0, pixel = firstPixel; bitIndex < bits.size(); bitIndex += BITS_PER_PIXEL, pixel++) {
+            long pixelBits = bits.getLong(bitIndex, Math.min(BITS_PER_PIXEL, bits.size() - bitIndex));
+            pixels[pixel] = DataEmbedding.embedBitsIntoPixel(pixels[pixel], pixelBits);
+        }
+    }
+
+    /**
+     * An image of the given size of which only the leading pixels are held, the others are black.
+     */
+    private static PixelBuffer prefixImage(int width, int height, int[] prefix) {
+        return new PixelBuffer() {
+            @Override
+            public int getWidth() {
+                return width;
+            }
+
+            @Override
+            public int getHeight() {
+                return height;
+            }
+
+            @Override
+            public int getArgb(int index) {
+                return index < prefix.length ? prefix[index] : 0xFF000000;
+            }
+        };
+    }
+
+    /**
+     * The header size computed with the int arithmetic of earlier versions, valid below the int limit.
+     */
+    private static int oldSizeInBits(int width, int height) {
+        int capacity = BITS_PER_PIXEL * height * width;
+        return UtilsMethods.bitsNeeded(capacity) + 2 * UtilsMethods.bitsNeeded(capacity / 2)
+                + UtilsMethods.bitsNeeded(ConstantsClass.DATA_POLARITY_SIZE) + UtilsMethods.bitsNeeded(ConstantsClass.DATA_DIRECTION_SIZE);
+    }
+
+    private static void check(boolean passed, String description) {
+        System.out.println((passed ? "ok     " : "FAILED ") + description);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
@@ -1,159 +1,166 @@
 package model.data_managers;
 
-import javafx.scene.image.Image;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
-import javafx.scene.paint.Color;
 import model.data_managers.image_metedate.ImageMetadata;
-import model.data_managers.image_metedate.MetadataSerializer;
+import model.image.ArgbImage;
+import model.image.StegoOverlay;
 import model.utils.ConstantsClass;
-import model.utils.UtilsMethods;
 
 /**
  * Manages the process of embedding data into an image. This class supports embedding arbitrary data,
  * represented as a {@link BitArray}, into an image by subtly altering the least significant bits (LSBs)
  * of the image pixels' color components, making the changes visually imperceptible.
+ * <p>
+ * The header and the data are each padded to whole pixels and embedded one after the other. Rather than
+ * building the padded and combined bits, the sections are streamed straight from their BitArrays, 9 bits
+ * per pixel, into packed ARGB pixels, and the padding is simply never read. Where the sections go is
+ * described by an {@link EmbeddingLayout}, computed once per data length.
  */
 public class DataEmbedding {
-    private final Image originalImage;
+    private static final int BITS_PER_PIXEL = ConstantsClass.BITS_REPLACED_PER_BYTE * ConstantsClass.BYTES_IN_PIXEL;
+    private static final int EMBEDDED_BITS_MASK = (1 << ConstantsClass.BITS_REPLACED_PER_BYTE) - 1;
+
+    // clears the embedded bits of the three color channels, the alpha becomes opaque
+    private static final int KEPT_BITS_MASK = 0x00FFFFFF & ~(EMBEDDED_BITS_MASK << 16 | EMBEDDED_BITS_MASK << 8 | EMBEDDED_BITS_MASK);
+    private static final int OPAQUE = 0xFF000000;
+
+    private final ArgbImage cover;
+    private final int width;
+    private final int height;
+    private final int[] coverPixels;
+    private EmbeddingLayout layout;
 
     /**
      * Initializes a new instance of DataEmbedding for a specific image.
      *
-     * @param image The image into which data will be embedded.
+     * @param cover The image into which data will be embedded, never changed.
      */
-    public DataEmbedding(Image image) {
-        this.originalImage = image;
+    public DataEmbedding(ArgbImage cover) {
+        this.cover = cover;
+        this.width = cover.getWidth();
+        this.height = cover.getHeight();
+        this.coverPixels = cover.getPixels();
+    }
+
+    /**
+     * Returns the layout of embedding data of a given length into the image. The layout of the last
+     * data length is kept, since all candidates of a job embed data of the same length.
+     *
+     * @param dataLength The length of the data in bits.
+     * @return The layout.
+     */
+    public EmbeddingLayout getLayout(int dataLength) {
+        if (layout == null || layout.getDataLength() != dataLength) {
+            layout = new EmbeddingLayout(width, height, dataLength);
+        }
+        return layout;
     }
 
     /**
      * Embeds the provided data and metadata into the original image.
-     * This method serializes the metadata, applies necessary padding, combines the metadata and data,
-     * and then embeds the combined BitArray into the original image's pixels. The embedding modifies the LSBs
-     * of each color component in each pixel to store the binary data, preserving the overall appearance of the image.
+     * This method embeds the header and the data into the original image's
+     * pixels. The embedding modifies the LSBs of each color component in each pixel to store the binary data,
+     * preserving the overall appearance of the image.
      *
      * @param data The data to embed into the image, represented as a {@link BitArray}.
      * @param metadata The metadata associated with the data, which is necessary for correctly extracting the data.
-     * @return A new {@link WritableImage} with the data and metadata embedded within it.
+     * @return A new image with the data and metadata embedded within it.
      */
-    public WritableImage embedData(BitArray data, ImageMetadata metadata) {
-        // Prepare combined data for embedding
-        BitArray combinedData = prepareDataForEmbedding(data, metadata);
-
-        int width = (int) originalImage.getWidth();
-        int height = (int) originalImage.getHeight();
-
-        WritableImage writableImage = new WritableImage(originalImage.getPixelReader(), width, height);
-        PixelWriter pixelWriter = writableImage.getPixelWriter();
-
-        int bitsForOnePixel = ConstantsClass.BITS_REPLACED_PER_BYTE * ConstantsClass.BYTES_IN_PIXEL;
-        int pixelsToEmbed = combinedData.size() / bitsForOnePixel;
-
-        // Embed combinedData into the image
-        for (int pixelIndex = 0; pixelIndex < pixelsToEmbed; pixelIndex++) {
-            int dataIndex = pixelIndex * bitsForOnePixel;
-            int pixelY = pixelIndex / width;
-            int pixelX = pixelIndex % width;
-
-            if (pixelX < width && pixelY < height) {
-                int[] colorData = extractBitsForPixel(combinedData, dataIndex);
-
-                // Update the pixel color with embedded bits
-                updatePixelColor(pixelWriter, pixelX, pixelY, colorData);
-            }
-        }
-        return writableImage;
+    public ArgbImage embedData(BitArray data, ImageMetadata metadata) {
+        int[] pixels = new int[coverPixels.length];
+        embedData(data, metadata, pixels);
+        return new ArgbImage(width, height, pixels);
     }
 
     /**
-     * Prepares the data, metadata, and signature for embedding by serializing,
-     * padding, and combining them into a single BitArray.
+     * Creates an overlay of the image for embedding candidates of data of a given length. The overlay owns
+     * the header and data pixels.
      *
-     * @param data The data to be embedded.
-     * @param metadata The metadata associated with the data.
-     * @return A combined BitArray ready for embedding into the image.
+     * @param dataLength The length of the data in bits.
+     * @return The overlay, to be filled by {@link #embedCandidate(BitArray, ImageMetadata, StegoOverlay)}.
      */
-    private BitArray prepareDataForEmbedding(BitArray data, ImageMetadata metadata) {
-        // Serialize metadata to BitArray
-        BitArray metadataBitArray = MetadataSerializer.serialize(metadata);
-
-        // Apply padding to metadata, data, and signature
-        BitArray paddedMetadata = addPaddingToBitArray(metadataBitArray);
-        BitArray paddedData = addPaddingToBitArray(data);
-        BitArray paddedSignature = addPaddingToBitArray(new StringParser(ConstantsClass.ENCODING_PASSKEY).convertToBitArray());
-
-        // Combine padded metadata, data, and signature into a new BitArray
-        return combineBitArrays(paddedMetadata, paddedData, paddedSignature);
+    public StegoOverlay createOverlay(int dataLength) {
+        EmbeddingLayout current = getLayout(dataLength);
+        return new StegoOverlay(cover, Math.min(current.getTotalPixels(), coverPixels.length));
     }
 
     /**
-     * Extracts bits for a pixel from the combined data.
+     * Embeds the metadata and data of a candidate into an overlay created by {@link #createOverlay(int)}
+     * for data of the same length, touching only the header and data pixels it owns.
      *
-     * @param combinedData The combined BitArray of metadata, data, and signature.
-     * @param dataIndex The starting index in the combined BitArray for the pixel.
-     * @return An array of color data with the extracted bits embedded.
+     * @param data The data to embed into the image, represented as a {@link BitArray}.
+     * @param metadata The metadata associated with the data, which is necessary for correctly extracting the data.
+     * @param overlay The overlay to embed into.
      */
-    private int[] extractBitsForPixel(BitArray combinedData, int dataIndex) {
-        int[] colorData = new int[ConstantsClass.BYTES_IN_PIXEL];
-        // getting the data from the bitarray for 1 pixel
-        for (int colorIndex = 0; colorIndex < ConstantsClass.BYTES_IN_PIXEL; colorIndex++) {
-            for (int bitIndex = 0; bitIndex < ConstantsClass.BITS_REPLACED_PER_BYTE; bitIndex++) {
-                if (combinedData.get(dataIndex + colorIndex * ConstantsClass.BITS_REPLACED_PER_BYTE + bitIndex)) {
-                    colorData[colorIndex] |= (1 << bitIndex);
-                }
-            }
-        }
-        return colorData;
+    public void embedCandidate(BitArray data, ImageMetadata metadata, StegoOverlay overlay) {
+        embedCandidate(data, metadata, overlay.getPrefixPixels());
     }
 
     /**
-     * Updates the color of a pixel in the image.
+     * Embeds the provided data and metadata into a pixel buffer: the buffer receives the pixels of the
+     * original image, then the header and the data are streamed into its first pixels.
+     * Nothing is allocated once the layout of the data length is known.
      *
-     * @param pixelWriter The PixelWriter to update the pixel.
-     * @param pixelX The X coordinate of the pixel.
-     * @param pixelY The Y coordinate of the pixel.
-     * @param colorData The array of color data with embedded bits.
+     * @param data The data to embed into the image, represented as a {@link BitArray}.
+     * @param metadata The metadata associated with the data, which is necessary for correctly extracting the data.
+     * @param destination The packed ARGB pixels of the embedded image, row by row, one int per pixel of the image.
+     * @throws IllegalArgumentException if the destination does not match the size of the image.
      */
-    private void updatePixelColor(PixelWriter pixelWriter, int pixelX, int pixelY, int[] colorData) {
-        Color originalColor = originalImage.getPixelReader().getColor(pixelX, pixelY);
-        // setting the color of the pixel of the image
-        int red = embedBitsIntoColor((int) (originalColor.getRed() * 255), colorData[0]);
-        int green = embedBitsIntoColor((int) (originalColor.getGreen() * 255), colorData[1]);
-        int blue = embedBitsIntoColor((int) (originalColor.getBlue() * 255), colorData[2]);
-
-        Color newColor = Color.rgb(red, green, blue, 1.0);
-        pixelWriter.setColor(pixelX, pixelY, newColor);
+    public void embedData(BitArray data, ImageMetadata metadata, int[] destination) {
+        if (destination.length != coverPixels.length) {
+            throw new IllegalArgumentException("The destination holds " + destination.length + " pixels, the image " + coverPixels.length);
+        }
+        System.arraycopy(coverPixels, 0, destination, 0, coverPixels.length);
+        embedCandidate(data, metadata, destination);
     }
 
     /**
-     * Embeds bits into a color component.
+     * Embeds the header and data of a candidate into a pixel buffer that already holds the cover, written by
+     * {@link #embedData(BitArray, ImageMetadata, int[])} for data of the same length. Only the header and data
+     * pixels are written, they are the same pixels for every candidate of the layout.
      *
-     * @param originalColorComponent The original color component value.
-     * @param bitsToEmbed The bits to embed into the color component.
-     * @return The new color component value with the bits embedded.
+     * @param data The data to embed into the image, represented as a {@link BitArray}.
+     * @param metadata The metadata associated with the data, which is necessary for correctly extracting the data.
+     * @param destination The packed ARGB pixels of the embedded image, or only its leading pixels.
      */
-    private int embedBitsIntoColor(int originalColorComponent, int bitsToEmbed) {
-        return (originalColorComponent & (0xFF << ConstantsClass.BITS_REPLACED_PER_BYTE)) | bitsToEmbed;
+    public void embedCandidate(BitArray data, ImageMetadata metadata, int[] destination) {
+        EmbeddingLayout current = getLayout(data.size());
+        BitArray header = current.writeHeader(metadata.getNumberOfSwaps(), metadata.getOffset(),
+                metadata.getDataDirection(), metadata.getDataPolarity(), metadata.getChecksum());
+        embedSection(header, 0, destination);
+        embedSection(data, current.getDataPixel(), destination);
     }
 
-    public BitArray addPaddingToBitArray(BitArray bitArray){
-        int padding = UtilsMethods.calculatePadding(bitArray.size());
-        BitArray temp = new BitArray(bitArray.size() + padding);
-        temp.set(0, bitArray);
-        return temp;
+    /**
+     * Embeds a section padded to whole pixels, reading the 9 bits of each pixel at once.
+     * Pixels beyond the end of the image are skipped.
+     *
+     * @param bits The bits of the section.
+     * @param firstPixel The index of the first pixel of the section.
+     * @param destination The pixels to embed into.
+     * @return The index of the first pixel after the section.
+     */
+    private int embedSection(BitArray bits, int firstPixel, int[] destination) {
+        int pixels = (bits.size() + BITS_PER_PIXEL - 1) / BITS_PER_PIXEL;
+        int end = Math.min(firstPixel + pixels, destination.length);
+        for (int pixel = firstPixel; pixel < end; pixel++) {
+            int bitIndex = (pixel - firstPixel) * BITS_PER_PIXEL;
+            long pixelBits = bits.getLong(bitIndex, Math.min(BITS_PER_PIXEL, bits.size() - bitIndex)); // the padding reads as 0
+            destination[pixel] = embedBitsIntoPixel(coverPixels[pixel], pixelBits);
+        }
+        return firstPixel + pixels;
     }
 
-    public BitArray combineBitArrays(BitArray... arrays){
-        int sum = 0;
-        for (BitArray bitArray : arrays){
-            sum += bitArray.size();
-        }
-        BitArray total = new BitArray(sum);
-        int offset = 0;
-        for (BitArray bitArray : arrays){
-            total.set(offset, bitArray);
-            offset += bitArray.size();
-        }
-        return total;
+    /**
+     * Embeds 9 bits into a packed ARGB pixel, 3 bits into the LSBs of each of red, green and blue.
+     *
+     * @param originalPixel The original ARGB pixel.
+     * @param bitsToEmbed The bits to embed, red in the lowest 3 bits, then green, then blue.
+     * @return The opaque ARGB pixel with the bits embedded.
+     */
+    static int embedBitsIntoPixel(int originalPixel, long bitsToEmbed) {
+        int red = (int) bitsToEmbed & EMBEDDED_BITS_MASK;
+        int green = (int) (bitsToEmbed >>> ConstantsClass.BITS_REPLACED_PER_BYTE) & EMBEDDED_BITS_MASK;
+        int blue = (int) (bitsToEmbed >>> (2 * ConstantsClass.BITS_REPLACED_PER_BYTE)) & EMBEDDED_BITS_MASK;
+        return OPAQUE | (originalPixel & KEPT_BITS_MASK) | red << 16 | green << 8 | blue;
     }
 }
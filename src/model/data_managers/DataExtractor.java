@@ -1,9 +1,10 @@
 package model.data_managers;
 
-import javafx.scene.image.Image;
-import javafx.scene.paint.Color;
+import model.data_managers.image_metedate.CompactHeader;
 import model.data_managers.image_metedate.ImageMetadata;
 import model.data_managers.image_metedate.MetadataSerializer;
+import model.image.PixelBuffer;
+import model.payload.PayloadBits;
 import model.utils.ConstantsClass;
 import model.utils.UtilsMethods;
 
@@ -12,148 +13,242 @@ import model.utils.UtilsMethods;
  * used as a carrier in steganography. This class is capable of retrieving both
  * the hidden data and the metadata required for correctly interpreting the data
  * from an image's pixel values.
+ * <p>
+ * The embedded sections are the leading pixels of the image, so every pixel is read at most once: the
+ * pixels are copied in bulk into a primitive buffer, the 9 embedded bits of each pixel are unpacked with a
+ * lookup table, and the bits are collected into a single {@link BitArray} a word at a time. The header
+ * and the data are then read in place from that array, at the offsets of their sections.
+ * <p>
+ * An image starts with a {@link CompactHeader}, or, if encoded before it, with legacy metadata sized for
+ * the capacity of the image and a passkey signature after the data. Most images given to the decoder may
+ * not hold any data. Before the data is read, the header is checked against the capacity of the image, and
+ * for the legacy format the signature is read on its own from the pixels where it must be, so such an
+ * image is rejected after reading only its first pixels. The checksum of a compact header covers the
+ * payload before its manipulation, it is verified once the payload is restored.
  */
 public class DataExtractor {
-    private final Image stegoImage;
+    private static final int BITS_PER_PIXEL = ConstantsClass.BITS_REPLACED_PER_BYTE * ConstantsClass.BYTES_IN_PIXEL;
+    private static final int EMBEDDED_BITS_MASK = (1 << ConstantsClass.BITS_REPLACED_PER_BYTE) - 1;
+    private static final int PIXELS_PER_READ = 1024;
+
+    // indexed by the low byte of red and green shifted together, gives their embedded bits: red lowest
+    private static final int RED_GREEN_MASK = EMBEDDED_BITS_MASK << 8 | EMBEDDED_BITS_MASK;
+    private static final short[] RED_GREEN_BITS = new short[RED_GREEN_MASK + 1];
+
+    static {
+        for (int red = 0; red <= EMBEDDED_BITS_MASK; red++) {
+            for (int green = 0; green <= EMBEDDED_BITS_MASK; green++) {
+                RED_GREEN_BITS[red << 8 | green] = (short) (red | green << ConstantsClass.BITS_REPLACED_PER_BYTE);
+            }
+        }
+    }
+
+    private final PixelBuffer stegoImage;
+    private final int width;
+    private final int height;
+    private final int legacyMetadataSize;
+    private final BitArray signature = PayloadBits.fromText(ConstantsClass.ENCODING_PASSKEY);
+
+    // the bits of the pixels read so far, they are the first bits of the image
+    private BitArray extractedBits = new BitArray(0);
+    private int extractedPixels;
 
     /**
      * Initializes a new DataExtractor with a specified steganographic image.
      *
-     * @param stegoImage The image from which data and metadata are to be extracted.
+     * @param stegoImage The pixels from which data and metadata are to be extracted.
      */
-    public DataExtractor(Image stegoImage) {
+    public DataExtractor(PixelBuffer stegoImage) {
         this.stegoImage = stegoImage;
+        this.width = stegoImage.getWidth();
+        this.height = stegoImage.getHeight();
+        this.legacyMetadataSize = ImageMetadata.getSizeInBits(width, height);
     }
 
     /**
-     * Extracts bits from the image based on a specified number of bits.
-     * This method sequentially retrieves bits embedded in the least significant bits
-     * of the image's color components.
+     * Makes sure the bits of the first pixels of the image are extracted, reading only the pixels that
+     * were not read yet. Bits beyond the end of the image read as 0.
      *
-     * @param totalBitsToExtract The total number of bits to be extracted from the image.
-     * @return A {@link BitArray} containing the extracted bits.
+     * @param totalBitsToExtract The number of leading bits needed.
      */
-    private BitArray extractBitsFromImage(int totalBitsToExtract) {
-        int width = (int) stegoImage.getWidth();
-        int height = (int) stegoImage.getHeight();
-        BitArray extractedBits = new BitArray(totalBitsToExtract);
-
-        int extractedBitCount = 0;
-        for (int y = 0; y < height && extractedBitCount < totalBitsToExtract; y++) {
-            for (int x = 0; x < width && extractedBitCount < totalBitsToExtract; x++) {
-                Color color = stegoImage.getPixelReader().getColor(x, y);
-
-                extractedBitCount = extractBitsFromColor(color, extractedBits, extractedBitCount, totalBitsToExtract);
-            }
+    private void extractBitsFromImage(int totalBitsToExtract) {
+        if (totalBitsToExtract <= extractedBits.size()) {
+            return;
         }
+        BitArray grown = new BitArray(totalBitsToExtract);
+        grown.set(0, extractedBits);
+        extractedBits = grown;
+
+        int pixelsNeeded = (int) Math.min(EmbeddingLayout.pixelsFor(totalBitsToExtract), (long) width * height);
+        extractPixels(extractedPixels, pixelsNeeded - extractedPixels, extractedBits, extractedPixels * BITS_PER_PIXEL);
+        // the bits of a last pixel cut short by the end of the array are read again by the next call
+        extractedPixels = Math.min(pixelsNeeded, totalBitsToExtract / BITS_PER_PIXEL);
+    }
 
-        return extractedBits;
+    /**
+     * Extracts the bits of a run of consecutive pixels into a BitArray, reading the pixels in bulk.
+     * Bits that do not fit into the BitArray are dropped.
+     *
+     * @param firstPixel The index of the first pixel to read.
+     * @param pixelCount The number of pixels to read.
+     * @param bits The BitArray receiving the bits.
+     * @param bitIndex The index in the BitArray of the first bit of the first pixel.
+     */
+    private void extractPixels(int firstPixel, int pixelCount, BitArray bits, int bitIndex) {
+        int[] pixels = new int[Math.min(PIXELS_PER_READ, Math.max(0, pixelCount))];
+        for (int done = 0; done < pixelCount; done += pixels.length) {
+            int count = Math.min(pixels.length, pixelCount - done);
+            stegoImage.getPixels(firstPixel + done, pixels, 0, count);
+            unpackPixels(pixels, count, bits, bitIndex + done * BITS_PER_PIXEL);
+        }
     }
 
     /**
-     * Extracts bits from the given color components and adds them to the extractedBits array.
+     * Unpacks the embedded bits of consecutive pixels, gathering whole pixels into a word before writing it.
      *
-     * @param color             The pixel containing red, green, and blue color components.
-     * @param extractedBits      The BitArray to which the extracted bits will be added.
-     * @param extractedBitCount  The current count of extracted bits.
-     * @param totalBitsToExtract The total number of bits to be extracted.
-     * @return The updated count of extracted bits.
+     * @param pixels The packed ARGB pixels.
+     * @param count The number of pixels to unpack.
+     * @param bits The BitArray receiving the bits.
+     * @param bitIndex The index in the BitArray of the first bit of the first pixel.
      */
-    private int extractBitsFromColor(Color color, BitArray extractedBits, int extractedBitCount, int totalBitsToExtract) {
-        // Extracting bits from each color component, in the order red, green, blue
-        int[] colors = {(int) (color.getRed() * 255), (int) (color.getGreen() * 255), (int) (color.getBlue() * 255)};
-
-        for (int colorIndex = 0; colorIndex < ConstantsClass.BYTES_IN_PIXEL; colorIndex++) {
-            for (int bitIndex = 0; bitIndex < ConstantsClass.BITS_REPLACED_PER_BYTE; bitIndex++) {
-                boolean bit = (colors[colorIndex] & (1 << bitIndex)) != 0;
-                if (extractedBitCount < totalBitsToExtract) {
-                    extractedBits.set(extractedBitCount++, bit);
-                }
+    private static void unpackPixels(int[] pixels, int count, BitArray bits, int bitIndex) {
+        long word = 0;
+        int wordBits = 0;
+        for (int i = 0; i < count; i++) {
+            int argb = pixels[i];
+            long pixelBits = RED_GREEN_BITS[(argb >>> 8) & RED_GREEN_MASK]
+                    | (argb & EMBEDDED_BITS_MASK) << (2 * ConstantsClass.BITS_REPLACED_PER_BYTE);
+            word |= pixelBits << wordBits;
+            wordBits += BITS_PER_PIXEL;
+            if (wordBits + BITS_PER_PIXEL > Long.SIZE) {
+                bitIndex = flush(bits, bitIndex, wordBits, word);
+                word = 0;
+                wordBits = 0;
             }
         }
-        return extractedBitCount;
+        flush(bits, bitIndex, wordBits, word);
+    }
+
+    /**
+     * Writes gathered bits, the last pixel may hold fewer bits than it can.
+     */
+    private static int flush(BitArray bits, int bitIndex, int wordBits, long word) {
+        int length = Math.min(wordBits, bits.size() - bitIndex);
+        if (length > 0) {
+            bits.setLong(bitIndex, length, word);
+        }
+        return bitIndex + wordBits;
     }
 
     /**
-     * Extracts and deserializes the metadata from the image.
-     * The metadata size is determined based on the image dimensions and is
-     * used to extract the corresponding bits from the image, which are then
-     * deserialized to reconstruct the metadata.
+     * Extracts and deserializes the metadata from the image. The first pixels are read as a
+     * {@link CompactHeader}; if they do not hold a plausible one, they are read as legacy metadata,
+     * whose size is determined by the image dimensions.
      *
      * @return An {@link ImageMetadata} instance containing the extracted metadata.
      */
     public ImageMetadata extractMetadata() {
-        int metadataSize = calculateMetadataSize(); // Calculate the size of metadata based on image dimensions
-        BitArray metadataBits = extractBitsFromImage(metadataSize);
-        return MetadataSerializer.deserialize(metadataBits, (int) stegoImage.getWidth(), (int) stegoImage.getHeight());
+        extractBitsFromImage(Math.max(CompactHeader.MAX_SIZE_IN_BITS, legacyMetadataSize));
+        ImageMetadata metadata = CompactHeader.read(extractedBits, 0, width, height);
+        if (metadata != null && isPlausible(metadata)) {
+            return metadata;
+        }
+        return extractLegacyMetadata();
     }
 
     /**
-     * Calculates the size of the metadata based on the dimensions of the image.
+     * Extracts the metadata from the image in the legacy format, for a legacy image whose first bits happen
+     * to read as a compact header whose payload then fails its checksum.
      *
-     * @return The size of the metadata in bits.
+     * @return An {@link ImageMetadata} instance containing the extracted legacy metadata.
      */
-    private int calculateMetadataSize() {
-        return ImageMetadata.getSizeInBits((int)stegoImage.getWidth(), (int)stegoImage.getHeight());
+    public ImageMetadata extractLegacyMetadata() {
+        extractBitsFromImage(legacyMetadataSize);
+        return MetadataSerializer.deserialize(extractedBits, 0, width, height);
     }
 
     /**
-     * Extracts the data portion from the image. This method calculates
-     * the total number of bits to extract, which includes the metadata size, padding,
-     * and the actual data length specified in the metadata. The method then retrieves
-     * the data bits, starting immediately after the metadata and its padding.
+     * Checks whether the image holds data described by the given metadata, without reading the data.
+     * The metadata must describe data that fits into the image, with swaps and an offset the encoder could
+     * have chosen for it. For legacy metadata the signature must also be found right after the padded data,
+     * only the pixels of the signature are read, however long the data claims to be.
      *
-     * @param metadata The {@link ImageMetadata} instance containing metadata
-     *                 information, such as the length of the data to be extracted.
-     * @return A {@link BitArray} containing the extracted data.
+     * @param metadata The {@link ImageMetadata} extracted from the image.
+     * @return true if the image holds the data, false if it was not encoded by this algorithm or is damaged.
      */
-    public BitArray extractData(ImageMetadata metadata) {
-        int metaDataSize = calculateMetadataSize();
-        int metadataSizeWithPadding = metaDataSize + UtilsMethods.calculatePadding(metaDataSize);
-
-        // Calculate the total bits to extract, which  come from metadata
-        int totalBitsToExtract = calculateTotalBitsToExtract(metadata); // no signature
-        int signatureSize = ConstantsClass.ENCODING_PASSKEY.length() * ConstantsClass.BITS_PER_BYTE;
-
-        BitArray allBits = extractBitsFromImage(totalBitsToExtract + signatureSize);
-
-        // Extract just the data, starting after the metadata and its padding
-        int dataSize = metadata.getDataLength();  //the data size without padding
-        int paddedDataSize = dataSize + UtilsMethods.calculatePadding(dataSize);
-
-        // validate signature
-        BitArray signature = new BitArray(signatureSize);
+    public boolean hasValidSignature(ImageMetadata metadata) {
+        if (!isPlausible(metadata)) {
+            return false;
+        }
+        if (metadata.isCompact()) {
+            return true;
+        }
+        // within the image, checked by isPlausible
+        int signaturePixel = (int) signaturePixel(metadata.getDataLength());
+        if ((long) signaturePixel * BITS_PER_PIXEL + signature.size() <= extractedBits.size()) {
+            // already read along with the prefix
+            return extractedBits.rangeEquals(signaturePixel * BITS_PER_PIXEL, signature, 0, signature.size());
+        }
+        BitArray signatureBits = new BitArray(signature.size());
+        extractPixels(signaturePixel, EmbeddingLayout.pixelsFor(signature.size()), signatureBits, 0);
+        return signatureBits.rangeEquals(0, signature, 0, signature.size());
+    }
 
-        for (int i = 0; i < signatureSize; i++) {
-            boolean bit = allBits.get(metadataSizeWithPadding + paddedDataSize + i); // Start right after metadata and data and its padding
-            signature.set(i, bit);
+    /**
+     * Checks the fields of the metadata against the capacity of the image. The fields of a large image are
+     * wider than an int, the data must also fit into the single BitArray it is extracted into.
+     */
+    private boolean isPlausible(ImageMetadata metadata) {
+        long dataLength = metadata.getDataLength();
+        if (dataLength <= 0) {
+            return false;
         }
+        long dataEnd = dataStart(metadata) + dataLength;
+        long usedEnd = metadata.isCompact()
+                ? EmbeddingLayout.pixelsFor(dataEnd) * BITS_PER_PIXEL
+                : signaturePixel(dataLength) * BITS_PER_PIXEL + signature.size();
+        if (dataEnd > Integer.MAX_VALUE || usedEnd > UtilsMethods.maxDataSizeNoHeaderInBits(width, height)) {
+            return false;
+        }
+        // the encoder takes both modulo the number of swaps the data allows
+        long size = UtilsMethods.numberOfSwapsForData(dataLength);
+        long limit = Math.max(1, size);
+        return metadata.getNumberOfSwaps() < limit && metadata.getOffset() < limit;
+    }
 
-        if (!UtilsMethods.convertBitArrayToItsChars(signature).equals(ConstantsClass.ENCODING_PASSKEY)){
+    /**
+     * Extracts the data portion from the image. The metadata is checked first by
+     * {@link #hasValidSignature(ImageMetadata)}, then the pixels of the data are read after those of
+     * the header and only the data bits are copied out.
+     *
+     * @param metadata The {@link ImageMetadata} instance containing metadata
+     *                 information, such as the length of the data to be extracted.
+     * @return A {@link BitArray} containing the extracted data, or null if the image does not hold the data.
+     */
+    public BitArray extractData(ImageMetadata metadata) {
+        if (!hasValidSignature(metadata)) {
             return null;
         }
+        int dataSize = (int) metadata.getDataLength();  //the data size without padding, checked to fit a BitArray
+        int dataStart = (int) dataStart(metadata);
+        extractBitsFromImage(dataStart + dataSize);
 
         // get the data
         BitArray dataBits = new BitArray(dataSize);
-
-        for (int i = 0; i < dataSize; i++) {
-            boolean bit = allBits.get(metadataSizeWithPadding + i); // Start right after metadata and its padding
-            dataBits.set(i, bit);
-        }
+        dataBits.set(0, extractedBits, dataStart, dataSize); // Start right after metadata and its padding
 
         return dataBits;
     }
 
     /**
-     * Calculates the total number of bits to extract from the steganographic image,
-     * which includes the metadata, padding, and the actual data length.
-     *
-     * @param metadata The {@link ImageMetadata} used to determine the data length.
-     * @return The total number of bits to extract, accounting for metadata, data,
-     *         and their respective padding.
+     * @return The index of the first data bit, after the header and its padding.
      */
-    private int calculateTotalBitsToExtract(ImageMetadata metadata) {
-        return calculateMetadataSize() + UtilsMethods.calculatePadding(calculateMetadataSize()) +
-                metadata.getDataLength() + UtilsMethods.calculatePadding(metadata.getDataLength());
+    private long dataStart(ImageMetadata metadata) {
+        int headerSize = metadata.isCompact() ? metadata.getSizeInBits() : legacyMetadataSize;
+        return EmbeddingLayout.pixelsFor((long) headerSize) * BITS_PER_PIXEL;
+    }
+
+    private long signaturePixel(long dataLength) {
+        return EmbeddingLayout.pixelsFor((long) legacyMetadataSize) + EmbeddingLayout.pixelsFor(dataLength);
     }
-}
\ No newline at end of file
+}
@@ -2,8 +2,12 @@ package model.data_managers;
 
 import model.genetic_algorithm.population_structure.Chromosome;
 import model.genetic_algorithm.population_structure.Genes;
+import model.payload.PayloadBits;
 import model.utils.UtilsMethods;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Facilitates the manipulation of data intended for steganography embedding
  * within an image. This class provides methods for modifying a {@link BitArray}
@@ -12,8 +16,18 @@ import model.utils.UtilsMethods;
  * achieve a desired data arrangement for steganography.
  */
 public class DataManipulation {
+    private static final int PLAN_CACHE_SIZE = 256;
+
     private final BitArray data; // the data before the manipulation
 
+    // compiled plans of the most recently used (ns, off, dd) tuples
+    private final Map<Long, SwapPlan> plans = new LinkedHashMap<>(PLAN_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, SwapPlan> eldest) {
+            return size() > PLAN_CACHE_SIZE;
+        }
+    };
+
     /**
      * Constructs a DataManipulation instance with the provided data.
      *
@@ -38,6 +52,20 @@ public class DataManipulation {
      *         genetic instructions.
      */
     public BitArray modifyBitArray(Chromosome chromosome) {
+        BitArray modifiedArray = new BitArray(data.size());
+        modifyBitArray(chromosome, modifiedArray);
+        return modifiedArray;
+    }
+
+    /**
+     * Modifies the data according to a chromosome like {@link #modifyBitArray(Chromosome)}, writing the
+     * result into a reusable destination instead of a new BitArray.
+     *
+     * @param chromosome A Chromosome object representing the genetic sequence that dictates how the data manipulation
+     *                   should be carried out.
+     * @param destination The BitArray receiving the manipulated data, of the size of the data.
+     */
+    public void modifyBitArray(Chromosome chromosome, BitArray destination) {
 
         int size = UtilsMethods.numberOfSwapsForData(data.size());
         int ns = chromosome.getGene(Genes.NS).toInt() % size;
@@ -45,7 +73,7 @@ public class DataManipulation {
         int dd = chromosome.getGene(Genes.DD).toInt();
         int dp = chromosome.getGene(Genes.DP).toInt();
 
-        return modifyBitArray(ns, off, dd, dp);
+        modifyBitArray(ns, off, dd, dp, destination);
     }
 
     /**
@@ -61,18 +89,93 @@ public class DataManipulation {
      * @return A {@link BitArray} that has been rearranged according to the specified manipulation parameters.
      */
     public BitArray modifyBitArray(int ns, int off,  int dd,  int dp) {
+        BitArray modifiedArray = new BitArray(data.size());
+        modifyBitArray(ns, off, dd, dp, modifiedArray);
+        return modifiedArray;
+    }
 
-        int len = data.size();
-        int mid = len / 2;
-        BitArray modifiedArray = data.clone();
+    /**
+     * Modifies the data like {@link #modifyBitArray(int, int, int, int)}, writing the result into a
+     * reusable destination instead of a new BitArray.
+     *
+     * @param ns The number of swaps to perform within the array.
+     * @param off The offset at which swapping begins in the second half of the array.
+     * @param dd The direction of data manipulation (0 for left-to-right, 1 for right-to-left).
+     * @param dp The data polarity determining how bits are complemented during swapping.
+     * @param destination The BitArray receiving the manipulated data, of the size of the data.
+     */
+    public void modifyBitArray(int ns, int off, int dd, int dp, BitArray destination) {
+        if (!fitsPlan(ns, off)) {
+            destination.copyFrom(data);
+            swapOneByOne(destination, ns, off, dd, dp);
+            return;
+        }
+        getPlan(ns, off, dd).apply(data, destination, dp);
+    }
+
+    /**
+     * Restores the original data from data manipulated with the given parameters, reversing both the
+     * swaps and the complementing of the data polarity. The data of this instance is the manipulated data.
+     *
+     * @param ns The number of swaps the data was manipulated with.
+     * @param off The offset the data was manipulated with.
+     * @param dd The direction the data was manipulated with.
+     * @param dp The data polarity the data was manipulated with.
+     * @return A new {@link BitArray} holding the original data.
+     */
+    public BitArray restoreBitArray(int ns, int off, int dd, int dp) {
+        BitArray original = new BitArray(data.size());
+        if (!fitsPlan(ns, off)) {
+            // swaps performed one by one may overlap, so they are undone in reverse order
+            original.copyFrom(data);
+            int mid = data.size() / 2;
+            for (int i = ns - 1; i >= 0; i--) {
+                swapBits(original, i % mid, calculateSecondIndex(mid, off, i, dd, data.size()), (dp >> 1) | ((dp & 1) << 1));
+            }
+            return original;
+        }
+        getPlan(ns, off, dd).applyInverse(data, original, dp);
+        return original;
+    }
+
+    /**
+     * Returns the compiled plan of a (ns, off, dd) tuple, compiling it on first use.
+     *
+     * @param ns The number of swaps, smaller than half the data size.
+     * @param off The offset, smaller than half the data size.
+     * @param dd The direction of data manipulation.
+     * @return The plan of the tuple.
+     */
+    public SwapPlan getPlan(int ns, int off, int dd) {
+        long key = ((long) ns << 32) | ((long) off << 1) | dd;
+        SwapPlan plan = plans.get(key);
+        if (plan == null) {
+            plan = SwapPlan.compile(data.size(), ns, off, dd);
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Plans cover the values produced by the chromosomes, reduced modulo half the data size. Larger values
+     * wrap the swaps around the first half, so they can only be performed one by one.
+     */
+    private boolean fitsPlan(int ns, int off) {
+        int mid = data.size() / 2;
+        return ns == 0 || (ns < mid && off < mid && off >= 0);
+    }
 
+    /**
+     * Performs the swaps one by one, for parameters no plan covers.
+     */
+    private void swapOneByOne(BitArray bitArray, int ns, int off, int dd, int dp) {
+        int len = bitArray.size();
+        int mid = len / 2;
         for (int i = 0; i < ns; i++) {
             int firstIndex = i % mid;
             int secondIndex = calculateSecondIndex(mid, off, i, dd, len);
-            swapBits(modifiedArray, firstIndex, secondIndex, dp);
+            swapBits(bitArray, firstIndex, secondIndex, dp);
         }
-
-        return modifiedArray;
     }
 
     /**
@@ -124,16 +227,14 @@ public class DataManipulation {
 
     public static void main(String[] args) {
 
-        StringParser stringParser = new StringParser("hello");
-        BitArray bitArray = stringParser.convertToBitArray();
+        BitArray bitArray = PayloadBits.fromText("hello");
         DataManipulation dataManipulation = new DataManipulation(bitArray);
 
         Chromosome chromosome = new Chromosome(0, 15, 8, 1, 3);
         BitArray modifiedArray = dataManipulation.modifyBitArray(chromosome);
 
         DataManipulation dataManipulation1 = new DataManipulation(modifiedArray);
-        Chromosome chromosome1 = new Chromosome(0, 15, 8, 1, 3);
-        BitArray back = dataManipulation1.modifyBitArray(chromosome1);
+        BitArray back = dataManipulation1.restoreBitArray(15, 8, 1, 3);
 
         System.out.println("Original Array: " + bitArray);
         System.out.println("Modified Array: " + modifiedArray);
@@ -0,0 +1,111 @@
+package model.data_managers;
+
+import model.data_managers.image_metedate.CompactHeader;
+import model.utils.ConstantsClass;
+
+/**
+ * The layout of an embedding for one cover image and one data length. The header and the data are each
+ * padded to whole pixels, and the header is a {@link CompactHeader} whose size depends only on the data
+ * length, so where every section starts and how wide every header field is depends only on the data length,
+ * not on the chromosome. This class computes all of it once per job, so an evaluation only has to write the
+ * header and data pixels of its candidate.
+ */
+public class EmbeddingLayout {
+    private static final int BITS_PER_PIXEL = ConstantsClass.BITS_REPLACED_PER_BYTE * ConstantsClass.BYTES_IN_PIXEL;
+
+    private final int width;
+    private final int height;
+    private final int dataLength;
+
+    private final int dataPixel;
+    private final int totalPixels;
+
+    // reused by every candidate, a layout belongs to one job
+    private final BitArray header;
+
+    /**
+     * Computes the layout of embedding data of a given length into a cover.
+     *
+     * @param width The width of the cover in pixels.
+     * @param height The height of the cover in pixels.
+     * @param dataLength The length of the data in bits.
+     */
+    public EmbeddingLayout(int width, int height, int dataLength) {
+        this.width = width;
+        this.height = height;
+        this.dataLength = dataLength;
+
+        header = new BitArray(CompactHeader.getSizeInBits(dataLength));
+        dataPixel = pixelsFor(header.size());
+        totalPixels = dataPixel + pixelsFor(dataLength);
+    }
+
+    /**
+     * Returns the number of pixels that hold a section of the given number of bits, including its padding.
+     *
+     * @param bits The number of bits of the section.
+     * @return The number of pixels.
+     */
+    public static int pixelsFor(int bits) {
+        return (int) pixelsFor((long) bits);
+    }
+
+    /**
+     * Returns the number of pixels that hold a section of the given number of bits, like {@link #pixelsFor(int)},
+     * for a length read from metadata.
+     *
+     * @param bits The number of bits of the section.
+     * @return The number of pixels.
+     */
+    public static long pixelsFor(long bits) {
+        return (bits + BITS_PER_PIXEL - 1) / BITS_PER_PIXEL;
+    }
+
+    /**
+     * Writes the header of a candidate into the reused header bits, in the format of {@link CompactHeader}.
+     *
+     * @param numberOfSwaps The number of swaps.
+     * @param offset The offset.
+     * @param dataDirection The data direction.
+     * @param dataPolarity The data polarity.
+     * @param checksum The checksum of the payload.
+     * @return The header bits, overwritten by the next call.
+     */
+    public BitArray writeHeader(long numberOfSwaps, long offset, int dataDirection, int dataPolarity, int checksum) {
+        CompactHeader.write(header, dataLength, numberOfSwaps, offset, dataDirection, dataPolarity, checksum);
+        return header;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getDataLength() {
+        return dataLength;
+    }
+
+    /**
+     * @return The number of header bits, without padding.
+     */
+    public int getMetadataBits() {
+        return header.size();
+    }
+
+    /**
+     * @return The index of the first pixel of the data.
+     */
+    public int getDataPixel() {
+        return dataPixel;
+    }
+
+    /**
+     * @return The number of pixels holding the header and the data.
+     */
+    public int getTotalPixels() {
+        return totalPixels;
+    }
+}
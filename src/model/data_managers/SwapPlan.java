@@ -0,0 +1,139 @@
+package model.data_managers;
+
+/**
+ * A compiled form of the swaps performed by {@link DataManipulation} for one number of swaps, offset and
+ * data direction. Swap {@code i} exchanges bit {@code i} of the first half of the data with one bit of the
+ * second half, and the second bits of consecutive swaps are consecutive too, forwards or backwards, apart
+ * from a single wrap around. All the swaps of a plan therefore form at most two exchanges between a range
+ * of the first half and a range of the second half, which are applied with word-level copies.
+ * <p>
+ * The data polarity does not change the permutation, it only complements the swapped bits. It is applied
+ * as ranged flips after the permutation, so one plan serves all four polarities and also gives the exact
+ * inverse used to restore the original data when decoding.
+ */
+public class SwapPlan {
+    private final int length;
+
+    // the exchanged ranges: [firstStarts[k], +lengths[k]) with [secondStarts[k], +lengths[k])
+    private final int[] firstStarts;
+    private final int[] secondStarts;
+    private final int[] lengths;
+    private final boolean reversed;
+    private final int numberOfSwaps;
+
+    private SwapPlan(int length, int[] firstStarts, int[] secondStarts, int[] lengths, boolean reversed, int numberOfSwaps) {
+        this.length = length;
+        this.firstStarts = firstStarts;
+        this.secondStarts = secondStarts;
+        this.lengths = lengths;
+        this.reversed = reversed;
+        this.numberOfSwaps = numberOfSwaps;
+    }
+
+    /**
+     * Compiles the swaps for data of a given length.
+     *
+     * @param length The length of the data in bits.
+     * @param ns The number of swaps, smaller than half the length.
+     * @param off The offset of the swaps in the second half, smaller than half the length.
+     * @param dd The data direction (0 for left-to-right, 1 for right-to-left).
+     * @return The compiled plan.
+     * @throws IllegalArgumentException if the number of swaps or the offset is out of range.
+     */
+    public static SwapPlan compile(int length, int ns, int off, int dd) {
+        int mid = length / 2;
+        if (ns < 0 || off < 0 || (ns > 0 && (ns >= mid || off >= mid))) {
+            throw new IllegalArgumentException("Invalid swaps " + ns + " with offset " + off + " for data of length " + length);
+        }
+
+        // the swaps up to the wrap around of the second index, then the rest
+        int beforeWrap = Math.min(ns, mid - off);
+        int afterWrap = ns - beforeWrap;
+        int pieces = afterWrap > 0 ? 2 : beforeWrap > 0 ? 1 : 0;
+
+        int[] firstStarts = new int[pieces];
+        int[] secondStarts = new int[pieces];
+        int[] lengths = new int[pieces];
+        if (pieces > 0) {
+            firstStarts[0] = 0;
+            lengths[0] = beforeWrap;
+            // forwards from mid + off, or backwards from length - 1 - off
+            secondStarts[0] = dd == 0 ? mid + off : length - off - beforeWrap;
+        }
+        if (pieces > 1) {
+            firstStarts[1] = beforeWrap;
+            lengths[1] = afterWrap;
+            secondStarts[1] = dd == 0 ? mid : length - afterWrap;
+        }
+        return new SwapPlan(length, firstStarts, secondStarts, lengths, dd != 0, ns);
+    }
+
+    /**
+     * Applies the swaps to data, writing the manipulated data into a destination without allocating.
+     * This gives the same result as {@link DataManipulation#modifyBitArray(int, int, int, int)}.
+     *
+     * @param source The data to manipulate, left unchanged.
+     * @param destination The BitArray receiving the manipulated data.
+     * @param dp The data polarity, bit 1 complements the bits moved into the first half,
+     *           bit 2 the bits moved into the second half.
+     * @throws IllegalArgumentException if the sizes do not match the plan or the arrays are the same.
+     */
+    public void apply(BitArray source, BitArray destination, int dp) {
+        permute(source, destination);
+        complement(destination, (dp & 1) != 0, (dp & 2) != 0);
+    }
+
+    /**
+     * Restores the original data from data manipulated by this plan with the same polarity, writing it into a
+     * destination without allocating. Every swap is its own inverse, only the complements move with the bits.
+     *
+     * @param manipulated The manipulated data, left unchanged.
+     * @param destination The BitArray receiving the original data.
+     * @param dp The data polarity the data was manipulated with.
+     * @throws IllegalArgumentException if the sizes do not match the plan or the arrays are the same.
+     */
+    public void applyInverse(BitArray manipulated, BitArray destination, int dp) {
+        permute(manipulated, destination);
+        complement(destination, (dp & 2) != 0, (dp & 1) != 0);
+    }
+
+    /**
+     * @return The number of swaps of the plan.
+     */
+    public int getNumberOfSwaps() {
+        return numberOfSwaps;
+    }
+
+    private void permute(BitArray source, BitArray destination) {
+        if (source.size() != length || destination.size() != length) {
+            throw new IllegalArgumentException("The plan is for data of length " + length);
+        }
+        if (source == destination) {
+            throw new IllegalArgumentException("The plan cannot be applied in place");
+        }
+        destination.copyFrom(source);
+        for (int k = 0; k < lengths.length; k++) {
+            if (reversed) {
+                destination.setReversed(firstStarts[k], source, secondStarts[k], lengths[k]);
+                destination.setReversed(secondStarts[k], source, firstStarts[k], lengths[k]);
+            } else {
+                destination.set(firstStarts[k], source, secondStarts[k], lengths[k]);
+                destination.set(secondStarts[k], source, firstStarts[k], lengths[k]);
+            }
+        }
+    }
+
+    /**
+     * Complements the bits that moved into the first half and into the second half.
+     */
+    private void complement(BitArray data, boolean firstHalf, boolean secondHalf) {
+        for (int k = 0; k < lengths.length; k++) {
+            if (firstHalf) {
+                data.flip(firstStarts[k], lengths[k]);
+            }
+            if (secondHalf) {
+                data.flip(secondStarts[k], lengths[k]);
+            }
+        }
+    }
+}
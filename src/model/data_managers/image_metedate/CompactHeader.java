@@ -0,0 +1,216 @@
+package model.data_managers.image_metedate;
+
+import model.data_managers.BitArray;
+import model.utils.ConstantsClass;
+import model.utils.UtilsMethods;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32C;
+
+/**
+ * The versioned header of images encoded since version 2, which replaces the metadata sized for the
+ * capacity of the image and the passkey signature after the data. It starts at the first pixel, so an
+ * image is recognized from its first pixels without reading the data:
+ * <pre>
+ * magic (16 bits) | version (4) | data length (varint) | number of swaps | offset | direction (1) | polarity (2) | CRC32C (32)
+ * </pre>
+ * Every field is written most significant bit first, like the fields of {@link MetadataSerializer}. The
+ * data length is a varint of 7 bit groups, the lowest group first, each led by a bit telling whether
+ * another group follows. The number of swaps and the offset are below half the data length, so their
+ * width follows from the data length: the size of the header depends only on the data length, never on
+ * the chromosome, and the layout of an embedding can still be computed once per job.
+ * <p>
+ * The checksum is the CRC32C of the version, the data length and the payload before its manipulation.
+ * The number of swaps, the offset, the direction and the polarity are covered through the payload: a
+ * damaged one restores a different payload, which fails the checksum.
+ */
+public class CompactHeader {
+
+    /**
+     * The version of the format written by this class, images without its magic are read as the format
+     * of {@link MetadataSerializer}.
+     */
+    public static final int VERSION = 2;
+
+    private static final int MAGIC = 0x5347; // "SG"
+    private static final int MAGIC_BITS = 16;
+    private static final int VERSION_BITS = 4;
+    private static final int VARINT_GROUP_BITS = 7;
+    private static final int MAX_VARINT_GROUPS = 5; // enough for any int
+    private static final int DATA_DIRECTION_BITS = UtilsMethods.bitsNeeded(ConstantsClass.DATA_DIRECTION_SIZE);
+    private static final int DATA_POLARITY_BITS = UtilsMethods.bitsNeeded(ConstantsClass.DATA_POLARITY_SIZE);
+    private static final int CHECKSUM_BITS = Integer.SIZE;
+    private static final int CHECKSUM_BUFFER_SIZE = 8192;
+
+    /**
+     * The largest size of a header in bits, the header of the longest data a BitArray holds.
+     */
+    public static final int MAX_SIZE_IN_BITS = getSizeInBits(Integer.MAX_VALUE);
+
+    private CompactHeader() {
+    }
+
+    /**
+     * Calculates the size of the header of data of a given length.
+     *
+     * @param dataLength The length of the data in bits.
+     * @return The size of the header in bits.
+     */
+    public static int getSizeInBits(long dataLength) {
+        int groups = Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(dataLength) + VARINT_GROUP_BITS - 1) / VARINT_GROUP_BITS);
+        return MAGIC_BITS + VERSION_BITS + groups * (VARINT_GROUP_BITS + 1) + 2 * getParameterBits(dataLength)
+                + DATA_DIRECTION_BITS + DATA_POLARITY_BITS + CHECKSUM_BITS;
+    }
+
+    /**
+     * Calculates the width of the number of swaps and of the offset for data of a given length.
+     *
+     * @param dataLength The length of the data in bits.
+     * @return The width of each field in bits.
+     */
+    public static int getParameterBits(long dataLength) {
+        return UtilsMethods.bitsNeeded(Math.max(0, UtilsMethods.numberOfSwapsForData(dataLength) - 1));
+    }
+
+    /**
+     * Writes a header into the first bits of a BitArray, without allocating.
+     *
+     * @param destination The bits receiving the header, at least {@link #getSizeInBits(long)} long.
+     * @param dataLength The length of the data in bits.
+     * @param numberOfSwaps The number of swaps.
+     * @param offset The offset.
+     * @param dataDirection The data direction.
+     * @param dataPolarity The data polarity.
+     * @param checksum The checksum of the payload, from {@link #checksum(BitArray)}.
+     * @return The size of the header in bits.
+     * @throws IllegalArgumentException if a value does not fit into its field.
+     */
+    public static int write(BitArray destination, long dataLength, long numberOfSwaps, long offset, int dataDirection,
+                            int dataPolarity, int checksum) {
+        if (dataLength < 0 || dataLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Data of " + dataLength + " bits does not fit into a header");
+        }
+        int parameterBits = getParameterBits(dataLength);
+        int index = writeField(destination, 0, MAGIC_BITS, MAGIC);
+        index = writeField(destination, index, VERSION_BITS, VERSION);
+        long remaining = dataLength;
+        do {
+            long group = remaining & ((1 << VARINT_GROUP_BITS) - 1);
+            remaining >>>= VARINT_GROUP_BITS;
+            index = writeField(destination, index, 1, remaining != 0 ? 1 : 0);
+            index = writeField(destination, index, VARINT_GROUP_BITS, group);
+        } while (remaining != 0);
+        index = writeField(destination, index, parameterBits, numberOfSwaps);
+        index = writeField(destination, index, parameterBits, offset);
+        index = writeField(destination, index, DATA_DIRECTION_BITS, dataDirection);
+        index = writeField(destination, index, DATA_POLARITY_BITS, dataPolarity);
+        return writeField(destination, index, CHECKSUM_BITS, Integer.toUnsignedLong(checksum));
+    }
+
+    /**
+     * Serializes the metadata of an embedding into a new BitArray.
+     *
+     * @param metadata The metadata, with its checksum.
+     * @return The header bits.
+     */
+    public static BitArray serialize(ImageMetadata metadata) {
+        BitArray bits = new BitArray(getSizeInBits(metadata.getDataLength()));
+        write(bits, metadata.getDataLength(), metadata.getNumberOfSwaps(), metadata.getOffset(),
+                metadata.getDataDirection(), metadata.getDataPolarity(), metadata.getChecksum());
+        return bits;
+    }
+
+    /**
+     * Reads a header from the bits extracted from an image.
+     *
+     * @param bits The extracted bits, at least {@link #MAX_SIZE_IN_BITS} after the start.
+     * @param startIndex The index of the first bit of the header.
+     * @param imageWidth The width of the image in pixels.
+     * @param imageHeight The height of the image in pixels.
+     * @return The metadata, or null if the bits do not start with the magic and version of this format.
+     * @throws IllegalArgumentException if fewer than {@link #MAX_SIZE_IN_BITS} bits follow the start.
+     */
+    public static ImageMetadata read(BitArray bits, int startIndex, int imageWidth, int imageHeight) {
+        if (bits.size() - startIndex < MAX_SIZE_IN_BITS) {
+            throw new IllegalArgumentException("A header is read from " + MAX_SIZE_IN_BITS + " bits, only " + (bits.size() - startIndex) + " were given");
+        }
+        int index = startIndex;
+        if (readField(bits, index, MAGIC_BITS) != MAGIC || readField(bits, index + MAGIC_BITS, VERSION_BITS) != VERSION) {
+            return null;
+        }
+        index += MAGIC_BITS + VERSION_BITS;
+
+        long dataLength = 0;
+        boolean more = true;
+        for (int group = 0; more; group++) {
+            if (group == MAX_VARINT_GROUPS) {
+                return null;
+            }
+            more = readField(bits, index, 1) != 0;
+            dataLength |= readField(bits, index + 1, VARINT_GROUP_BITS) << (group * VARINT_GROUP_BITS);
+            index += VARINT_GROUP_BITS + 1;
+        }
+        if (dataLength > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        int parameterBits = getParameterBits(dataLength);
+        long numberOfSwaps = readField(bits, index, parameterBits);
+        index += parameterBits;
+        long offset = readField(bits, index, parameterBits);
+        index += parameterBits;
+        int dataDirection = (int) readField(bits, index, DATA_DIRECTION_BITS);
+        index += DATA_DIRECTION_BITS;
+        int dataPolarity = (int) readField(bits, index, DATA_POLARITY_BITS);
+        index += DATA_POLARITY_BITS;
+        int checksum = (int) readField(bits, index, CHECKSUM_BITS);
+        return new ImageMetadata(dataLength, numberOfSwaps, offset, dataDirection, dataPolarity, checksum, imageWidth, imageHeight);
+    }
+
+    /**
+     * Computes the checksum of a payload: the CRC32C of the version, the length of the payload and its
+     * bits, 8 bits to a byte with the first bit lowest. CRC32C is computed with the CRC32 instruction of
+     * the processor where there is one.
+     *
+     * @param payload The payload before its manipulation.
+     * @return The checksum.
+     */
+    public static int checksum(BitArray payload) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(CHECKSUM_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) VERSION);
+        buffer.putLong(payload.size());
+        for (int bitIndex = 0; bitIndex < payload.size(); bitIndex += Long.SIZE) {
+            int length = Math.min(Long.SIZE, payload.size() - bitIndex);
+            long word = payload.getLong(bitIndex, length);
+            if (buffer.remaining() < Long.BYTES) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+            if (length == Long.SIZE) {
+                buffer.putLong(word);
+            } else {
+                for (int bit = 0; bit < length; bit += ConstantsClass.BITS_PER_BYTE) {
+                    buffer.put((byte) (word >>> bit));
+                }
+            }
+        }
+        buffer.flip();
+        crc.update(buffer);
+        return (int) crc.getValue();
+    }
+
+    private static int writeField(BitArray destination, int index, int bits, long value) {
+        if (value < 0 || (bits < Long.SIZE && value >>> bits != 0)) {
+            throw new IllegalArgumentException("Value " + value + " does not fit into a header field of " + bits + " bits");
+        }
+        destination.setLong(index, bits, Long.reverse(value) >>> (Long.SIZE - bits));
+        return index + bits;
+    }
+
+    private static long readField(BitArray bits, int index, int size) {
+        return Long.reverse(bits.getLong(index, size)) >>> (Long.SIZE - size);
+    }
+}
@@ -11,29 +11,60 @@ import java.util.*;
  * Encapsulates metadata information about an image used for steganography. This
  * includes details required for embedding data into the image, such as data length,
  * number of swaps, offset, data direction, data polarity, and the image dimensions.
+ * The data length, the number of swaps and the offset are longs, since the fields that hold them
+ * in the header of a large image are wider than an int.
+ * <p>
+ * Metadata is either of the {@link CompactHeader} written by the encoder, with the checksum of the
+ * payload, or of the legacy format of {@link MetadataSerializer} read from older images.
  */
-public class ImageMetadata implements Iterable<Map.Entry<Integer, Integer>>{
-    private final int dataLength;
-    private final int numberOfSwaps;
-    private final int offset;
+public class ImageMetadata implements Iterable<Map.Entry<Long, Long>>{
+    private final long dataLength;
+    private final long numberOfSwaps;
+    private final long offset;
     private final int dataDirection;
     private final int dataPolarity;
     private final int imageWidth;
     private final int imageHeight;
+    private final int checksum;
+    private final boolean compact;
 
+    /**
+     * Constructs an ImageMetadata object with specified parameters, of the legacy format.
+     *
+     * @param dataLength The length of the data to be embedded.
+     * @param numberOfSwaps The number of swaps to perform on the data.
+     * @param offset The offset for starting the swapping in the data array.
+     * @param dataDirection The direction for data manipulation (0 for left-to-right, 1 for right-to-left).
+     * @param dataPolarity The data polarity, determining bit complementing behavior.
+     * @param imageWidth The width of the image in pixels.
+     * @param imageHeight The height of the image in pixels.
+     */
+    public ImageMetadata(long dataLength, long numberOfSwaps, long offset, int dataDirection, int dataPolarity, int imageWidth, int imageHeight) {
+        this.dataLength = dataLength;
+        this.numberOfSwaps = numberOfSwaps;
+        this.offset = offset;
+        this.dataDirection = dataDirection;
+        this.dataPolarity = dataPolarity;
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.checksum = 0;
+        this.compact = false;
+    }
 
     /**
-     * Constructs an ImageMetadata object with specified parameters.
+     * Constructs an ImageMetadata object of a {@link CompactHeader}, with the checksum of the payload.
      *
      * @param dataLength The length of the data to be embedded.
      * @param numberOfSwaps The number of swaps to perform on the data.
      * @param offset The offset for starting the swapping in the data array.
      * @param dataDirection The direction for data manipulation (0 for left-to-right, 1 for right-to-left).
      * @param dataPolarity The data polarity, determining bit complementing behavior.
+     * @param checksum The checksum of the payload, from {@link CompactHeader#checksum}.
      * @param imageWidth The width of the image in pixels.
      * @param imageHeight The height of the image in pixels.
      */
-    public ImageMetadata(int dataLength, int numberOfSwaps, int offset, int dataDirection, int dataPolarity, int imageWidth, int imageHeight) {
+    public ImageMetadata(long dataLength, long numberOfSwaps, long offset, int dataDirection, int dataPolarity, int checksum,
+                         int imageWidth, int imageHeight) {
         this.dataLength = dataLength;
         this.numberOfSwaps = numberOfSwaps;
         this.offset = offset;
@@ -41,17 +72,20 @@ public class ImageMetadata implements Iterable<Map.Entry<Integer, Integer>>{
         this.dataPolarity = dataPolarity;
         this.imageWidth = imageWidth;
         this.imageHeight = imageHeight;
+        this.checksum = checksum;
+        this.compact = true;
     }
 
     /**
-     * Constructs an ImageMetadata object from a Chromosome and image dimensions.
+     * Constructs an ImageMetadata object of a {@link CompactHeader} from a Chromosome and image dimensions.
      *
      * @param chromosome The Chromosome containing the genetic information for embedding.
      * @param dataLength The length of the data to be embedded.
+     * @param checksum The checksum of the payload, from {@link CompactHeader#checksum}.
      * @param imageWidth The width of the image in pixels.
      * @param imageHeight The height of the image in pixels.
      */
-    public ImageMetadata(Chromosome chromosome, int dataLength, int imageWidth, int imageHeight  ){
+    public ImageMetadata(Chromosome chromosome, int dataLength, int checksum, int imageWidth, int imageHeight  ){
         this.dataLength = dataLength;
 
         int size = UtilsMethods.numberOfSwapsForData(dataLength);
@@ -62,17 +96,19 @@ public class ImageMetadata implements Iterable<Map.Entry<Integer, Integer>>{
         this.dataPolarity =  chromosome.getGene(Genes.DP).toInt();
         this.imageWidth = imageWidth;
         this.imageHeight = imageHeight;
+        this.checksum = checksum;
+        this.compact = true;
     }
 
-    public int getDataLength() {
+    public long getDataLength() {
         return dataLength;
     }
 
-    public int getNumberOfSwaps() {
+    public long getNumberOfSwaps() {
         return numberOfSwaps;
     }
 
-    public int getOffset() {
+    public long getOffset() {
         return offset;
     }
 
@@ -93,7 +129,21 @@ public class ImageMetadata implements Iterable<Map.Entry<Integer, Integer>>{
     }
 
     /**
-     * Calculates the total number of bits required to store this metadata based on
+     * @return The checksum of the payload, 0 for legacy metadata.
+     */
+    public int getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return true if the metadata is of a {@link CompactHeader}, false if of the legacy format.
+     */
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Calculates the total number of bits required to store legacy metadata based on
      * the image dimensions. This calculation is critical for both embedding and
      * extracting processes to correctly allocate or retrieve the metadata from
      * the steganographic image.
@@ -115,6 +165,9 @@ public class ImageMetadata implements Iterable<Map.Entry<Integer, Integer>>{
      * @return The size of the metadata in bits.
      */
     public int getSizeInBits(){
+        if (compact) {
+            return CompactHeader.getSizeInBits(dataLength);
+        }
         return UtilsMethods.bitsNeeded(UtilsMethods.maxDataSizeNoHeaderInBits(imageWidth, imageHeight)) +
                 2 * UtilsMethods.bitsNeeded(UtilsMethods.maxNumberOfSwapsAndOffsetSize(imageWidth, imageHeight)) +
                 UtilsMethods.bitsNeeded(ConstantsClass.DATA_POLARITY_SIZE) +
@@ -129,13 +182,13 @@ public class ImageMetadata implements Iterable<Map.Entry<Integer, Integer>>{
      * @return An iterator over the metadata entries.
      */
     @Override
-    public Iterator<Map.Entry<Integer, Integer>> iterator() {
-        List<Map.Entry<Integer, Integer>> parameters = Arrays.asList(
+    public Iterator<Map.Entry<Long, Long>> iterator() {
+        List<Map.Entry<Long, Long>> parameters = Arrays.asList(
                 new AbstractMap.SimpleEntry<>(dataLength, UtilsMethods.maxDataSizeNoHeaderInBits(imageWidth, imageHeight)),
                 new AbstractMap.SimpleEntry<>(numberOfSwaps, UtilsMethods.maxNumberOfSwapsAndOffsetSize(imageWidth, imageHeight)),
                 new AbstractMap.SimpleEntry<>(offset, UtilsMethods.maxNumberOfSwapsAndOffsetSize(imageWidth, imageHeight)),
-                new AbstractMap.SimpleEntry<>(dataDirection, ConstantsClass.DATA_DIRECTION_SIZE),
-                new AbstractMap.SimpleEntry<>(dataPolarity, ConstantsClass.DATA_POLARITY_SIZE)
+                new AbstractMap.SimpleEntry<>((long) dataDirection, (long) ConstantsClass.DATA_DIRECTION_SIZE),
+                new AbstractMap.SimpleEntry<>((long) dataPolarity, (long) ConstantsClass.DATA_POLARITY_SIZE)
         );
         return parameters.iterator();
     }
@@ -10,21 +10,24 @@ import java.util.Map;
  * Provides functionality for serializing and deserializing {@link ImageMetadata}
  * into a {@link BitArray}. This allows metadata to be embedded into an image for
  * steganographic purposes and later extracted for data retrieval.
+ * <p>
+ * This is the legacy format, sized for the capacity of the image and followed by the passkey signature
+ * after the data. The encoder writes a {@link CompactHeader}, images of this format are still decoded.
  */
 public class MetadataSerializer {
 
     /**
-     * Serializes the given {@link ImageMetadata} into a {@link BitArray}.
+     * Serializes the given {@link ImageMetadata} into a {@link BitArray}, in the legacy format.
      *
      * @param metadata The image metadata to be serialized.
      * @return A {@link BitArray} containing the serialized metadata.
      */
     public static BitArray serialize(ImageMetadata metadata){
-        BitArray bitArray = new BitArray(metadata.getSizeInBits());
+        BitArray bitArray = new BitArray(ImageMetadata.getSizeInBits(metadata.getImageWidth(), metadata.getImageHeight()));
 
         int offset = 0;
 
-        for (Map.Entry<Integer, Integer> entry : metadata){
+        for (Map.Entry<Long, Long> entry : metadata){
             int len = UtilsMethods.bitsNeeded(entry.getValue());
             insetToBitArray(entry.getKey(), offset, len, bitArray);
             offset += len;
@@ -41,57 +44,79 @@ public class MetadataSerializer {
      * @return An {@link ImageMetadata} object constructed from the provided bit array.
      */
     public static ImageMetadata deserialize(BitArray bitArray, int imageWidth, int imageHeight){
-        int offset = 0;
-        int totalSize = bitArray.size();
+        return deserialize(bitArray, 0, bitArray.size(), imageWidth, imageHeight);
+    }
+
+    /**
+     * Deserializes the metadata of an image directly from a larger {@link BitArray}, such as all the bits
+     * extracted from an image, without copying it out first.
+     *
+     * @param bitArray The bit array holding the serialized image metadata.
+     * @param startIndex The index of the first bit of the metadata.
+     * @param imageWidth The width of the image for which the metadata is intended.
+     * @param imageHeight The height of the image for which the metadata is intended.
+     * @return An {@link ImageMetadata} object constructed from the provided bits.
+     */
+    public static ImageMetadata deserialize(BitArray bitArray, int startIndex, int imageWidth, int imageHeight){
+        return deserialize(bitArray, startIndex, ImageMetadata.getSizeInBits(imageWidth, imageHeight), imageWidth, imageHeight);
+    }
+
+    private static ImageMetadata deserialize(BitArray bitArray, int startIndex, int totalSize, int imageWidth, int imageHeight){
+        int offset = startIndex;
 
         int dd_size = UtilsMethods.bitsNeeded(ConstantsClass.DATA_DIRECTION_SIZE);
         int dp_size = UtilsMethods.bitsNeeded(ConstantsClass.DATA_POLARITY_SIZE);
         int ns_off_size = (totalSize - dd_size - dp_size - 1) / 3;
         int data_size =  ns_off_size + 1;
 
-        int dataLength = retrieveFromBitArray(bitArray, offset, data_size);
+        long dataLength = retrieveFromBitArray(bitArray, offset, data_size);
         offset += data_size;
 
-        int numberOfSwaps = retrieveFromBitArray(bitArray, offset, ns_off_size);
+        long numberOfSwaps = retrieveFromBitArray(bitArray, offset, ns_off_size);
         offset += ns_off_size;
 
-        int offsetValue = retrieveFromBitArray(bitArray, offset, ns_off_size);
+        long offsetValue = retrieveFromBitArray(bitArray, offset, ns_off_size);
         offset += ns_off_size;
 
-        int dataDirection = retrieveFromBitArray(bitArray, offset, dd_size);
+        int dataDirection = (int) retrieveFromBitArray(bitArray, offset, dd_size);
         offset += dd_size;
 
-        int dataPolarity = retrieveFromBitArray(bitArray, offset, dp_size);
+        int dataPolarity = (int) retrieveFromBitArray(bitArray, offset, dp_size);
 
         return new ImageMetadata(dataLength, numberOfSwaps, offsetValue, dataDirection, dataPolarity, imageWidth, imageHeight);
 
     }
 
     /**
-     * returns the int representation of the value in the bitarray in a range
+     * returns the long representation of the value in the bitarray in a range
      * @param bitArray given bitarray
      * @param startingPos starting pos to read from
-     * @param size size of the data to read
-     * @return the int representation of the value between this range
+     * @param size size of the data to read, at most 64 bits
+     * @return the long representation of the value between this range
      */
-    private static int retrieveFromBitArray(BitArray bitArray, int startingPos, int size){
-        BitArray temp = bitArray.get(startingPos, size);
-        return temp.toInt();
+    private static long retrieveFromBitArray(BitArray bitArray, int startingPos, int size){
+        if (size == 0) {
+            return 0;
+        }
+        // the first bit is the most significant, the same as BitArray.toInt
+        return Long.reverse(bitArray.getLong(startingPos, size)) >>> (Long.SIZE - size);
     }
 
     /**
      * Inserts a value into the provided {@link BitArray} at the specified starting index.
+     * The value is written most significant bit first, right-aligned in its field.
      *
-     * @param valueToInsert The integer value to be inserted into the bit array.
+     * @param valueToInsert The non-negative value to be inserted into the bit array.
      * @param startingIndex The starting index in the bit array where the value begins.
-     * @param len The length in bits of the value to insert.
+     * @param len The length in bits of the value to insert, at most 64.
      * @param bitArray The {@link BitArray} into which the value is inserted.
+     * @throws IllegalArgumentException if the value does not fit into the field.
      */
-    private static void insetToBitArray(int valueToInsert, int startingIndex, int len, BitArray bitArray){
-        BitArray temp;
-        temp = new BitArray(UtilsMethods.bitsNeeded(valueToInsert));
-        temp.modifyBitArrayByNumber(valueToInsert);
-        bitArray.set(startingIndex + len - temp.size(), temp);
+    private static void insetToBitArray(long valueToInsert, int startingIndex, int len, BitArray bitArray){
+        if (valueToInsert < 0 || UtilsMethods.bitsNeeded(valueToInsert) > len) {
+            throw new IllegalArgumentException("Value " + valueToInsert + " does not fit into a metadata field of " + len + " bits");
+        }
+        bitArray.setLong(startingIndex, len, Long.reverse(valueToInsert) >>> (Long.SIZE - len));
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,60 @@
+package model.genetic_algorithm;
+
+import model.genetic_algorithm.crossover.CrossoverType;
+import model.image.ArgbImage;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Verifies that the breeding loop of the {@link GeneticAlgorithm} allocates nothing once it is running.
+ * For every crossover strategy the population is evaluated once, the breeding step is warmed up, and the
+ * bytes allocated by the current thread during further breeding steps are counted, which must be zero.
+ * Exits with status 1 if any strategy allocates.
+ */
+public class BreedingAllocationCheck {
+    private static final int WARM_UP_GENERATIONS = 20_000;
+    private static final int MEASURED_GENERATIONS = 10_000;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Random random = new Random(7);
+
+        ArgbImage cover = new ArgbImage(16, 16);
+        int[] pixels = cover.getPixels();
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+
+        boolean allocationFree = true;
+        for (CrossoverType type : CrossoverType.values()) {
+            GeneticAlgorithmConfig config = new GeneticAlgorithmConfig();
+            config.setCrossoverType(type);
+            config.setVerbose(false);
+            config.setMutationRate(1);
+
+            GeneticAlgorithm geneticAlgorithm = new GeneticAlgorithm(cover, "allocation", config);
+            geneticAlgorithm.evaluatePopulationFitness();
+
+            int elitismSize = (int) (config.getPopulationSize() * config.getElitismPercentage());
+            int selectionSize = config.getPopulationSize() - elitismSize;
+
+            for (int i = 0; i < WARM_UP_GENERATIONS; i++) {
+                geneticAlgorithm.breedNextGeneration(elitismSize, selectionSize);
+            }
+
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < MEASURED_GENERATIONS; i++) {
+                geneticAlgorithm.breedNextGeneration(elitismSize, selectionSize);
+            }
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+            System.out.printf("%-10s %d bytes allocated in %d generations%n", type, allocated, MEASURED_GENERATIONS);
+            allocationFree &= allocated == 0;
+        }
+
+        if (!allocationFree) {
+            System.exit(1);
+        }
+    }
+}
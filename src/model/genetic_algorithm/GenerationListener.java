@@ -0,0 +1,29 @@
+package model.genetic_algorithm;
+
+import model.genetic_algorithm.population_structure.PopulationDiversity;
+
+/**
+ * Receives progress notifications from the {@link GeneticAlgorithm} once per generation.
+ * This keeps the algorithm itself unaware of how (or whether) progress is displayed.
+ */
+@FunctionalInterface
+public interface GenerationListener {
+
+    /**
+     * Called after the population of a generation has been evaluated.
+     *
+     * @param generation The generation number, starting from 1.
+     * @param bestFitness The fitness score of the fittest chromosome in this generation.
+     */
+    void onGeneration(int generation, double bestFitness);
+
+    /**
+     * Called after the population of a generation has been evaluated, with its diversity metrics.
+     * Does nothing unless overridden.
+     *
+     * @param generation The generation number, starting from 1.
+     * @param diversity The diversity metrics of the evaluated population.
+     */
+    default void onDiversity(int generation, PopulationDiversity diversity) {
+    }
+}
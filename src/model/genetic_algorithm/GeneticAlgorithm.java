@@ -1,26 +1,35 @@
 package model.genetic_algorithm;
 
-import javafx.scene.image.Image;
 import model.data_managers.BitArray;
 import model.data_managers.DataEmbedding;
 import model.data_managers.DataManipulation;
-import model.data_managers.StringParser;
+import model.data_managers.image_metedate.CompactHeader;
 import model.data_managers.image_metedate.ImageMetadata;
 import model.genetic_algorithm.crossover.CrossoverStrategy;
-import model.genetic_algorithm.crossover.MultiPointCrossoverGeneSplit;
 import model.genetic_algorithm.fitness.FitnessFunction;
 import model.genetic_algorithm.fitness.PSNRFitnessFunction;
+import model.genetic_algorithm.local_search.LocalSearch;
+import model.genetic_algorithm.local_search.SwapDeltaEvaluator;
 import model.genetic_algorithm.population_structure.Chromosome;
+import model.genetic_algorithm.population_structure.DuplicatePolicy;
+import model.genetic_algorithm.population_structure.GenomeSet;
+import model.genetic_algorithm.population_structure.PopulationDiversity;
 import model.genetic_algorithm.population_structure.populations.PopulationImplementation;
 import model.genetic_algorithm.population_structure.populations.PriorityQueuePopulation;
 import model.genetic_algorithm.selection.ElitismSelection;
 import model.genetic_algorithm.selection.RouletteWheelSelection;
 import model.genetic_algorithm.selection.SelectionStrategy;
+import model.image.ArgbImage;
+import model.image.PreparedCover;
+import model.image.StegoOverlay;
+import model.payload.PayloadBits;
+import model.payload.PayloadSource;
 import model.utils.ConstantsClass;
-import model.utils.UtilsMethods;
-import view.DynamicGraph;
+import model.utils.RandomProvider;
 
-import java.util.List;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class implements a genetic algorithm for optimizing the embedding of secret data into an image
@@ -39,22 +48,22 @@ import java.util.List;
  */
 public class GeneticAlgorithm {
 
+    // The random genomes tried for an immigrant before a duplicate one is kept
+    private static final int MAX_IMMIGRANT_ATTEMPTS = 8;
+
     // Fields defining the parameters of the genetic algorithm
     private final int GENERATIONS;
     private final int POPULATION_SIZE;
     private final double MUTATION_RATE;
     private final double CROSSOVER_RATE;
     private final double ELITISM_PERCENTAGE;
+    private final double TARGET_FITNESS;
 
-    {
-        GENERATIONS = 15;
-        POPULATION_SIZE = 20;
-        MUTATION_RATE = 0.1;
-        CROSSOVER_RATE = 0.9;
-        ELITISM_PERCENTAGE = 0.1;
-    }
+    private final GeneticAlgorithmConfig config;
+    private int generationsRun;
 
-    private final Image originalImage;
+    private final ArgbImage originalImage;
+    private final StegoOverlay candidateImage;
     private final DataManipulation dataManipulation;
     private final DataEmbedding dataEmbedding;
     private final PopulationImplementation population;
@@ -63,21 +72,113 @@ public class GeneticAlgorithm {
     private final SelectionStrategy elitismSelection;
     private final CrossoverStrategy crossover;
     private final BitArray secretDataBitArray;
+    private final int payloadChecksum;
+    private final BitArray manipulatedBuffer;
+
+    // The two generation buffers: the population refers to the chromosomes of currentGeneration
+    // while the offspring are written into the slots of nextGeneration, then the roles swap
+    private Chromosome[] currentGeneration;
+    private Chromosome[] nextGeneration;
+    private final Chromosome[] selectedBuffer;
+
+    // Duplicate detection and diversity metrics, reused every generation
+    private final GenomeSet genomeSet;
+    private final long[] packedGenomes;
+    private final int[] representatives;
+    private final int genomeWords;
+    private final PopulationDiversity diversity = new PopulationDiversity(0, 0, 0);
+    private PopulationDiversity lastDiversity;
+    private long evaluations;
+
+    // Optional memetic stage, null when disabled
+    private final LocalSearch localSearch;
+    private long localSearchImprovements;
 
     /**
-     * Constructs a GeneticAlgorithm instance for a given image and secret data.
+     * Constructs a GeneticAlgorithm instance for a given image and secret data, using the default parameters.
      *
      * @param originalImage The image into which the secret data is to be embedded.
      * @param secretData The secret data to be embedded into the image.
      */
-    public GeneticAlgorithm(Image originalImage, String secretData){
+    public GeneticAlgorithm(ArgbImage originalImage, String secretData){
+        this(originalImage, secretData, new GeneticAlgorithmConfig());
+    }
+
+    /**
+     * Constructs a GeneticAlgorithm instance for a given image and secret text, embedded as UTF-8.
+     *
+     * @param originalImage The image into which the secret data is to be embedded.
+     * @param secretData The secret data to be embedded into the image.
+     * @param config The parameters of the algorithm.
+     */
+    public GeneticAlgorithm(ArgbImage originalImage, String secretData, GeneticAlgorithmConfig config){
+        this(originalImage, PayloadBits.fromText(secretData), config);
+    }
+
+    /**
+     * Constructs a GeneticAlgorithm instance for a given image and a secret payload of any bytes.
+     * The payload is read once, here.
+     *
+     * @param originalImage The image into which the secret data is to be embedded.
+     * @param secretData The secret data to be embedded into the image.
+     * @param config The parameters of the algorithm.
+     * @throws IOException if the payload cannot be read.
+     */
+    public GeneticAlgorithm(ArgbImage originalImage, PayloadSource secretData, GeneticAlgorithmConfig config) throws IOException {
+        this(originalImage, secretData.toBitArray(), config);
+    }
+
+    /**
+     * Constructs a GeneticAlgorithm instance for a prepared cover and a secret payload of any bytes.
+     * The payload is read once, here.
+     *
+     * @param cover The decoded cover into which the secret data is to be embedded, never changed.
+     * @param secretData The secret data to be embedded into the image.
+     * @param config The parameters of the algorithm.
+     * @throws IOException if the payload cannot be read.
+     */
+    public GeneticAlgorithm(PreparedCover cover, PayloadSource secretData, GeneticAlgorithmConfig config) throws IOException {
+        this(cover, secretData.toBitArray(), config);
+    }
+
+    /**
+     * Constructs a GeneticAlgorithm instance for a prepared cover and the bits of the secret data. The
+     * cover is not decoded again, so a cover prepared once, for instance by a
+     * {@link model.image.CoverCache}, serves any number of instances.
+     *
+     * @param cover The decoded cover into which the secret data is to be embedded, never changed.
+     * @param secretData The bits to be embedded into the image, used without copying.
+     * @param config The parameters of the algorithm.
+     */
+    public GeneticAlgorithm(PreparedCover cover, BitArray secretData, GeneticAlgorithmConfig config){
+        this(cover.getImage(), secretData, config);
+    }
+
+    /**
+     * Constructs a GeneticAlgorithm instance for a given image and the bits of the secret data.
+     *
+     * @param originalImage The image into which the secret data is to be embedded, never changed.
+     * @param secretData The bits to be embedded into the image, used without copying.
+     * @param config The parameters of the algorithm.
+     */
+    public GeneticAlgorithm(ArgbImage originalImage, BitArray secretData, GeneticAlgorithmConfig config){
+        this.config = config;
+        GENERATIONS = config.getGenerations();
+        POPULATION_SIZE = config.getPopulationSize();
+        MUTATION_RATE = config.getMutationRate();
+        CROSSOVER_RATE = config.getCrossoverRate();
+        ELITISM_PERCENTAGE = config.getElitismPercentage();
+        TARGET_FITNESS = config.getTargetFitness();
+
         this.originalImage = originalImage;
 
-        StringParser parser = new StringParser(secretData);
-        this.secretDataBitArray = parser.convertToBitArray();
+        this.secretDataBitArray = secretData;
+        this.payloadChecksum = CompactHeader.checksum(secretDataBitArray);
 
         dataManipulation = new DataManipulation(secretDataBitArray);
-        dataEmbedding = new DataEmbedding(originalImage);
+        manipulatedBuffer = new BitArray(secretDataBitArray.size());
+        dataEmbedding = new DataEmbedding(this.originalImage);
+        candidateImage = dataEmbedding.createOverlay(secretDataBitArray.size());
 
         population = new PriorityQueuePopulation(POPULATION_SIZE);
 
@@ -87,9 +188,27 @@ public class GeneticAlgorithm {
 
         elitismSelection = new ElitismSelection();
 
-        crossover = new MultiPointCrossoverGeneSplit();
+        crossover = config.getCrossoverType().create(config.getCrossoverPoints());
+
+        population.initializeChromosomes(secretDataBitArray.size());
 
-        population.initializeChromosomes(secretData.length() * ConstantsClass.BITS_PER_BYTE);
+        currentGeneration = population.getPopulation().clone();
+        nextGeneration = new Chromosome[currentGeneration.length];
+        for (int i = 0; i < nextGeneration.length; i++) {
+            nextGeneration[i] = new Chromosome(currentGeneration[i]);
+        }
+        selectedBuffer = new Chromosome[currentGeneration.length];
+
+        int genomeSize = currentGeneration[0].getGenes().size();
+        genomeWords = GenomeSet.wordsFor(genomeSize);
+        genomeSet = new GenomeSet(currentGeneration.length, genomeSize);
+        packedGenomes = new long[currentGeneration.length * genomeWords];
+        representatives = new int[currentGeneration.length];
+
+        localSearch = config.getLocalSearchCount() > 0
+                ? new LocalSearch(new SwapDeltaEvaluator(this.originalImage, secretDataBitArray), secretDataBitArray.size(),
+                        config.getLocalSearchStepExponent(), config.getLocalSearchRounds())
+                : null;
     }
 
     /**
@@ -99,125 +218,281 @@ public class GeneticAlgorithm {
      *
      * @return The image with the secret data optimally embedded.
      */
-    public Image run(){
+    public ArgbImage run(){
         int elitismSize = (int) (population.getPopulationSize() * ELITISM_PERCENTAGE);
         int selectionSize = population.getPopulationSize() - elitismSize;
 
+        long start = System.nanoTime();
+        long timeLimit = TimeUnit.MILLISECONDS.toNanos(config.getTimeLimitMillis());
+
+        generationsRun = 0;
         for (int i = 1; i <= GENERATIONS; i++) {
-            System.out.println("generation "+ i+" population Size " + population.getPopulationSize());
+            if (config.isVerbose())
+                System.out.println("generation "+ i+" population Size " + population.getPopulationSize());
 
             // Evaluate fitness of the current generation
             evaluatePopulationFitness();
- 
-            System.out.println("the Fittest in this generation is " + population.viewFittest());
-
-            // Update the dynamic graph with the fitness score of the fittest chromosome
-            DynamicGraph.updateSeries(i, population.viewFittest().getFitnessScore());
-
+            if (localSearch != null)
+                improveFittestChromosomes(Math.min(config.getLocalSearchCount(), population.getPopulationSize()));
+            generationsRun = i;
 
-            // Selection
-            // Elitism
-            Chromosome[] elitismSelected = elitismSelection.selectNextGeneration(population, elitismSize);
-            // selected for crossover
-            Chromosome[] selectedForCrossover = selection.selectNextGeneration(population, selectionSize);
+            if (config.isVerbose())
+                System.out.println("the Fittest in this generation is " + population.viewFittest() + lastDiversity);
 
+            // Report the fitness score of the fittest chromosome (drawn on a graph by the UI)
+            if (config.getGenerationListener() != null) {
+                config.getGenerationListener().onGeneration(i, population.viewFittest().getFitnessScore());
+                config.getGenerationListener().onDiversity(i, lastDiversity);
+            }
 
-            // Crossover
-            Chromosome[] afterCrossover = performCrossover(selectedForCrossover);
+            // Stop early once the target fitness is reached, the last evaluation already found the fittest
+            if (population.viewFittest().getFitnessScore() >= TARGET_FITNESS)
+                break;
 
-            // Mutation
-            performMutation(afterCrossover);
+            // Stop once another generation, as long as the average one so far, would exceed the time limit
+            long elapsed = System.nanoTime() - start;
+            if (timeLimit > 0 && elapsed + elapsed / i > timeLimit)
+                break;
 
-            // New population
-            Chromosome[] newPopulation = UtilsMethods.combineArrays(Chromosome.class, elitismSelected, afterCrossover);
 
-            population.setPopulation(newPopulation);
+            breedNextGeneration(elitismSize, selectionSize);
         }
-        // fittest Chromosome
+        // the fittest chromosome gives the only full image of the run
         Chromosome fittestChromosome = population.viewFittest();
-        return embedIntoTheImage(fittestChromosome);
+        embedIntoTheImage(fittestChromosome);
+        return candidateImage.materialize();
+    }
+
+    /**
+     * Breeds the next generation into the slots of the next generation buffer and makes it the population.
+     * The elite chromosomes are copied into the first slots, the offspring of the selected chromosomes
+     * overwrite the remaining slots, and the two buffers swap roles. Chromosome slots are reused from
+     * generation to generation, so once running this allocates nothing.
+     *
+     * @param elitismSize The number of elite chromosomes carried over unchanged.
+     * @param selectionSize The number of chromosomes selected for crossover.
+     */
+    void breedNextGeneration(int elitismSize, int selectionSize) {
+        // Selection
+        // Elitism
+        elitismSelection.selectNextGeneration(population, selectedBuffer, elitismSize);
+        for (int i = 0; i < elitismSize; i++) {
+            nextGeneration[i].copyFrom(selectedBuffer[i]);
+        }
+
+        // selected for crossover
+        selection.selectNextGeneration(population, selectedBuffer, selectionSize);
+
+        // Crossover
+        performCrossover(selectedBuffer, selectionSize, elitismSize);
+
+        // Mutation
+        performMutation(elitismSize, selectionSize);
+
+        // New population
+        population.setPopulation(nextGeneration);
+
+        Chromosome[] temp = currentGeneration;
+        currentGeneration = nextGeneration;
+        nextGeneration = temp;
+    }
+
+    /**
+     * Returns the number of generations evaluated by the last call to {@link #run()}, which is
+     * smaller than the configured amount when the target fitness was reached early or the time limit ran out.
+     *
+     * @return The number of evaluated generations.
+     */
+    public int getGenerationsRun() {
+        return generationsRun;
+    }
+
+    /**
+     * Returns the fittest chromosome of the current population.
+     *
+     * @return The fittest chromosome.
+     */
+    public Chromosome getFittestChromosome() {
+        return population.viewFittest();
     }
 
     /**
      * Embeds the manipulated secret data into the original image based on a given chromosome.
      * The chromosome dictates how the data manipulation is to be performed before embedding.
+     * The result is written into the candidate overlay, which only holds the pixels that differ
+     * from the original image and is overwritten by the next candidate.
      *
      * @param chromosome The chromosome encoding the data manipulation strategy.
-     * @return An image with the secret data embedded according to the chromosome's strategy.
      */
-    private Image embedIntoTheImage(Chromosome chromosome){
-        BitArray manipulated = dataManipulation.modifyBitArray(chromosome);
+    private void embedIntoTheImage(Chromosome chromosome){
+        // the buffer is reused by every candidate, the embedding does not keep it
+        dataManipulation.modifyBitArray(chromosome, manipulatedBuffer);
 
-        ImageMetadata metadata = new ImageMetadata(chromosome, secretDataBitArray.size(),
-                (int) originalImage.getWidth(), (int) originalImage.getHeight());
+        ImageMetadata metadata = new ImageMetadata(chromosome, secretDataBitArray.size(), payloadChecksum,
+                originalImage.getWidth(), originalImage.getHeight());
 
         // Embed data into the image
-        return dataEmbedding.embedData(manipulated, metadata);
+        dataEmbedding.embedCandidate(manipulatedBuffer, metadata, candidateImage);
     }
 
     /**
-     * Performs mutation on a set of chromosomes after crossover. Each chromosome has a chance
-     * equal to the mutation rate of undergoing a mutation, which alters its genes randomly.
+     * Performs mutation on the offspring written into the next generation buffer. Each chromosome has a chance
+     * equal to the mutation rate of undergoing a mutation, which alters its genes randomly,
+     * either with the per-gene bit probabilities or with the per-genome bit probability.
      *
-     * @param afterCrossover The array of chromosomes to be potentially mutated.
+     * @param offset The index of the first offspring in the next generation buffer.
+     * @param amount The number of offspring to be potentially mutated.
      */
-    private void performMutation(Chromosome[] afterCrossover) {
-        for (Chromosome chromosome : afterCrossover){
-            if (Math.random() <= MUTATION_RATE){
-                chromosome.mutateChromosome();
+    private void performMutation(int offset, int amount) {
+        SplittableRandom random = RandomProvider.current();
+        for (int i = offset; i < offset + amount; i++){
+            Chromosome chromosome = nextGeneration[i];
+            if (random.nextDouble() <= MUTATION_RATE){
+                if (config.getGeneMutationProbabilities() != null)
+                    chromosome.mutateChromosome(config.getGeneMutationProbabilities());
+                else
+                    chromosome.mutateChromosome(config.getBitMutationProbability());
             }
         }
     }
 
     /**
      * Performs crossover on a set of selected chromosomes to produce offspring. The method pairs
-     * chromosomes and applies a crossover strategy to each pair, generating new chromosomes (offspring).
+     * chromosomes and applies a crossover strategy to each pair, writing the offspring into the
+     * slots of the next generation buffer. Pairs that are not crossed over are copied unchanged.
      * Mixing genetic material between pairs of chromosomes according to the crossover strategy.
      *
      * @param selectedForCrossover The array of chromosomes selected for crossover.
-     * @return An array of chromosomes resulting from the crossover process.
+     * @param amount The number of selected chromosomes.
+     * @param offset The index of the first offspring slot in the next generation buffer.
      */
-    private Chromosome[] performCrossover(Chromosome[] selectedForCrossover) {
-        Chromosome[] offsprings = new Chromosome[selectedForCrossover.length];
-        int arrIndex = 0;
+    private void performCrossover(Chromosome[] selectedForCrossover, int amount, int offset) {
+        SplittableRandom random = RandomProvider.current();
 
         // Pair up selected chromosomes for crossover. pairs them sequentially.
-        for (int i = 0; i < selectedForCrossover.length - 1; i += 2) {
+        for (int i = 0; i < amount - 1; i += 2) {
             Chromosome parent1 = selectedForCrossover[i];
             Chromosome parent2 = selectedForCrossover[i + 1];
+            Chromosome offspring1 = nextGeneration[offset + i];
+            Chromosome offspring2 = nextGeneration[offset + i + 1];
 
-            if(Math.random() <= CROSSOVER_RATE){
+            if(random.nextDouble() <= CROSSOVER_RATE){
                 // Apply crossover strategy to generate two offspring
-                List<Chromosome> children = crossover.crossover(parent1, parent2);
-
-                offsprings[arrIndex++] = (children.get(0));
-                offsprings[arrIndex++] = (children.get(1));
+                crossover.crossover(parent1, parent2, offspring1, offspring2);
             }
             else {
-                offsprings[arrIndex++] = (parent1);
-                offsprings[arrIndex++] = (parent2);
+                offspring1.copyFrom(parent1);
+                offspring2.copyFrom(parent2);
             }
-
         }
-        if(offsprings[selectedForCrossover.length-1] == null){
-            offsprings[selectedForCrossover.length-1] = selectedForCrossover[selectedForCrossover.length / 2];
+        if (amount % 2 != 0){
+            nextGeneration[offset + amount - 1].copyFrom(selectedForCrossover[amount / 2]);
         }
-
-        return offsprings;
     }
 
     /**
      * Evaluates the fitness of each chromosome in the population. This method updates each chromosome's
      * fitness score based on how well it meets the objective of embedding secret data into an image.
      */
-    private void evaluatePopulationFitness(){
-        // finding the best fitness value for each chromosome
-        for (Chromosome chromosome : population.getPopulation())
-            findBestFitnessForChromosome(chromosome);
+    void evaluatePopulationFitness(){
+        Chromosome[] chromosomes = population.getPopulation();
+        int populationSize = population.getPopulationSize();
+
+        // Pack the genomes once, they serve both the duplicate detection and the diversity metrics
+        genomeSet.clear();
+        for (int i = 0; i < populationSize; i++) {
+            GenomeSet.pack(chromosomes[i].getGenes(), packedGenomes, i * genomeWords);
+            representatives[i] = genomeSet.putIfAbsent(packedGenomes, i * genomeWords, i);
+        }
+        diversity.update(packedGenomes, populationSize, genomeWords, genomeSet.size(), chromosomes[0].getGenes().size());
+        lastDiversity = diversity;
+
+        // finding the best fitness value for each chromosome, duplicates are evaluated only once
+        for (int i = 0; i < populationSize; i++) {
+            Chromosome chromosome = chromosomes[i];
+            int representative = representatives[i];
+
+            if (representative < 0 || config.getDuplicatePolicy() == DuplicatePolicy.EVALUATE) {
+                findBestFitnessForChromosome(chromosome);
+            }
+            else if (config.getDuplicatePolicy() == DuplicatePolicy.SHARE_SCORE) {
+                // the representative comes first, so it is already evaluated
+                chromosome.shareEvaluation(chromosomes[representative]);
+            }
+            else {
+                immigrate(chromosome, i);
+                findBestFitnessForChromosome(chromosome);
+            }
+        }
 
         population.updateStructure();
     }
 
+    /**
+     * Replaces a duplicate by a random immigrant whose genome is not yet in the generation, trying a few
+     * random genomes before keeping the last one. The immigrant joins the set of genomes, so two immigrants
+     * are never identical either.
+     *
+     * @param chromosome The duplicate chromosome, reinitialized in place.
+     * @param index The index of the chromosome, whose packed genome is overwritten.
+     */
+    private void immigrate(Chromosome chromosome, int index) {
+        for (int attempt = 0; attempt < MAX_IMMIGRANT_ATTEMPTS; attempt++) {
+            chromosome.initiateChromosome();
+            GenomeSet.pack(chromosome.getGenes(), packedGenomes, index * genomeWords);
+            if (genomeSet.putIfAbsent(packedGenomes, index * genomeWords, index) < 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Applies the local search to the fittest chromosomes of the evaluated population. The chromosomes
+     * are taken out of the population, improved in place and inserted back, the same way the elitism
+     * selection views the fittest chromosomes.
+     *
+     * @param amount The number of fittest chromosomes to improve.
+     */
+    void improveFittestChromosomes(int amount) {
+        for (int i = 0; i < amount; i++) {
+            selectedBuffer[i] = population.popHighest();
+        }
+        for (int i = 0; i < amount; i++) {
+            if (localSearch.improve(selectedBuffer[i]))
+                localSearchImprovements++;
+            population.insert(selectedBuffer[i]);
+        }
+    }
+
+    /**
+     * Returns the number of chromosomes improved by the local search so far.
+     *
+     * @return The number of improved chromosomes.
+     */
+    public long getLocalSearchImprovements() {
+        return localSearchImprovements;
+    }
+
+    /**
+     * Returns the diversity metrics of the most recently evaluated generation, measured before
+     * duplicates were replaced.
+     *
+     * @return The diversity metrics, or null before the first evaluation.
+     */
+    public PopulationDiversity getLastDiversity() {
+        return lastDiversity;
+    }
+
+    /**
+     * Returns the number of candidate images evaluated so far. Every evaluated chromosome costs
+     * one evaluation per value of the flexible gene, duplicates whose score is shared cost none.
+     *
+     * @return The number of fitness evaluations.
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
     /**
      * Finds and sets the best flexible gene value for a given chromosome based on fitness evaluation.
      * This method iterates through all possible combinations of the flexible gene, selects the one
@@ -231,14 +506,14 @@ public class GeneticAlgorithm {
         int bestFlexibleGeneValue = -1;
         double bestFitness = -1;
         double fitness = 0;
-        Image modifiedImage;
         
         for (int i = 0; i < ConstantsClass.POSSIBLE_COMBINATIONS_AMOUNT_FOR_FLEXIBLE_GENE ; i++) {
             chromosome.setIndexesForGenes(i);
 
-            modifiedImage = embedIntoTheImage(chromosome);
+            embedIntoTheImage(chromosome);
 
-            fitness = fitnessFunction.calculateFitness(originalImage, modifiedImage);
+            fitness = fitnessFunction.calculateFitness(originalImage, candidateImage);
+            evaluations++;
 
             if (fitness > bestFitness){
                 bestFitness = fitness;
@@ -246,6 +521,6 @@ public class GeneticAlgorithm {
             }
         }
         chromosome.setIndexesForGenes(bestFlexibleGeneValue);
-        chromosome.setFitnessScore(fitness);
+        chromosome.setFitnessScore(bestFitness);
     }
 }
@@ -0,0 +1,203 @@
+package model.genetic_algorithm;
+
+import model.genetic_algorithm.crossover.CrossoverType;
+import model.genetic_algorithm.population_structure.Chromosome;
+import model.genetic_algorithm.population_structure.DuplicatePolicy;
+import model.genetic_algorithm.population_structure.Genes;
+
+import java.util.Map;
+
+/**
+ * Holds the tunable parameters of the {@link GeneticAlgorithm}. A new instance contains the
+ * default values the algorithm has always used, so only the parameters that should differ
+ * need to be set.
+ */
+public class GeneticAlgorithmConfig {
+    private int generations = 15;
+    private int populationSize = 20;
+    private double mutationRate = 0.1;
+    private double bitMutationProbability = Chromosome.MUTATION_PROBABILITY;
+    private Map<Genes, Double> geneMutationProbabilities;
+    private double crossoverRate = 0.9;
+    private double elitismPercentage = 0.1;
+    private CrossoverType crossoverType = CrossoverType.GENE_SPLIT;
+    private int crossoverPoints = 2;
+    private double targetFitness = Double.POSITIVE_INFINITY;
+    private long timeLimitMillis = 0;
+    private DuplicatePolicy duplicatePolicy = DuplicatePolicy.SHARE_SCORE;
+    private int localSearchCount = 0;
+    private int localSearchStepExponent = 4;
+    private int localSearchRounds = 8;
+    private boolean verbose = true;
+    private GenerationListener generationListener;
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    public void setGenerations(int generations) {
+        this.generations = generations;
+    }
+
+    public int getPopulationSize() {
+        return populationSize;
+    }
+
+    public void setPopulationSize(int populationSize) {
+        this.populationSize = populationSize;
+    }
+
+    public double getMutationRate() {
+        return mutationRate;
+    }
+
+    public void setMutationRate(double mutationRate) {
+        this.mutationRate = mutationRate;
+    }
+
+    /**
+     * @return The probability of flipping each gene bit of a chromosome selected for mutation.
+     */
+    public double getBitMutationProbability() {
+        return bitMutationProbability;
+    }
+
+    public void setBitMutationProbability(double bitMutationProbability) {
+        this.bitMutationProbability = bitMutationProbability;
+    }
+
+    /**
+     * @return The probability of flipping each bit per gene, or null to use the per-genome probability.
+     */
+    public Map<Genes, Double> getGeneMutationProbabilities() {
+        return geneMutationProbabilities;
+    }
+
+    public void setGeneMutationProbabilities(Map<Genes, Double> geneMutationProbabilities) {
+        this.geneMutationProbabilities = geneMutationProbabilities;
+    }
+
+    public double getCrossoverRate() {
+        return crossoverRate;
+    }
+
+    public void setCrossoverRate(double crossoverRate) {
+        this.crossoverRate = crossoverRate;
+    }
+
+    public double getElitismPercentage() {
+        return elitismPercentage;
+    }
+
+    public void setElitismPercentage(double elitismPercentage) {
+        this.elitismPercentage = elitismPercentage;
+    }
+
+    public CrossoverType getCrossoverType() {
+        return crossoverType;
+    }
+
+    public void setCrossoverType(CrossoverType crossoverType) {
+        this.crossoverType = crossoverType;
+    }
+
+    /**
+     * @return The number of cut points used by {@link CrossoverType#K_POINT}.
+     */
+    public int getCrossoverPoints() {
+        return crossoverPoints;
+    }
+
+    public void setCrossoverPoints(int crossoverPoints) {
+        this.crossoverPoints = crossoverPoints;
+    }
+
+    /**
+     * @return The fitness at which the algorithm stops early, positive infinity to always run all generations.
+     */
+    public double getTargetFitness() {
+        return targetFitness;
+    }
+
+    public void setTargetFitness(double targetFitness) {
+        this.targetFitness = targetFitness;
+    }
+
+    /**
+     * @return The time a run may take in milliseconds, 0 for no limit. A run stops before a generation that
+     *         would not end in time, the first generation is always evaluated.
+     */
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    public void setTimeLimitMillis(long timeLimitMillis) {
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * @return What happens to chromosomes whose genes duplicate another chromosome of the same generation.
+     */
+    public DuplicatePolicy getDuplicatePolicy() {
+        return duplicatePolicy;
+    }
+
+    public void setDuplicatePolicy(DuplicatePolicy duplicatePolicy) {
+        this.duplicatePolicy = duplicatePolicy;
+    }
+
+    /**
+     * @return The number of fittest chromosomes improved by local search every generation, 0 to disable it.
+     */
+    public int getLocalSearchCount() {
+        return localSearchCount;
+    }
+
+    public void setLocalSearchCount(int localSearchCount) {
+        this.localSearchCount = localSearchCount;
+    }
+
+    /**
+     * @return The exponent of the largest local search step, steps of 1, 2, ... up to 2^exponent are tried.
+     */
+    public int getLocalSearchStepExponent() {
+        return localSearchStepExponent;
+    }
+
+    public void setLocalSearchStepExponent(int localSearchStepExponent) {
+        this.localSearchStepExponent = localSearchStepExponent;
+    }
+
+    /**
+     * @return The maximal number of local search rounds per chromosome.
+     */
+    public int getLocalSearchRounds() {
+        return localSearchRounds;
+    }
+
+    public void setLocalSearchRounds(int localSearchRounds) {
+        this.localSearchRounds = localSearchRounds;
+    }
+
+    /**
+     * @return Whether the algorithm prints its progress to the standard output.
+     */
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * @return The listener notified after every generation, or null for none.
+     */
+    public GenerationListener getGenerationListener() {
+        return generationListener;
+    }
+
+    public void setGenerationListener(GenerationListener generationListener) {
+        this.generationListener = generationListener;
+    }
+}
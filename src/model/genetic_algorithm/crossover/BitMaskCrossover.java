@@ -0,0 +1,111 @@
+package model.genetic_algorithm.crossover;
+
+import model.data_managers.BitArray;
+import model.genetic_algorithm.population_structure.Chromosome;
+import model.genetic_algorithm.population_structure.Genes;
+import model.utils.RandomProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Base class for crossover strategies that mix the parents bit by bit according to a mask.
+ * The mask is a sequence of random 64-bit words generated once per pair of parents; a set bit
+ * means that the first offspring takes the bit from the second parent (and the second offspring
+ * from the first parent), a clear bit means each offspring keeps the bit of its own parent.
+ * The mask is laid over the genes in their natural order (NS, OFF, DD, DP), so the same mask
+ * position always refers to the same gene bit, regardless of the gene order of each parent.
+ * The mask buffer is reused between pairs, so an instance must not be shared between threads.
+ */
+public abstract class BitMaskCrossover implements CrossoverStrategy {
+    protected static final int WORD_SIZE = Long.SIZE;
+    private static final Genes[] NATURAL_ORDER = Genes.values();
+
+    private long[] mask = new long[0];
+
+    /**
+     * Fills the mask for one pair of parents.
+     *
+     * @param mask The mask words to fill, all clear when called. Bit {@code i} of the genome is bit
+     *             {@code i % 64} of word {@code i / 64}.
+     * @param genomeSize The number of gene bits the mask has to cover.
+     * @param random The generator of the current thread.
+     */
+    protected abstract void fillMask(long[] mask, int genomeSize, SplittableRandom random);
+
+    /**
+     * Performs the crossover by applying a freshly created mask to the genes of both parents.
+     * Each offspring keeps the flexible gene and the gene order of the parent it is based on.
+     *
+     * @param parent1 The first parent chromosome.
+     * @param parent2 The second parent chromosome.
+     * @return A list containing the two offspring chromosomes.
+     */
+    @Override
+    public List<Chromosome> crossover(Chromosome parent1, Chromosome parent2) {
+        Chromosome offspring1 = new Chromosome(parent1);
+        Chromosome offspring2 = new Chromosome(parent2);
+        crossover(parent1, parent2, offspring1, offspring2);
+
+        List<Chromosome> offsprings = new ArrayList<>(2);
+        offsprings.add(offspring1);
+        offsprings.add(offspring2);
+        return offsprings;
+    }
+
+    /**
+     * Performs the crossover into existing chromosomes: the offspring start as copies of their
+     * parents and the bits selected by the mask are then exchanged between them.
+     *
+     * @param parent1 The first parent chromosome.
+     * @param parent2 The second parent chromosome.
+     * @param offspring1 The chromosome that receives the first offspring.
+     * @param offspring2 The chromosome that receives the second offspring.
+     */
+    @Override
+    public void crossover(Chromosome parent1, Chromosome parent2, Chromosome offspring1, Chromosome offspring2) {
+        int genomeSize = parent1.getGenes().size();
+        long[] mask = clearedMask(genomeSize);
+        fillMask(mask, genomeSize, RandomProvider.current());
+
+        offspring1.copyFrom(parent1);
+        offspring2.copyFrom(parent2);
+        offspring1.setFitnessScore(-1);
+        offspring2.setFitnessScore(-1);
+
+        BitArray genes1 = parent1.getGenes(), genes2 = parent2.getGenes();
+        BitArray offspringGenes1 = offspring1.getGenes(), offspringGenes2 = offspring2.getGenes();
+
+        int maskIndex = 0;
+        for (Genes gene : NATURAL_ORDER) {
+            int start1 = parent1.getGeneStartingIndex(gene);
+            int start2 = parent2.getGeneStartingIndex(gene);
+            int geneSize = parent1.getGeneSize(gene);
+
+            for (int i = 0; i < geneSize; i++, maskIndex++) {
+                if ((mask[maskIndex / WORD_SIZE] >>> (maskIndex % WORD_SIZE) & 1L) != 0) {
+                    offspringGenes1.set(start1 + i, genes2.get(start2 + i));
+                    offspringGenes2.set(start2 + i, genes1.get(start1 + i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the reusable mask buffer, cleared and large enough for the given genome size.
+     *
+     * @param genomeSize The number of bits in the genome.
+     * @return The cleared mask words.
+     */
+    private long[] clearedMask(int genomeSize) {
+        int words = (genomeSize + WORD_SIZE - 1) / WORD_SIZE;
+        if (mask.length != words) {
+            mask = new long[words];
+        } else {
+            Arrays.fill(mask, 0L);
+        }
+        return mask;
+    }
+}
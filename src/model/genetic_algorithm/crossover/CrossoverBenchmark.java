@@ -0,0 +1,81 @@
+package model.genetic_algorithm.crossover;
+
+import model.genetic_algorithm.GeneticAlgorithm;
+import model.genetic_algorithm.GeneticAlgorithmConfig;
+import model.image.ArgbImage;
+
+import java.util.Random;
+
+/**
+ * Compares the convergence speed of the crossover strategies: for every strategy the genetic
+ * algorithm is run several times on the same random cover and payload until it reaches a target
+ * PSNR, and the average number of generations needed is reported. Every generation costs
+ * population size * 24 full-image evaluations, so fewer generations directly means a faster encode.
+ * Usage: {@code CrossoverBenchmark [targetPsnr] [trials] [maxGenerations]}
+ */
+public class CrossoverBenchmark {
+    private static final int IMAGE_SIZE = 64;
+    private static final int MESSAGE_LENGTH = 48;
+
+    public static void main(String[] args) {
+        double targetPsnr = args.length > 0 ? Double.parseDouble(args[0]) : 56.39;
+        int trials = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int maxGenerations = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        Random random = new Random(42);
+        ArgbImage cover = randomImage(random);
+        String message = randomMessage(random);
+
+        System.out.printf("target PSNR %.2f, %d trials, at most %d generations%n", targetPsnr, trials, maxGenerations);
+        run("GENE_SPLIT", CrossoverType.GENE_SPLIT, 0, cover, message, targetPsnr, trials, maxGenerations);
+        run("UNIFORM", CrossoverType.UNIFORM, 0, cover, message, targetPsnr, trials, maxGenerations);
+        run("K_POINT k=2", CrossoverType.K_POINT, 2, cover, message, targetPsnr, trials, maxGenerations);
+        run("K_POINT k=4", CrossoverType.K_POINT, 4, cover, message, targetPsnr, trials, maxGenerations);
+    }
+
+    private static void run(String name, CrossoverType type, int kPoints, ArgbImage cover, String message,
+                            double targetPsnr, int trials, int maxGenerations) {
+        GeneticAlgorithmConfig config = new GeneticAlgorithmConfig();
+        config.setCrossoverType(type);
+        config.setCrossoverPoints(kPoints);
+        config.setGenerations(maxGenerations);
+        config.setTargetFitness(targetPsnr);
+        config.setVerbose(false);
+
+        int totalGenerations = 0, reached = 0;
+        long totalEvaluations = 0;
+        double totalBest = 0;
+        long start = System.nanoTime();
+        for (int trial = 0; trial < trials; trial++) {
+            GeneticAlgorithm geneticAlgorithm = new GeneticAlgorithm(cover, message, config);
+            geneticAlgorithm.run();
+            double best = geneticAlgorithm.getFittestChromosome().getFitnessScore();
+            totalGenerations += geneticAlgorithm.getGenerationsRun();
+            totalEvaluations += geneticAlgorithm.getEvaluations();
+            totalBest += best;
+            if (best >= targetPsnr)
+                reached++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-12s avg generations %6.2f  avg evaluations %8.1f  reached %2d/%d  avg best %.3f  %.2fs%n",
+                name, (double) totalGenerations / trials, (double) totalEvaluations / trials, reached, trials,
+                totalBest / trials, seconds);
+    }
+
+    private static ArgbImage randomImage(Random random) {
+        ArgbImage image = new ArgbImage(IMAGE_SIZE, IMAGE_SIZE);
+        int[] pixels = image.getPixels();
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return image;
+    }
+
+    private static String randomMessage(Random random) {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < MESSAGE_LENGTH; i++) {
+            message.append((char) ('a' + random.nextInt(26)));
+        }
+        return message.toString();
+    }
+}
@@ -25,4 +25,16 @@ public interface CrossoverStrategy {
      *         can vary depending on the crossover strategy.
      */
     List<Chromosome> crossover(Chromosome parent1, Chromosome parent2);
+
+    /**
+     * Performs the same crossover operation but writes the two offspring into existing chromosomes
+     * instead of creating new ones. The offspring are overwritten completely, so chromosome slots
+     * of a previous generation can be reused without allocating. The offspring must not be the parents.
+     *
+     * @param parent1 The first parent chromosome involved in the crossover.
+     * @param parent2 The second parent chromosome involved in the crossover.
+     * @param offspring1 The chromosome that receives the first offspring.
+     * @param offspring2 The chromosome that receives the second offspring.
+     */
+    void crossover(Chromosome parent1, Chromosome parent2, Chromosome offspring1, Chromosome offspring2);
 }
@@ -0,0 +1,46 @@
+package model.genetic_algorithm.crossover;
+
+/**
+ * Enumerates the available crossover strategies so they can be selected through
+ * configuration instead of being hard coded in the genetic algorithm.
+ */
+public enum CrossoverType {
+    /**
+     * Whole genes are taken alternately from each parent ({@link MultiPointCrossover}).
+     */
+    GENE_SWAP,
+
+    /**
+     * Every gene is split at its midpoint and the halves are exchanged ({@link MultiPointCrossoverGeneSplit}).
+     */
+    GENE_SPLIT,
+
+    /**
+     * Every bit is taken from either parent according to a random 64-bit mask ({@link UniformCrossover}).
+     */
+    UNIFORM,
+
+    /**
+     * The genome is cut at k random points and the segments alternate between the parents ({@link KPointCrossover}).
+     */
+    K_POINT;
+
+    /**
+     * Creates a new crossover strategy instance of this type.
+     *
+     * @param kPoints The number of cut points, only used by {@link #K_POINT}.
+     * @return The crossover strategy.
+     */
+    public CrossoverStrategy create(int kPoints) {
+        switch (this) {
+            case GENE_SWAP:
+                return new MultiPointCrossover();
+            case UNIFORM:
+                return new UniformCrossover();
+            case K_POINT:
+                return new KPointCrossover(kPoints);
+            default:
+                return new MultiPointCrossoverGeneSplit();
+        }
+    }
+}
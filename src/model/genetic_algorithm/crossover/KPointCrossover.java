@@ -0,0 +1,112 @@
+package model.genetic_algorithm.crossover;
+
+import model.genetic_algorithm.population_structure.Chromosome;
+
+import java.util.SplittableRandom;
+
+/**
+ * Implements k-point crossover: the genome is cut at k distinct random points and the resulting
+ * segments are taken alternately from each parent. Unlike {@link MultiPointCrossoverGeneSplit}, the
+ * cut points are not tied to gene boundaries or midpoints, so any part of a gene can be exchanged.
+ */
+public class KPointCrossover extends BitMaskCrossover {
+    private final int kPoints;
+    private final int[] cuts;
+
+    /**
+     * Constructs a k-point crossover strategy.
+     *
+     * @param kPoints The number of cut points, must be at least 1.
+     * @throws IllegalArgumentException if kPoints is smaller than 1.
+     */
+    public KPointCrossover(int kPoints) {
+        if (kPoints < 1) {
+            throw new IllegalArgumentException("The number of crossover points must be at least 1");
+        }
+        this.kPoints = kPoints;
+        this.cuts = new int[kPoints];
+    }
+
+    /**
+     * Fills the mask so that its bits are set on every second segment between the chosen cut points.
+     * If the genome is too short for k distinct points, every possible cut point is used.
+     *
+     * @param mask The mask words to fill.
+     * @param genomeSize The number of gene bits the mask has to cover.
+     * @param random The generator of the current thread.
+     */
+    @Override
+    protected void fillMask(long[] mask, int genomeSize, SplittableRandom random) {
+        if (genomeSize < 2) {
+            return;
+        }
+
+        int cutsAmount = Math.min(kPoints, genomeSize - 1);
+        chooseCuts(cutsAmount, genomeSize, random);
+
+        // Segments after an odd number of cuts come from the other parent
+        for (int i = 0; i < cutsAmount; i += 2) {
+            int end = (i + 1 < cutsAmount) ? cuts[i + 1] : genomeSize;
+            setRange(mask, cuts[i], end);
+        }
+    }
+
+    /**
+     * Chooses distinct cut points in [1, genomeSize) into the reusable cut buffer, sorted ascending.
+     * Each point is drawn until it is new and then inserted in place, which is cheap for the small
+     * number of cut points used in practice.
+     *
+     * @param cutsAmount The number of cut points to choose.
+     * @param genomeSize The number of gene bits.
+     * @param random The generator of the current thread.
+     */
+    private void chooseCuts(int cutsAmount, int genomeSize, SplittableRandom random) {
+        for (int chosen = 0; chosen < cutsAmount; ) {
+            int cut = random.nextInt(1, genomeSize);
+            int position = chosen;
+            while (position > 0 && cuts[position - 1] > cut) {
+                position--;
+            }
+            if (position > 0 && cuts[position - 1] == cut) {
+                continue; // already chosen, draw again
+            }
+            System.arraycopy(cuts, position, cuts, position + 1, chosen - position);
+            cuts[position] = cut;
+            chosen++;
+        }
+    }
+
+    /**
+     * Sets the bits in the range [from, to) of the mask, a word at a time.
+     *
+     * @param mask The mask words.
+     * @param from The first bit to set.
+     * @param to The bit after the last one to set.
+     */
+    private static void setRange(long[] mask, int from, int to) {
+        while (from < to) {
+            int word = from / WORD_SIZE;
+            int bit = from % WORD_SIZE;
+            int count = Math.min(WORD_SIZE - bit, to - from);
+            long bits = (count == WORD_SIZE) ? -1L : ((1L << count) - 1);
+            mask[word] |= bits << bit;
+            from += count;
+        }
+    }
+
+    public int getKPoints() {
+        return kPoints;
+    }
+
+    public static void main(String[] args){
+        KPointCrossover kPointCrossover = new KPointCrossover(3);
+        Chromosome chromosome1 = new Chromosome(128);
+        Chromosome chromosome2 = new Chromosome(128);
+        System.out.println(chromosome1.getGenes());
+        System.out.println(chromosome2.getGenes());
+
+        for (Chromosome c : kPointCrossover.crossover(chromosome1, chromosome2)){
+            System.out.println(c.getGenes());
+        }
+    }
+}
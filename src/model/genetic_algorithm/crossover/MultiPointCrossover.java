@@ -59,6 +59,30 @@ public class MultiPointCrossover implements CrossoverStrategy{
         return offsprings;
     }
 
+    /**
+     * Performs the same alternating crossover into existing chromosomes. Each offspring starts as a copy
+     * of its base parent, so only the genes at odd positions have to be taken from the other parent.
+     *
+     * @param parent1 The first parent chromosome involved in the crossover.
+     * @param parent2 The second parent chromosome involved in the crossover.
+     * @param offspring1 The chromosome that receives the first offspring.
+     * @param offspring2 The chromosome that receives the second offspring.
+     */
+    @Override
+    public void crossover(Chromosome parent1, Chromosome parent2, Chromosome offspring1, Chromosome offspring2) {
+        Genes[] allGenes = parent1.getGenesOrder();
+
+        offspring1.copyFrom(parent1);
+        offspring2.copyFrom(parent2);
+
+        // Odd indices get genes from parent2 for offspring1, parent1 for offspring2
+        for (int i = 1; i < allGenes.length; i += 2) {
+            int geneSize = parent1.getGeneSize(allGenes[i]);
+            offspring1.copyGeneFrom(parent2, allGenes[i], 0, geneSize);
+            offspring2.copyGeneFrom(parent1, allGenes[i], 0, geneSize);
+        }
+    }
+
     /**
      * Constructs a new offspring chromosome from a given set of genes. This method
      * combines the genetic material from the provided genes map to form a complete
@@ -66,6 +66,32 @@ public class MultiPointCrossoverGeneSplit implements CrossoverStrategy{
         return offSprings;
     }
 
+    /**
+     * Performs the same midpoint crossover into existing chromosomes. Both offspring use the flexible
+     * gene and gene order of the stronger parent: the first offspring keeps the first half of every gene
+     * from the stronger parent and the second half from the weaker one, the second offspring the opposite.
+     *
+     * @param parent1 The first parent chromosome.
+     * @param parent2 The second parent chromosome.
+     * @param offspring1 The chromosome that receives the first offspring.
+     * @param offspring2 The chromosome that receives the second offspring.
+     */
+    @Override
+    public void crossover(Chromosome parent1, Chromosome parent2, Chromosome offspring1, Chromosome offspring2) {
+        Chromosome strong = (parent1.getFitnessScore() >= parent2.getFitnessScore()) ? parent1 : parent2;
+        Chromosome weak = (strong == parent1) ? parent2 : parent1;
+
+        offspring1.copyFrom(strong);
+        offspring2.copyFrom(strong);
+
+        for (Genes geneName : strong.getGenesOrder()) {
+            int geneSize = strong.getGeneSize(geneName);
+            int mid = (geneSize - 1) / 2;
+            offspring1.copyGeneFrom(weak, geneName, mid + 1, geneSize);
+            offspring2.copyGeneFrom(weak, geneName, 0, mid + 1);
+        }
+    }
+
     /**
      * Splits each gene of the parent chromosomes at a midpoint, creating two new gene segments.
      * These segments are then recombined to form genes for the offspring, with one offspring
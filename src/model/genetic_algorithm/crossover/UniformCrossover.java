@@ -0,0 +1,39 @@
+package model.genetic_algorithm.crossover;
+
+import model.genetic_algorithm.population_structure.Chromosome;
+
+import java.util.SplittableRandom;
+
+/**
+ * Implements uniform crossover: every gene bit is taken from either parent with equal probability.
+ * The decision for 64 bits at a time is a single random {@code long}, so the mask costs one
+ * random number per word instead of one per bit.
+ */
+public class UniformCrossover extends BitMaskCrossover {
+
+    /**
+     * Fills the mask so that every bit is set independently with probability 1/2.
+     *
+     * @param mask The mask words to fill.
+     * @param genomeSize The number of gene bits the mask has to cover.
+     * @param random The generator of the current thread.
+     */
+    @Override
+    protected void fillMask(long[] mask, int genomeSize, SplittableRandom random) {
+        for (int i = 0; i < mask.length; i++) {
+            mask[i] = random.nextLong();
+        }
+    }
+
+    public static void main(String[] args){
+        UniformCrossover uniformCrossover = new UniformCrossover();
+        Chromosome chromosome1 = new Chromosome(128);
+        Chromosome chromosome2 = new Chromosome(128);
+        System.out.println(chromosome1.getGenes());
+        System.out.println(chromosome2.getGenes());
+
+        for (Chromosome c : uniformCrossover.crossover(chromosome1, chromosome2)){
+            System.out.println(c.getGenes());
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package model.genetic_algorithm.fitness;
 
-import javafx.scene.image.Image;
+import model.image.PixelBuffer;
 
 /**
  * Defines the interface for fitness functions used in genetic algorithms
@@ -18,9 +18,9 @@ public interface FitnessFunction {
      *
      * @param originalImage The original, unaltered image.
      * @param modifiedImage The image after data embedding. This is the candidate solution
-     *                      whose fitness is being evaluated.
+     *                      whose fitness is being evaluated, typically an overlay over the original image.
      * @return A double value representing the fitness score of the modified image. Higher
      *         values indicate better fitness (i.e., effective data embedding with minimal quality loss).
      */
-    double calculateFitness(Image originalImage, Image modifiedImage);
+    double calculateFitness(PixelBuffer originalImage, PixelBuffer modifiedImage);
 }
@@ -1,8 +1,7 @@
 package model.genetic_algorithm.fitness;
 
-import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
-import javafx.scene.paint.Color;
+import model.image.PixelBuffer;
+import model.image.StegoOverlay;
 import model.utils.ConstantsClass;
 
 /**
@@ -14,6 +13,7 @@ import model.utils.ConstantsClass;
 public class PSNRFitnessFunction implements FitnessFunction {
     private static final double FACTOR = 20;
     private static final double MAX_INTENSITY = 1;
+    private static final double MAX_CHANNEL_VALUE = 255;
 
     /**
      * Calculates the fitness of an image modification based on the PSNR between
@@ -31,6 +31,9 @@ public class PSNRFitnessFunction implements FitnessFunction {
      * and modified images, respectively. The overall MSE is the average of the MSEs
      * for the three channels.</p>
      *
+     * <p>When the modified image is a {@link StegoOverlay} over the original image, only the
+     * pixels owned by the overlay can differ, so only those are compared.</p>
+     *
      * @param originalImage The original, unmodified image.
      * @param modifiedImage The image after data has been embedded.
      * @return The PSNR value indicating the fitness of the modification. A higher PSNR
@@ -38,30 +41,38 @@ public class PSNRFitnessFunction implements FitnessFunction {
      * @throws IllegalArgumentException if the images have different dimensions.
      */
     @Override
-    public double calculateFitness(Image originalImage, Image modifiedImage) {
-        int width = (int) originalImage.getWidth();
-        int height = (int) originalImage.getHeight();
+    public double calculateFitness(PixelBuffer originalImage, PixelBuffer modifiedImage) {
+        int width = originalImage.getWidth();
+        int height = originalImage.getHeight();
 
         if (width != modifiedImage.getWidth() || height != modifiedImage.getHeight()) {
             throw new IllegalArgumentException("Images must have the same dimensions");
         }
 
-        double mseR = 0, mseG = 0, mseB = 0;
-        PixelReader originalReader = originalImage.getPixelReader();
-        PixelReader modifiedReader = modifiedImage.getPixelReader();
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color originalColor = originalReader.getColor(x, y);
-                Color modifiedColor = modifiedReader.getColor(x, y);
-
-                mseR += Math.pow(originalColor.getRed() - modifiedColor.getRed(), 2);
-                mseG += Math.pow(originalColor.getGreen() - modifiedColor.getGreen(), 2);
-                mseB += Math.pow(originalColor.getBlue() - modifiedColor.getBlue(), 2);
+        long squaredError = 0;
+        if (modifiedImage instanceof StegoOverlay overlay && overlay.getCover() == originalImage) {
+            int[] prefix = overlay.getPrefixPixels();
+            for (int i = 0; i < prefix.length; i++) {
+                squaredError += squaredError(originalImage.getArgb(i), prefix[i]);
+            }
+        } else {
+            for (int i = 0; i < width * height; i++) {
+                squaredError += squaredError(originalImage.getArgb(i), modifiedImage.getArgb(i));
             }
         }
 
-        double mse = (mseR + mseG + mseB) / ConstantsClass.BYTES_IN_PIXEL / (width * height);
+        return fromSquaredError(squaredError, (long) width * height);
+    }
+
+    /**
+     * Converts the sum of the squared differences of all color channels into the PSNR.
+     *
+     * @param squaredError The sum of the squared differences of the 8 bit red, green and blue components.
+     * @param pixels The number of pixels of the image.
+     * @return The PSNR, positive infinity for identical images.
+     */
+    public static double fromSquaredError(long squaredError, long pixels) {
+        double mse = squaredError / (MAX_CHANNEL_VALUE * MAX_CHANNEL_VALUE) / ConstantsClass.BYTES_IN_PIXEL / pixels;
 
         if (mse == 0) {
             return Double.POSITIVE_INFINITY;
@@ -69,4 +80,14 @@ public class PSNRFitnessFunction implements FitnessFunction {
 
         return FACTOR * Math.log10(MAX_INTENSITY / Math.sqrt(mse));
     }
+
+    /**
+     * Sums the squared differences of the red, green and blue components of two packed ARGB pixels.
+     */
+    private static int squaredError(int original, int modified) {
+        int red = ((original >> 16) & 0xFF) - ((modified >> 16) & 0xFF);
+        int green = ((original >> 8) & 0xFF) - ((modified >> 8) & 0xFF);
+        int blue = (original & 0xFF) - (modified & 0xFF);
+        return red * red + green * green + blue * blue;
+    }
 }
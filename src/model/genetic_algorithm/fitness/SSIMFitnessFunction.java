@@ -1,8 +1,6 @@
 package model.genetic_algorithm.fitness;
 
-import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
-import javafx.scene.paint.Color;
+import model.image.PixelBuffer;
 
 /**
  * A fitness function implementation based on the Structural Similarity Index (SSIM).
@@ -28,6 +26,9 @@ public class SSIMFitnessFunction implements FitnessFunction{
 
     public static final double FACTOR = 2;
 
+    // Scales the 8 bit color components to [0, 1]
+    private static final double MAX_CHANNEL_VALUE = 255;
+
     /**
      * Calculates the fitness of a modified image using the Structural Similarity Index.
      * The SSIM value is averaged over blocks of the image to account for local pattern
@@ -40,11 +41,11 @@ public class SSIMFitnessFunction implements FitnessFunction{
      *         less perceptual difference between the original and modified images.
      */
     @Override
-    public double calculateFitness(Image originalImage, Image modifiedImage) {
-        int width = (int) originalImage.getWidth();
-        int height = (int) originalImage.getHeight();
+    public double calculateFitness(PixelBuffer originalImage, PixelBuffer modifiedImage) {
+        int width = originalImage.getWidth();
+        int height = originalImage.getHeight();
 
-        if (width != (int) modifiedImage.getWidth() || height != (int) modifiedImage.getHeight()) {
+        if (width != modifiedImage.getWidth() || height != modifiedImage.getHeight()) {
             throw new IllegalArgumentException("Images must have the same dimensions.");
         }
 
@@ -76,19 +77,14 @@ public class SSIMFitnessFunction implements FitnessFunction{
     // calculateCovarianceForTwoBlocks,
     // calculateSSIM
 
-    private double calculateMeanIntensityForBlock(Image image, int startingRow, int startingCol) {
+    private double calculateMeanIntensityForBlock(PixelBuffer image, int startingRow, int startingCol) {
         double sumIntensity = 0;
         int totalPixels = SSIMFitnessFunction.BLOCK_SIZE * SSIMFitnessFunction.BLOCK_SIZE;
-        PixelReader reader = image.getPixelReader();
 
         for (int i = startingRow; i < startingRow + SSIMFitnessFunction.BLOCK_SIZE && i < image.getHeight(); i++) {
             for (int j = startingCol; j < startingCol + SSIMFitnessFunction.BLOCK_SIZE && j < image.getWidth(); j++) {
-                Color color = reader.getColor(j, i);
-
                 // Calculate the luminance using the weighted sum of the RGB components
-                double intensity = RED_WEIGHT * color.getRed() +
-                        GREEN_WEIGHT * color.getGreen() +
-                        BLUE_WEIGHT * color.getBlue();
+                double intensity = intensity(image.getArgb(j, i));
                 sumIntensity += intensity;
             }
         }
@@ -96,19 +92,14 @@ public class SSIMFitnessFunction implements FitnessFunction{
         return sumIntensity / totalPixels;
     }
 
-    private double calculateVarianceForBlock(Image image, int startingRow, int startingCol, double mean){
+    private double calculateVarianceForBlock(PixelBuffer image, int startingRow, int startingCol, double mean){
         double sumCovariance = 0;
         int totalPixels = SSIMFitnessFunction.BLOCK_SIZE * SSIMFitnessFunction.BLOCK_SIZE;
-        PixelReader reader = image.getPixelReader();
 
         for (int i = startingRow; i < startingRow + SSIMFitnessFunction.BLOCK_SIZE && i < image.getHeight(); i++) {
             for (int j = startingCol; j < startingCol + SSIMFitnessFunction.BLOCK_SIZE && j < image.getWidth(); j++) {
-                Color color = reader.getColor(j, i);
-
                 // Calculate the luminance using the weighted sum of the RGB components
-                double intensity = RED_WEIGHT * color.getRed() +
-                        GREEN_WEIGHT * color.getGreen() +
-                        BLUE_WEIGHT * color.getBlue();
+                double intensity = intensity(image.getArgb(j, i));
                 sumCovariance += (intensity - mean) * (intensity - mean);
             }
         }
@@ -116,24 +107,14 @@ public class SSIMFitnessFunction implements FitnessFunction{
         return sumCovariance / (totalPixels - 1);
     }
 
-    private double calculateCovarianceForTwoBlocks(Image image1, Image image2, int startingRow, int startingCol, double mean1, double mean2){
+    private double calculateCovarianceForTwoBlocks(PixelBuffer image1, PixelBuffer image2, int startingRow, int startingCol, double mean1, double mean2){
         double sumCovariance = 0;
         int totalPixels = SSIMFitnessFunction.BLOCK_SIZE * SSIMFitnessFunction.BLOCK_SIZE;
-        PixelReader reader1 = image1.getPixelReader();
-        PixelReader reader2 = image2.getPixelReader();
 
         for (int i = startingRow; i < startingRow + SSIMFitnessFunction.BLOCK_SIZE && i < image1.getHeight(); i++) {
             for (int j = startingCol; j < startingCol + SSIMFitnessFunction.BLOCK_SIZE && j < image1.getWidth(); j++) {
-                Color color1 = reader1.getColor(j, i);
-                Color color2 = reader2.getColor(j, i);
-
-                double intensity1 = RED_WEIGHT * color1.getRed() +
-                        GREEN_WEIGHT * color1.getGreen() +
-                        BLUE_WEIGHT * color1.getBlue();
-
-                double intensity2 = RED_WEIGHT * color2.getRed() +
-                        GREEN_WEIGHT * color2.getGreen() +
-                        BLUE_WEIGHT * color2.getBlue();
+                double intensity1 = intensity(image1.getArgb(j, i));
+                double intensity2 = intensity(image2.getArgb(j, i));
 
 
                 sumCovariance += (intensity1 - mean1) * (intensity2 - mean2);
@@ -143,6 +124,15 @@ public class SSIMFitnessFunction implements FitnessFunction{
         return sumCovariance / (totalPixels - 1);
     }
 
+    /**
+     * Calculates the luminance of a packed ARGB pixel from its RGB components scaled to [0, 1].
+     */
+    private double intensity(int argb) {
+        return RED_WEIGHT * ((argb >> 16) & 0xFF) / MAX_CHANNEL_VALUE +
+                GREEN_WEIGHT * ((argb >> 8) & 0xFF) / MAX_CHANNEL_VALUE +
+                BLUE_WEIGHT * (argb & 0xFF) / MAX_CHANNEL_VALUE;
+    }
+
     private double calculateSSIM(double mean1, double mean2, double variance1, double variance2, double covariance){
 
         final double C1 = (k1 * L) * (k1 * L);
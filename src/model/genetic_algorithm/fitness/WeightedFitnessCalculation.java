@@ -1,6 +1,6 @@
 package model.genetic_algorithm.fitness;
 
-import javafx.scene.image.Image;
+import model.image.PixelBuffer;
 
 
 /**
@@ -39,7 +39,7 @@ public class WeightedFitnessCalculation implements FitnessFunction{
      *         modification. Higher scores indicate better quality.
      */
     @Override
-    public double calculateFitness(Image originalImage, Image modifiedImage) {
+    public double calculateFitness(PixelBuffer originalImage, PixelBuffer modifiedImage) {
         return (ssimFitnessFunction.calculateFitness(originalImage, modifiedImage) * SSIM_WEIGHT +
                 psnrFitnessFunction.calculateFitness(originalImage, modifiedImage) * PSNR_WEIGHT);
     }
@@ -0,0 +1,102 @@
+package model.genetic_algorithm.local_search;
+
+import model.genetic_algorithm.population_structure.Chromosome;
+import model.genetic_algorithm.population_structure.Genes;
+import model.utils.UtilsMethods;
+
+/**
+ * A hill climbing local search on the number of swaps and offset genes of a chromosome, turning the
+ * genetic algorithm into a memetic algorithm. Crossover and mutation move these two genes in large jumps,
+ * while the fittest values are often only a few steps away. Each round tries steps of +-1, +-2, +-4, ...
+ * on each gene and keeps every step that lowers the distortion, until a round brings no improvement.
+ * <p>
+ * The moves are scored with a {@link SwapDeltaEvaluator}, so a step costs a few channel updates instead of
+ * embedding and comparing a whole image. The score is the PSNR, the same as
+ * {@link model.genetic_algorithm.fitness.PSNRFitnessFunction}.
+ */
+public class LocalSearch {
+    private final SwapDeltaEvaluator evaluator;
+    private final int swapsRange;
+    private final int maxStepExponent;
+    private final int maxRounds;
+
+    /**
+     * Constructs a local search.
+     *
+     * @param evaluator The evaluator of the data to embed.
+     * @param dataSizeInBits The size of the data to embed in bits.
+     * @param maxStepExponent The largest step tried is {@code 2^maxStepExponent}.
+     * @param maxRounds The maximal number of rounds over both genes.
+     * @throws IllegalArgumentException if the step exponent or the number of rounds is negative.
+     */
+    public LocalSearch(SwapDeltaEvaluator evaluator, int dataSizeInBits, int maxStepExponent, int maxRounds) {
+        if (maxStepExponent < 0 || maxStepExponent >= Integer.SIZE - 1 || maxRounds < 0) {
+            throw new IllegalArgumentException("Invalid local search parameters: step exponent " + maxStepExponent
+                    + ", rounds " + maxRounds);
+        }
+        this.evaluator = evaluator;
+        this.swapsRange = UtilsMethods.numberOfSwapsForData(dataSizeInBits);
+        this.maxStepExponent = maxStepExponent;
+        this.maxRounds = maxRounds;
+    }
+
+    /**
+     * Improves the number of swaps and offset of an evaluated chromosome. The improved values are
+     * written back into its genes and its fitness score is updated, the flexible gene is kept.
+     *
+     * @param chromosome The chromosome to improve.
+     * @return Whether the chromosome was improved.
+     */
+    public boolean improve(Chromosome chromosome) {
+        if (swapsRange == 0) {
+            return false;
+        }
+        int numberOfSwaps = chromosome.getGene(Genes.NS).toInt() % swapsRange;
+        int offset = chromosome.getGene(Genes.OFF).toInt() % swapsRange;
+        long error = evaluator.reset(numberOfSwaps, offset,
+                chromosome.getGene(Genes.DD).toInt(), chromosome.getGene(Genes.DP).toInt());
+        long startingError = error;
+
+        for (int round = 0; round < maxRounds; round++) {
+            long roundError = error;
+
+            for (int exponent = 0; exponent <= maxStepExponent; exponent++) {
+                for (int sign = -1; sign <= 1; sign += 2) {
+                    int candidate = Math.floorMod(numberOfSwaps + sign * (1 << exponent), swapsRange);
+                    long candidateError = evaluator.setNumberOfSwaps(candidate);
+                    if (candidateError < error) {
+                        error = candidateError;
+                        numberOfSwaps = candidate;
+                    } else {
+                        evaluator.setNumberOfSwaps(numberOfSwaps);
+                    }
+                }
+            }
+
+            for (int exponent = 0; exponent <= maxStepExponent; exponent++) {
+                for (int sign = -1; sign <= 1; sign += 2) {
+                    int candidate = Math.floorMod(offset + sign * (1 << exponent), swapsRange);
+                    long candidateError = evaluator.setOffset(candidate);
+                    if (candidateError < error) {
+                        error = candidateError;
+                        offset = candidate;
+                    } else {
+                        evaluator.setOffset(offset);
+                    }
+                }
+            }
+
+            if (error == roundError) {
+                break;
+            }
+        }
+
+        if (error >= startingError) {
+            return false;
+        }
+        chromosome.setGeneValue(Genes.NS, numberOfSwaps);
+        chromosome.setGeneValue(Genes.OFF, offset);
+        chromosome.setFitnessScore(evaluator.toPSNR(error));
+        return true;
+    }
+}
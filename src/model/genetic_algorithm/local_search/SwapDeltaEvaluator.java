@@ -0,0 +1,218 @@
+package model.genetic_algorithm.local_search;
+
+import model.data_managers.BitArray;
+import model.data_managers.image_metedate.CompactHeader;
+import model.genetic_algorithm.fitness.PSNRFitnessFunction;
+import model.image.PixelBuffer;
+import model.utils.ConstantsClass;
+import model.utils.UtilsMethods;
+
+/**
+ * Evaluates the distortion of an embedding incrementally while the number of swaps and the offset change.
+ * Only the padded header and data prefix of the image is touched by an embedding, and within
+ * it every color channel keeps its upper bits and takes 3 embedded bits, so the squared error of a channel
+ * depends only on its lowest 3 bits. The evaluator keeps the embedded bits and the error of every channel
+ * of the prefix, and when a swap is added or removed only the two channels holding the swapped bits are
+ * recomputed.
+ * <p>
+ * The swaps performed by {@link model.data_managers.DataManipulation} are disjoint: swap {@code i} exchanges
+ * bit {@code i} of the first half with a distinct bit of the second half. Adding or removing a swap therefore
+ * never affects another swap, which is what makes the delta evaluation exact.
+ */
+public class SwapDeltaEvaluator {
+    private static final int BITS_PER_PIXEL = ConstantsClass.BITS_REPLACED_PER_BYTE * ConstantsClass.BYTES_IN_PIXEL;
+
+    private final BitArray data;
+    private final int checksum;
+    private final int width;
+    private final int height;
+    private final int mid;
+    private final int metadataChannels;
+    private final int dataChannelStart;
+
+    private final byte[] coverLowBits;  // the lowest 3 bits of every channel of the prefix
+    private final int[] embeddedBits;   // the 3 embedded bits of every channel of the prefix
+    private final BitArray header;      // reused by every serialization of the header
+    private long squaredError;
+
+    private int numberOfSwaps;
+    private int offset;
+    private int dataDirection;
+    private int dataPolarity;
+
+    /**
+     * Constructs an evaluator for embedding given data into a cover image.
+     *
+     * @param cover The cover image.
+     * @param data The secret data, before manipulation.
+     */
+    public SwapDeltaEvaluator(PixelBuffer cover, BitArray data) {
+        this.data = data;
+        this.checksum = CompactHeader.checksum(data);
+        this.width = cover.getWidth();
+        this.height = cover.getHeight();
+        this.mid = data.size() / 2;
+
+        header = new BitArray(CompactHeader.getSizeInBits(data.size()));
+        int metadataBits = paddedSize(header.size());
+        int totalBits = metadataBits + paddedSize(data.size());
+
+        this.metadataChannels = metadataBits / ConstantsClass.BITS_REPLACED_PER_BYTE;
+        this.dataChannelStart = metadataChannels;
+
+        int channels = totalBits / ConstantsClass.BITS_REPLACED_PER_BYTE;
+        embeddedBits = new int[channels];
+        coverLowBits = new byte[channels];
+        for (int pixel = 0; pixel < totalBits / BITS_PER_PIXEL; pixel++) {
+            int argb = cover.getArgb(pixel);
+            int channel = pixel * ConstantsClass.BYTES_IN_PIXEL;
+            coverLowBits[channel] = (byte) ((argb >> 16) & 0b111);
+            coverLowBits[channel + 1] = (byte) ((argb >> 8) & 0b111);
+            coverLowBits[channel + 2] = (byte) (argb & 0b111);
+        }
+    }
+
+    /**
+     * Rebuilds the state for a manipulation from scratch, which costs a pass over the whole prefix.
+     *
+     * @param numberOfSwaps The number of swaps, smaller than half the data size.
+     * @param offset The offset of the swaps, smaller than half the data size.
+     * @param dataDirection The data direction.
+     * @param dataPolarity The data polarity.
+     * @return The sum of squared channel errors of the embedding.
+     */
+    public long reset(int numberOfSwaps, int offset, int dataDirection, int dataPolarity) {
+        this.numberOfSwaps = numberOfSwaps;
+        this.offset = offset;
+        this.dataDirection = dataDirection;
+        this.dataPolarity = dataPolarity;
+
+        // the unmanipulated data, then the swaps on top of it
+        int dataChannelEnd = dataChannelStart + paddedSize(data.size()) / ConstantsClass.BITS_REPLACED_PER_BYTE;
+        for (int channel = dataChannelStart; channel < dataChannelEnd; channel++) {
+            embeddedBits[channel] = 0;
+        }
+        for (int i = 0; i < data.size(); i++) {
+            setDataBit(i, data.get(i));
+        }
+        for (int i = 0; i < numberOfSwaps; i++) {
+            applySwap(i);
+        }
+        writeMetadata();
+
+        squaredError = 0;
+        for (int channel = 0; channel < embeddedBits.length; channel++) {
+            squaredError += channelError(channel);
+        }
+        return squaredError;
+    }
+
+    /**
+     * Changes the number of swaps, adding or removing only the swaps in between.
+     *
+     * @param newNumberOfSwaps The new number of swaps, smaller than half the data size.
+     * @return The sum of squared channel errors of the embedding.
+     */
+    public long setNumberOfSwaps(int newNumberOfSwaps) {
+        for (int i = numberOfSwaps; i < newNumberOfSwaps; i++) {
+            applySwap(i);
+        }
+        for (int i = newNumberOfSwaps; i < numberOfSwaps; i++) {
+            revertSwap(i);
+        }
+        numberOfSwaps = newNumberOfSwaps;
+        writeMetadata();
+        return squaredError;
+    }
+
+    /**
+     * Changes the offset, which moves the second bit of every performed swap.
+     *
+     * @param newOffset The new offset, smaller than half the data size.
+     * @return The sum of squared channel errors of the embedding.
+     */
+    public long setOffset(int newOffset) {
+        for (int i = 0; i < numberOfSwaps; i++) {
+            revertSwap(i);
+        }
+        offset = newOffset;
+        for (int i = 0; i < numberOfSwaps; i++) {
+            applySwap(i);
+        }
+        writeMetadata();
+        return squaredError;
+    }
+
+    /**
+     * Converts a sum of squared channel errors into the PSNR computed by
+     * {@link model.genetic_algorithm.fitness.PSNRFitnessFunction}.
+     *
+     * @param squaredError The sum of squared channel errors, in 8 bit channel units.
+     * @return The PSNR of the embedding.
+     */
+    public double toPSNR(long squaredError) {
+        return PSNRFitnessFunction.fromSquaredError(squaredError, (long) width * height);
+    }
+
+    /**
+     * Writes the manipulated bits of swap {@code i}, the same as DataManipulation.swapBits.
+     */
+    private void applySwap(int i) {
+        int second = secondIndex(i);
+        setDataBit(i, data.get(second) ^ ((dataPolarity & 1) != 0));
+        setDataBit(second, data.get(i) ^ ((dataPolarity & 2) != 0));
+    }
+
+    /**
+     * Restores the original bits of swap {@code i}.
+     */
+    private void revertSwap(int i) {
+        int second = secondIndex(i);
+        setDataBit(i, data.get(i));
+        setDataBit(second, data.get(second));
+    }
+
+    private int secondIndex(int i) {
+        if (dataDirection == 0) {
+            return (mid + offset + i) % mid + mid;
+        }
+        return data.size() - 1 - ((offset + i) % mid);
+    }
+
+    /**
+     * Sets one embedded data bit and updates the error of its channel.
+     */
+    private void setDataBit(int index, boolean value) {
+        int channel = dataChannelStart + index / ConstantsClass.BITS_REPLACED_PER_BYTE;
+        setChannelBit(channel, index % ConstantsClass.BITS_REPLACED_PER_BYTE, value);
+    }
+
+    private void setChannelBit(int channel, int bit, boolean value) {
+        int bits = value ? embeddedBits[channel] | (1 << bit) : embeddedBits[channel] & ~(1 << bit);
+        if (bits != embeddedBits[channel]) {
+            squaredError -= channelError(channel);
+            embeddedBits[channel] = bits;
+            squaredError += channelError(channel);
+        }
+    }
+
+    /**
+     * Serializes the header of the current manipulation into the metadata channels.
+     */
+    private void writeMetadata() {
+        CompactHeader.write(header, data.size(), numberOfSwaps, offset, dataDirection, dataPolarity, checksum);
+        for (int i = 0; i < metadataChannels * ConstantsClass.BITS_REPLACED_PER_BYTE; i++) {
+            setChannelBit(i / ConstantsClass.BITS_REPLACED_PER_BYTE, i % ConstantsClass.BITS_REPLACED_PER_BYTE,
+                    i < header.size() && header.get(i));
+        }
+    }
+
+    private long channelError(int channel) {
+        long difference = coverLowBits[channel] - embeddedBits[channel];
+        return difference * difference;
+    }
+
+    private static int paddedSize(int size) {
+        return size + UtilsMethods.calculatePadding(size);
+    }
+}
@@ -2,12 +2,14 @@ package model.genetic_algorithm.population_structure;
 
 import model.data_managers.BitArray;
 import model.utils.ConstantsClass;
+import model.utils.RandomProvider;
 import model.utils.UtilsMethods;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.SplittableRandom;
 
 /**
  * Represents a single chromosome in the genetic algorithm's population.
@@ -16,11 +18,12 @@ import java.util.Random;
  * The fitness score of the chromosome is a measure of how good the solution it represents is.
  */
 public class Chromosome implements Comparable<Chromosome> {
-    public static final Random random = new Random();
     public static final int GENES_AMOUNT = 4;
     public static final double MUTATION_PROBABILITY = 0.2;
 
-    private static GeneSizeManager geneSizeManager;
+    private static final Genes[][] GENE_PERMUTATIONS = decodeGenePermutations();
+
+    private final GeneSizeManager geneSizeManager;
     private final int[] genesStartingIndex;
     private final Genes[] genesOrder;
     private final BitArray flexibleGene;
@@ -40,7 +43,7 @@ public class Chromosome implements Comparable<Chromosome> {
         this.flexibleGene = new BitArray(ConstantsClass.FLEXIBLE_GENE_SIZE);
         this.genes = new BitArray(ConstantsClass.DATA_DIRECTION_SIZE + ConstantsClass.DATA_POLARITY_SIZE + numberOfSwapsSize + offsetSize);
 
-        setGeneSizeManager(numberOfSwapsSize, offsetSize);
+        this.geneSizeManager = createGeneSizeManager(numberOfSwapsSize, offsetSize);
 
         this.fitnessScore = -1;
 
@@ -62,7 +65,7 @@ public class Chromosome implements Comparable<Chromosome> {
         this.genes = genes;
         this.flexibleGene = flexibleGene;
 
-        setGeneSizeManager(numberOfSwapsSize, offsetSize);
+        this.geneSizeManager = createGeneSizeManager(numberOfSwapsSize, offsetSize);
 
         genesOrder = new Genes[GENES_AMOUNT];
         genesStartingIndex = new int[GENES_AMOUNT];
@@ -85,7 +88,7 @@ public class Chromosome implements Comparable<Chromosome> {
         this.flexibleGene = new BitArray(ConstantsClass.FLEXIBLE_GENE_SIZE);
         this.genes = new BitArray(ConstantsClass.DATA_DIRECTION_SIZE + ConstantsClass.DATA_POLARITY_SIZE + numberOfSwapsSize + offsetSize);
 
-        setGeneSizeManager(numberOfSwapsSize, offsetSize);
+        this.geneSizeManager = createGeneSizeManager(numberOfSwapsSize, offsetSize);
 
         this.fitnessScore = -1;
 
@@ -120,6 +123,7 @@ public class Chromosome implements Comparable<Chromosome> {
     public Chromosome(Chromosome other) {
         this.flexibleGene = other.flexibleGene.clone();
         this.genes = other.genes.clone();
+        this.geneSizeManager = other.geneSizeManager;
         this.fitnessScore = other.fitnessScore;
 
         // Deep copy genesOrder and genesStartingIndex if necessary
@@ -128,6 +132,21 @@ public class Chromosome implements Comparable<Chromosome> {
 
     }
 
+    /**
+     * Overwrites this chromosome with the genes, gene order and fitness of another chromosome of the
+     * same size. Unlike the copy constructor this allocates nothing, so population slots can be reused
+     * from one generation to the next.
+     *
+     * @param other The Chromosome to copy.
+     */
+    public void copyFrom(Chromosome other) {
+        flexibleGene.copyFrom(other.flexibleGene);
+        genes.copyFrom(other.genes);
+        fitnessScore = other.fitnessScore;
+        System.arraycopy(other.genesOrder, 0, genesOrder, 0, GENES_AMOUNT);
+        System.arraycopy(other.genesStartingIndex, 0, genesStartingIndex, 0, GENES_AMOUNT);
+    }
+
     /**
      * Calculates the sizes of the number of swaps and offset genes based on the image size.
      *
@@ -139,17 +158,21 @@ public class Chromosome implements Comparable<Chromosome> {
     }
 
     /**
-     * Sets the gene size manager with the sizes of number of swaps and offset genes.
+     * Creates the gene size manager with the sizes of number of swaps and offset genes. Every chromosome
+     * refers to the manager of its own sizes, which chromosomes copied from it share, so algorithms
+     * running at the same time on data of different sizes do not affect each other.
      *
      * @param numberOfSwapsSize Size of the number of swaps gene
      * @param offsetSize Size of the offset gene
+     * @return The gene size manager
      */
-    private void setGeneSizeManager(int numberOfSwapsSize, int offsetSize){
-        geneSizeManager = new GeneSizeManager();
+    private static GeneSizeManager createGeneSizeManager(int numberOfSwapsSize, int offsetSize){
+        GeneSizeManager geneSizeManager = new GeneSizeManager();
         geneSizeManager.setGeneSize(Genes.NS, numberOfSwapsSize);
         geneSizeManager.setGeneSize(Genes.OFF, offsetSize);
         geneSizeManager.setGeneSize(Genes.DD, ConstantsClass.DATA_DIRECTION_SIZE);
         geneSizeManager.setGeneSize(Genes.DP, ConstantsClass.DATA_POLARITY_SIZE);
+        return geneSizeManager;
     }
 
     /**
@@ -168,32 +191,89 @@ public class Chromosome implements Comparable<Chromosome> {
      * @param gene The gene to be initiated.
      */
     private void initiateGene(BitArray gene) {
+        SplittableRandom random = RandomProvider.current();
         for (int i = 0; i < gene.size(); i++) {
-            gene.set(i, random.nextInt(2) == 1);
+            gene.set(i, random.nextBoolean());
         }
 
     }
 
     /**
-     * Mutates the chromosome by applying mutations to each gene.
+     * Mutates the chromosome by flipping every gene bit with probability {@link #MUTATION_PROBABILITY}.
      */
     public void mutateChromosome() {
+        mutateChromosome(MUTATION_PROBABILITY);
+    }
+
+    /**
+     * Mutates the chromosome with a single per-genome rate: every gene bit is flipped independently
+     * with the given probability.
+     *
+     * @param bitProbability The probability of flipping each bit.
+     */
+    public void mutateChromosome(double bitProbability) {
+        mutateGene(0, genes.size(), bitProbability, RandomProvider.current());
+    }
+
+    /**
+     * Mutates the chromosome with a separate rate per gene. Genes without a rate are left unchanged.
+     *
+     * @param geneProbabilities The probability of flipping each bit, per gene.
+     */
+    public void mutateChromosome(Map<Genes, Double> geneProbabilities) {
+        SplittableRandom random = RandomProvider.current();
         for (Genes gene : genesOrder){
-            mutateGene(getGeneStartingIndex(gene), geneSizeManager.getGeneSize(gene));
+            Double bitProbability = geneProbabilities.get(gene);
+            if (bitProbability != null)
+                mutateGene(getGeneStartingIndex(gene), geneSizeManager.getGeneSize(gene), bitProbability, random);
         }
     }
 
     /**
-     * mutate a given gene by flipping its bits
-     * @param start the starting index of this gene.
-     * @param geneSize the size of this gene.
+     * Mutates a range of the genes by flipping each bit with the given probability.
+     * Instead of drawing a random number per bit, the distance to the next flipped bit is drawn from
+     * the geometric distribution, so the cost is proportional to the number of flips. The flips that
+     * fall into the same 64-bit window are collected into a mask and applied with a single XOR.
+     *
+     * @param start the starting index of the range.
+     * @param geneSize the size of the range.
+     * @param bitProbability the probability of flipping each bit.
+     * @param random the generator of the current thread.
      */
-    private void mutateGene(int start, int geneSize) {
-
-        for (int i = 0; i < geneSize; i++) {
-            if (random.nextDouble() <= MUTATION_PROBABILITY)
-                genes.flip(start + i);
+    private void mutateGene(int start, int geneSize, double bitProbability, SplittableRandom random) {
+        if (bitProbability <= 0 || geneSize <= 0)
+            return;
+
+        double logComplement = Math.log1p(-Math.min(bitProbability, 1));
+        long end = (long) start + geneSize;
+
+        int windowStart = start;
+        long mask = 0;
+        long index = start + nextSkip(random, logComplement);
+
+        while (index < end) {
+            if (index >= windowStart + Long.SIZE) {
+                genes.xorWord(windowStart, mask);
+                mask = 0;
+                windowStart = (int) (index - (index - start) % Long.SIZE);
+            }
+            mask |= 1L << (index - windowStart);
+            index += 1 + nextSkip(random, logComplement);
         }
+        genes.xorWord(windowStart, mask);
+    }
+
+    /**
+     * Draws the number of bits to skip before the next flipped bit from the geometric distribution.
+     *
+     * @param random the generator of the current thread.
+     * @param logComplement log(1 - p), where p is the probability of flipping a bit.
+     * @return the number of bits that are not flipped before the next flipped bit.
+     */
+    private static long nextSkip(SplittableRandom random, double logComplement) {
+        // 1 - nextDouble() is in (0, 1], so the logarithm is finite
+        double skip = Math.floor(Math.log(1.0 - random.nextDouble()) / logComplement);
+        return skip >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (long) skip;
     }
 
     /**
@@ -204,26 +284,45 @@ public class Chromosome implements Comparable<Chromosome> {
      */
     public void setIndexesForGenes(int flexibleGeneValue) {
         flexibleGeneValue %= ConstantsClass.POSSIBLE_COMBINATIONS_AMOUNT_FOR_FLEXIBLE_GENE;
-        int tempFlexibleGeneValue = flexibleGeneValue;
-        List<Genes> availableGenes = new ArrayList<>(Arrays.asList(Genes.NS, Genes.OFF, Genes.DD, Genes.DP));
+
+        System.arraycopy(GENE_PERMUTATIONS[flexibleGeneValue], 0, genesOrder, 0, GENES_AMOUNT);
+
+        setIndexes(genesOrder);
+
+        flexibleGene.modifyBitArrayByNumber(flexibleGeneValue);
+    }
+
+    /**
+     * Decodes every value of the flexible gene into the permutation of the genes it represents.
+     * The value is read as a number in the factorial number system, each digit selecting one of
+     * the genes that were not placed yet. The table is built once since the permutations never change.
+     *
+     * @return The gene orders, indexed by the value of the flexible gene.
+     */
+    private static Genes[][] decodeGenePermutations() {
+        Genes[][] permutations = new Genes[ConstantsClass.POSSIBLE_COMBINATIONS_AMOUNT_FOR_FLEXIBLE_GENE][];
 
         int[] factorials = new int[GENES_AMOUNT - 1];
         for (int i = 0; i < GENES_AMOUNT - 1; i++){
             factorials[i] = UtilsMethods.factorial(GENES_AMOUNT - 1 - i);
         }
 
-        for (int i = 0; i < GENES_AMOUNT - 1; i++) { // Only need to calculate the first 3 positions
-            int pos = tempFlexibleGeneValue / factorials[i] % (GENES_AMOUNT - i); // Ensure pos is within the current list size
-            tempFlexibleGeneValue %= factorials[i];
-            genesOrder[i] = availableGenes.remove(pos);
-        }
-
-        // Last number is the remaining one
-        genesOrder[GENES_AMOUNT - 1] = availableGenes.get(0);
+        for (int value = 0; value < permutations.length; value++) {
+            int tempFlexibleGeneValue = value;
+            List<Genes> availableGenes = new ArrayList<>(Arrays.asList(Genes.NS, Genes.OFF, Genes.DD, Genes.DP));
+            Genes[] order = new Genes[GENES_AMOUNT];
 
-        setIndexes(genesOrder);
+            for (int i = 0; i < GENES_AMOUNT - 1; i++) { // Only need to calculate the first 3 positions
+                int pos = tempFlexibleGeneValue / factorials[i] % (GENES_AMOUNT - i); // Ensure pos is within the current list size
+                tempFlexibleGeneValue %= factorials[i];
+                order[i] = availableGenes.remove(pos);
+            }
 
-        flexibleGene.modifyBitArrayByNumber(flexibleGeneValue);
+            // Last number is the remaining one
+            order[GENES_AMOUNT - 1] = availableGenes.get(0);
+            permutations[value] = order;
+        }
+        return permutations;
     }
 
     /**
@@ -308,16 +407,73 @@ public class Chromosome implements Comparable<Chromosome> {
     }
 
     /**
-     * Retrieves the starting index of a gene.
+     * Takes over the evaluation result of another chromosome with identical genes: its best flexible
+     * gene value and its fitness score. Used instead of evaluating the same genes twice.
+     *
+     * @param other The evaluated chromosome with the same genes.
+     */
+    public void shareEvaluation(Chromosome other) {
+        setIndexesForGenes(other.flexibleGene.toInt());
+        fitnessScore = other.fitnessScore;
+    }
+
+    /**
+     * Sets a gene to a number, most significant bit first like {@link BitArray#modifyBitArrayByNumber(int)},
+     * writing the bits directly into the genes without allocating.
+     *
+     * @param gene Gene to set
+     * @param value The non-negative value, must fit into the gene size.
+     * @throws IllegalArgumentException if the value does not fit into the gene.
+     */
+    public void setGeneValue(Genes gene, int value) {
+        int geneSize = geneSizeManager.getGeneSize(gene);
+        if (value < 0 || (geneSize < Integer.SIZE - 1 && value >= (1 << geneSize))) {
+            throw new IllegalArgumentException("Value " + value + " does not fit into the " + gene + " gene");
+        }
+        int start = getGeneStartingIndex(gene);
+        for (int i = 0; i < geneSize; i++) {
+            genes.set(start + i, ((value >> (geneSize - 1 - i)) & 1) == 1);
+        }
+    }
+
+    /**
+     * Copies the value of a gene from another chromosome into this chromosome, bit by bit and without
+     * allocating. The gene may start at different positions in the two chromosomes.
+     *
+     * @param source The chromosome to copy the gene from.
+     * @param gene Gene to copy
+     * @param from The first bit of the gene to copy.
+     * @param to The bit after the last bit of the gene to copy.
+     */
+    public void copyGeneFrom(Chromosome source, Genes gene, int from, int to) {
+        int sourceStart = source.getGeneStartingIndex(gene);
+        int targetStart = getGeneStartingIndex(gene);
+        for (int i = from; i < to; i++) {
+            genes.set(targetStart + i, source.genes.get(sourceStart + i));
+        }
+    }
+
+    /**
+     * Retrieves the starting index of a gene within {@link #getGenes()}.
      *
      * @param gene Gene to retrieve the starting index for
      * @return Starting index of the gene
      */
-    private int getGeneStartingIndex(Genes gene){
+    public int getGeneStartingIndex(Genes gene){
         int indexInGeneArr = findIndexByGeneName(gene);
         return genesStartingIndex[indexInGeneArr];
     }
 
+    /**
+     * Retrieves the size of a gene in bits.
+     *
+     * @param gene Gene to retrieve the size for
+     * @return Size of the gene in bits
+     */
+    public int getGeneSize(Genes gene){
+        return geneSizeManager.getGeneSize(gene);
+    }
+
     /**
      * Retrieves the flexible gene.
      *
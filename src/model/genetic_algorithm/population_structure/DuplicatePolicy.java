@@ -0,0 +1,23 @@
+package model.genetic_algorithm.population_structure;
+
+/**
+ * Determines what happens to chromosomes whose genes are identical to those of another chromosome
+ * of the same generation. Such chromosomes would always receive the same fitness, so evaluating
+ * them again only wastes full-image evaluations.
+ */
+public enum DuplicatePolicy {
+    /**
+     * Every chromosome is evaluated, duplicates included.
+     */
+    EVALUATE,
+
+    /**
+     * Duplicates are not evaluated but receive the score and flexible gene of the first identical chromosome.
+     */
+    SHARE_SCORE,
+
+    /**
+     * Duplicates are replaced by random immigrants, which are evaluated, restoring diversity.
+     */
+    RANDOM_IMMIGRANT
+}
@@ -0,0 +1,121 @@
+package model.genetic_algorithm.population_structure;
+
+import model.data_managers.BitArray;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash set of packed genomes, used to find chromosomes of the same generation that
+ * carry identical genes. Every genome is packed into a fixed number of 64-bit words and stored together
+ * with the index of the chromosome that first carried it. The set is cleared once per generation by
+ * advancing a stamp, so clearing and inserting never allocate.
+ */
+public class GenomeSet {
+    private final int words;
+    private final int mask;
+    private final long[] keys;
+    private final int[] values;
+    private final int[] stamps;
+    private int stamp;
+    private int size;
+
+    /**
+     * Constructs a set able to hold the given number of genomes.
+     *
+     * @param capacity The maximal number of genomes inserted between two clears.
+     * @param genomeSize The number of bits in each genome.
+     */
+    public GenomeSet(int capacity, int genomeSize) {
+        this.words = wordsFor(genomeSize);
+
+        // at least twice the capacity keeps the probe sequences short
+        int slots = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        this.mask = slots - 1;
+        this.keys = new long[slots * words];
+        this.values = new int[slots];
+        this.stamps = new int[slots];
+        this.stamp = 1;
+    }
+
+    /**
+     * Returns the number of 64-bit words needed to pack a genome of the given size.
+     *
+     * @param genomeSize The number of bits in the genome.
+     * @return The number of words.
+     */
+    public static int wordsFor(int genomeSize) {
+        return (genomeSize + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * Packs the bits of a genome into consecutive words of an array.
+     *
+     * @param genes The genome to pack.
+     * @param packed The array that receives the words.
+     * @param offset The index of the first word to write.
+     */
+    public static void pack(BitArray genes, long[] packed, int offset) {
+        for (int word = 0, start = 0; start < genes.size(); word++, start += Long.SIZE) {
+            packed[offset + word] = genes.getLong(start, Math.min(Long.SIZE, genes.size() - start));
+        }
+    }
+
+    /**
+     * Removes all genomes from the set.
+     */
+    public void clear() {
+        stamp++;
+        size = 0;
+        if (stamp == 0) { // the stamp wrapped around, stale slots could look current
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * Inserts a packed genome unless an identical genome is already in the set.
+     *
+     * @param packed The array holding the packed genome.
+     * @param offset The index of the first word of the genome.
+     * @param value The value to associate with the genome if it is new.
+     * @return The value associated with the identical genome already in the set, or -1 if the genome was inserted.
+     */
+    public int putIfAbsent(long[] packed, int offset, int value) {
+        int slot = hash(packed, offset) & mask;
+        while (stamps[slot] == stamp) {
+            if (Arrays.equals(keys, slot * words, slot * words + words, packed, offset, offset + words)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        System.arraycopy(packed, offset, keys, slot * words, words);
+        values[slot] = value;
+        stamps[slot] = stamp;
+        size++;
+        return -1;
+    }
+
+    /**
+     * @return The number of distinct genomes inserted since the last clear.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Hashes a packed genome by mixing its words with the finalizer of MurmurHash3.
+     */
+    private int hash(long[] packed, int offset) {
+        long h = 0;
+        for (int i = offset; i < offset + words; i++) {
+            h = (h ^ packed[i]) * 0x9E3779B97F4A7C15L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
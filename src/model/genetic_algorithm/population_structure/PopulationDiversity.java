@@ -0,0 +1,91 @@
+package model.genetic_algorithm.population_structure;
+
+/**
+ * Diversity metrics of one generation. A population that converges loses diversity: the unique-genome
+ * ratio drops towards 1/N and the mean Hamming distance towards 0, which adaptive strategies can use as
+ * a signal to increase exploration.
+ * <p>
+ * The genetic algorithm keeps one instance and {@link #update updates} it every generation, so a listener
+ * that keeps the metrics of a generation must copy its values.
+ */
+public class PopulationDiversity {
+    private double uniqueGenomeRatio;
+    private double meanHammingDistance;
+    private int genomeSize;
+
+    /**
+     * Constructs the diversity metrics of a generation.
+     *
+     * @param uniqueGenomeRatio The number of distinct genomes divided by the population size.
+     * @param meanHammingDistance The mean number of differing bits over all pairs of chromosomes.
+     * @param genomeSize The number of bits in each genome.
+     */
+    public PopulationDiversity(double uniqueGenomeRatio, double meanHammingDistance, int genomeSize) {
+        this.uniqueGenomeRatio = uniqueGenomeRatio;
+        this.meanHammingDistance = meanHammingDistance;
+        this.genomeSize = genomeSize;
+    }
+
+    /**
+     * Computes the metrics of a population from its packed genomes. The mean Hamming distance
+     * compares every pair of genomes a word at a time with {@link Long#bitCount(long)}, which for
+     * the population sizes used here is negligible next to a single fitness evaluation.
+     *
+     * @param packed The packed genomes, {@code words} consecutive words per chromosome.
+     * @param count The number of genomes.
+     * @param words The number of words per genome.
+     * @param uniqueGenomes The number of distinct genomes.
+     * @param genomeSize The number of bits in each genome.
+     * @return The diversity metrics.
+     */
+    public static PopulationDiversity compute(long[] packed, int count, int words, int uniqueGenomes, int genomeSize) {
+        PopulationDiversity diversity = new PopulationDiversity(0, 0, genomeSize);
+        diversity.update(packed, count, words, uniqueGenomes, genomeSize);
+        return diversity;
+    }
+
+    /**
+     * Replaces the metrics with those of another population, computed like {@link #compute} but without
+     * allocating.
+     *
+     * @param packed The packed genomes, {@code words} consecutive words per chromosome.
+     * @param count The number of genomes.
+     * @param words The number of words per genome.
+     * @param uniqueGenomes The number of distinct genomes.
+     * @param genomeSize The number of bits in each genome.
+     */
+    public void update(long[] packed, int count, int words, int uniqueGenomes, int genomeSize) {
+        long totalDistance = 0;
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                for (int w = 0; w < words; w++) {
+                    totalDistance += Long.bitCount(packed[i * words + w] ^ packed[j * words + w]);
+                }
+            }
+        }
+        long pairs = (long) count * (count - 1) / 2;
+        this.meanHammingDistance = pairs == 0 ? 0 : (double) totalDistance / pairs;
+        this.uniqueGenomeRatio = count == 0 ? 0 : (double) uniqueGenomes / count;
+        this.genomeSize = genomeSize;
+    }
+
+    public double getUniqueGenomeRatio() {
+        return uniqueGenomeRatio;
+    }
+
+    public double getMeanHammingDistance() {
+        return meanHammingDistance;
+    }
+
+    /**
+     * @return The mean Hamming distance divided by the genome size, between 0 and 1.
+     */
+    public double getNormalizedHammingDistance() {
+        return genomeSize == 0 ? 0 : meanHammingDistance / genomeSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("unique genomes: %.2f, mean Hamming distance: %.2f", uniqueGenomeRatio, meanHammingDistance);
+    }
+}
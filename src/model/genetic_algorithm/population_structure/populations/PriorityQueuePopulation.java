@@ -140,5 +140,6 @@ public class PriorityQueuePopulation implements PopulationImplementation {
     @Override
     public void insert(Chromosome chromosome) {
         population.insert(chromosome);
+        populationSize++;
     }
 }
\ No newline at end of file
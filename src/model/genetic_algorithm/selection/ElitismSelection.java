@@ -33,4 +33,24 @@ public class ElitismSelection implements SelectionStrategy {
         }
         return elitism;
     }
+
+    /**
+     * Selects the fittest chromosomes into an existing array. The selected chromosomes themselves are
+     * re-inserted into the population instead of copies, so the caller has to copy them before
+     * modifying them; this keeps the selection free of allocations.
+     *
+     * @param currentGeneration The current population from which to select the elite chromosomes.
+     * @param elitism The array that receives the elite chromosomes.
+     * @param amountToSelect The number of elite chromosomes to be selected.
+     */
+    @Override
+    public void selectNextGeneration(PopulationImplementation currentGeneration, Chromosome[] elitism, int amountToSelect) {
+        for (int i = 0; i < amountToSelect; i++) {
+            elitism[i] = currentGeneration.popHighest();
+        }
+
+        for (int i = 0; i < amountToSelect; i++) {
+            currentGeneration.insert(elitism[i]);
+        }
+    }
 }
@@ -2,6 +2,9 @@ package model.genetic_algorithm.selection;
 
 import model.genetic_algorithm.population_structure.Chromosome;
 import model.genetic_algorithm.population_structure.populations.PopulationImplementation;
+import model.utils.RandomProvider;
+
+import java.util.SplittableRandom;
 
 /**
  * Implements the roulette wheel selection strategy for a genetic algorithm. This probabilistic selection method
@@ -24,8 +27,23 @@ public class RouletteWheelSelection implements SelectionStrategy{
      */
     @Override
     public Chromosome[] selectNextGeneration(PopulationImplementation currentGeneration, int amountToSelect) {
-        double totalFitness = sumFitness(currentGeneration);
         Chromosome[] selectedChromosomes = new Chromosome[amountToSelect];
+        selectNextGeneration(currentGeneration, selectedChromosomes, amountToSelect);
+        return selectedChromosomes;
+    }
+
+    /**
+     * Selects the chromosomes with the roulette wheel approach into an existing array.
+     *
+     * @param currentGeneration The current population from which to select the next generation.
+     * @param selectedChromosomes The array that receives the selected chromosomes.
+     * @param amountToSelect The number of chromosomes to be selected for the next generation.
+     */
+    @Override
+    public void selectNextGeneration(PopulationImplementation currentGeneration, Chromosome[] selectedChromosomes,
+                                     int amountToSelect) {
+        double totalFitness = sumFitness(currentGeneration);
+        SplittableRandom random = RandomProvider.current();
 
         double randomNumber;
         double cumulativeFitness;
@@ -33,7 +51,7 @@ public class RouletteWheelSelection implements SelectionStrategy{
         boolean select;
 
         for (int i = 0; i < amountToSelect; i++) {
-            randomNumber = Math.random() * totalFitness;
+            randomNumber = random.nextDouble() * totalFitness;
             cumulativeFitness = 0.0;
 
             select = false;
@@ -45,9 +63,6 @@ public class RouletteWheelSelection implements SelectionStrategy{
                 }
             }
         }
-        return selectedChromosomes;
-
-
     }
 
     /**
@@ -21,4 +21,14 @@ public interface SelectionStrategy {
      * @return An array of chromosomes selected to form the next generation.
      */
     Chromosome[] selectNextGeneration(PopulationImplementation currentGeneration, int amountToSelect);
+
+    /**
+     * Performs the same selection but writes the selected chromosomes into an existing array instead
+     * of allocating a new one, so the selection can be repeated every generation without allocating.
+     *
+     * @param currentGeneration The current population from which to select the next generation.
+     * @param selected The array that receives the selected chromosomes.
+     * @param amountToSelect The number of chromosomes to be selected from the current population.
+     */
+    void selectNextGeneration(PopulationImplementation currentGeneration, Chromosome[] selected, int amountToSelect);
 }
@@ -0,0 +1,75 @@
+package model.image;
+
+/**
+ * An image whose pixels are held in one array of packed ARGB ints, row by row.
+ */
+public class ArgbImage implements PixelBuffer {
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+
+    /**
+     * Constructs a transparent black image.
+     *
+     * @param width The width of the image in pixels.
+     * @param height The height of the image in pixels.
+     * @throws IllegalArgumentException if the image has more pixels than an array can hold.
+     */
+    public ArgbImage(int width, int height) {
+        this(width, height, new int[pixelCount(width, height)]);
+    }
+
+    /**
+     * Constructs an image over an existing pixel array, which is used without copying.
+     *
+     * @param width The width of the image in pixels.
+     * @param height The height of the image in pixels.
+     * @param pixels The packed ARGB pixels, row by row.
+     * @throws IllegalArgumentException if the array does not hold width * height pixels.
+     */
+    public ArgbImage(int width, int height, int[] pixels) {
+        if (width < 0 || height < 0 || pixels.length != (long) width * height) {
+            throw new IllegalArgumentException("A " + width + "x" + height + " image cannot hold " + pixels.length + " pixels");
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getArgb(int index) {
+        return pixels[index];
+    }
+
+    @Override
+    public void getPixels(int index, int[] destination, int offset, int length) {
+        System.arraycopy(pixels, index, destination, offset, length);
+    }
+
+    /**
+     * Returns the pixel array backing the image, changes to it change the image.
+     *
+     * @return The packed ARGB pixels, row by row.
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    private static int pixelCount(int width, int height) {
+        long count = (long) width * height;
+        if (width < 0 || height < 0 || count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A " + width + "x" + height + " image does not fit into one array");
+        }
+        return (int) count;
+    }
+}
@@ -0,0 +1,166 @@
+package model.image;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Keeps the covers of recent encodes decoded and prepared, so that encoding another payload into a cover
+ * already seen skips decoding it. Covers are keyed by the SHA-256 of their encoded bytes, so the same image
+ * is found whatever its file name, and a changed file is never mistaken for the cover it replaced.
+ * <p>
+ * The cache holds at most {@code maxBytes} of prepared covers, estimated by
+ * {@link PreparedCover#getSizeInBytes()}, and evicts the least recently used ones first. A cover larger
+ * than the whole cache is prepared and returned but not kept. The cache is safe to use from any number of
+ * threads; covers are decoded outside its lock, so two threads missing the same cover at once both decode
+ * it and the first one kept is shared.
+ */
+public class CoverCache {
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, PreparedCover> covers = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeInBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param maxBytes The memory the prepared covers may hold in bytes, 0 keeps none.
+     * @throws IllegalArgumentException if the size is negative.
+     */
+    public CoverCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("The size of the cache cannot be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the prepared cover of an image file, reading the whole file to hash it.
+     *
+     * @param file The image file.
+     * @return The prepared cover.
+     * @throws IOException if the file cannot be read or is not a supported image.
+     */
+    public PreparedCover get(Path file) throws IOException {
+        return get(Files.readAllBytes(file));
+    }
+
+    /**
+     * Returns the prepared cover of an encoded image, decoding and preparing it unless it is cached.
+     *
+     * @param encoded The bytes of the image file, only read.
+     * @return The prepared cover.
+     * @throws IOException if the bytes are not a supported image.
+     */
+    public PreparedCover get(byte[] encoded) throws IOException {
+        String key = hash(encoded);
+        synchronized (this) {
+            PreparedCover cover = covers.get(key);
+            if (cover != null) {
+                hits++;
+                return cover;
+            }
+            misses++;
+        }
+
+        PreparedCover prepared = new PreparedCover(ImageFiles.read(new ByteArrayInputStream(encoded)));
+        synchronized (this) {
+            PreparedCover kept = covers.get(key);
+            if (kept != null) {
+                return kept;
+            }
+            if (prepared.getSizeInBytes() <= maxBytes) {
+                covers.put(key, prepared);
+                sizeInBytes += prepared.getSizeInBytes();
+                evictToFit();
+            }
+        }
+        return prepared;
+    }
+
+    /**
+     * Drops every cover, the counters are kept.
+     */
+    public synchronized void clear() {
+        covers.clear();
+        sizeInBytes = 0;
+    }
+
+    /**
+     * @return The largest memory the prepared covers may hold in bytes.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return The memory the prepared covers hold in bytes, roughly.
+     */
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * @return The number of covers kept.
+     */
+    public synchronized int getEntries() {
+        return covers.size();
+    }
+
+    /**
+     * @return The number of requests answered with a kept cover.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of requests that decoded the cover.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return The number of covers dropped to make room for others.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT, "cover cache: %d hits, %d misses, %d evictions, %d covers in %.1f of %.1f MB",
+                hits, misses, evictions, covers.size(), sizeInBytes / BYTES_PER_MEGABYTE, maxBytes / BYTES_PER_MEGABYTE);
+    }
+
+    private void evictToFit() {
+        Iterator<Map.Entry<String, PreparedCover>> eldest = covers.entrySet().iterator();
+        while (sizeInBytes > maxBytes && eldest.hasNext()) {
+            sizeInBytes -= eldest.next().getValue().getSizeInBytes();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static String hash(byte[] encoded) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance(HASH_ALGORITHM).digest(encoded));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is missing, every Java platform has it", e);
+        }
+    }
+}
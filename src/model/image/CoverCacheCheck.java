@@ -0,0 +1,88 @@
+package model.image;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Verifies the {@link CoverCache}: covers are found by their content, the least recently used ones are
+ * evicted to stay within the size, and a cover larger than the cache is not kept. Prints the time of a
+ * miss and of a hit on a 1920x1080 cover. Exits with status 1 if any check fails.
+ */
+public class CoverCacheCheck {
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(7);
+        byte[] a = png(randomImage(64, 48, random));
+        byte[] b = png(randomImage(64, 48, random));
+        byte[] c = png(randomImage(64, 48, random));
+        long entryBytes = new PreparedCover(ImageFiles.read(new ByteArrayInputStream(a))).getSizeInBytes();
+
+        CoverCache cache = new CoverCache(2 * entryBytes);
+        PreparedCover first = cache.get(a);
+        check(cache.get(a.clone()) == first, "the same content in another array is a hit");
+        check(cache.getHits() == 1 && cache.getMisses() == 1, "one hit and one miss are counted");
+        check(Arrays.equals(first.getImage().getPixels(), ImageFiles.read(new ByteArrayInputStream(a)).getPixels()),
+                "the cached cover holds the decoded pixels");
+
+        cache.get(b);
+        cache.get(a); // b is now the least recently used
+        cache.get(c);
+        check(cache.getEvictions() == 1 && cache.getEntries() == 2, "a third cover evicts one of two");
+        check(cache.getSizeInBytes() <= cache.getMaxBytes(), "the cache stays within its size");
+        long misses = cache.getMisses();
+        cache.get(a);
+        check(cache.getMisses() == misses, "the recently used cover is kept");
+        cache.get(b);
+        check(cache.getMisses() == misses + 1, "the least recently used cover was evicted");
+
+        CoverCache small = new CoverCache(entryBytes - 1);
+        small.get(a);
+        check(small.getEntries() == 0 && small.getSizeInBytes() == 0, "a cover larger than the cache is not kept");
+
+        timeLargeCover(random);
+
+        System.out.println(failures == 0 ? "all checks passed" : failures + " checks failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void timeLargeCover(Random random) throws IOException {
+        byte[] large = png(randomImage(1920, 1080, random));
+        CoverCache cache = new CoverCache(64L * 1024 * 1024);
+        long start = System.nanoTime();
+        cache.get(large);
+        long miss = System.nanoTime() - start;
+        start = System.nanoTime();
+        cache.get(large);
+        long hit = System.nanoTime() - start;
+        System.out.printf(Locale.ROOT, "1920x1080 cover: miss %.1f ms, hit %.1f ms%n", miss / 1e6, hit / 1e6);
+        check(hit < miss, "a hit is faster than a miss");
+    }
+
+    private static ArgbImage randomImage(int width, int height, Random random) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return new ArgbImage(width, height, pixels);
+    }
+
+    private static byte[] png(ArgbImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PngWriter().write(image, out);
+        return out.toByteArray();
+    }
+
+    private static void check(boolean passed, String description) {
+        System.out.println((passed ? "ok     " : "FAILED ") + description);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package model.image;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Reads image files with ImageIO and writes PNGs with a {@link PngWriter}, neither needs a display or a UI
+ * toolkit, so images can be encoded and decoded on a server. The pixels are read in bulk from a
+ * {@link BufferedImage} into an {@link ArgbImage}.
+ */
+public class ImageFiles {
+
+    private ImageFiles() {
+    }
+
+    /**
+     * Reads an image file in any format ImageIO understands.
+     *
+     * @param file The file to read.
+     * @return A new image holding the pixels of the file.
+     * @throws IOException if the file cannot be read or is not an image.
+     */
+    public static ArgbImage read(Path file) throws IOException {
+        BufferedImage image = ImageIO.read(file.toFile());
+        if (image == null) {
+            throw new IOException("Not a supported image: " + file);
+        }
+        return toArgbImage(image);
+    }
+
+    /**
+     * Reads an image in any format ImageIO understands from a stream, such as the body of a request.
+     *
+     * @param stream The stream to read, it is not closed.
+     * @return A new image holding the pixels of the stream.
+     * @throws IOException if the stream cannot be read or is not an image.
+     */
+    public static ArgbImage read(InputStream stream) throws IOException {
+        BufferedImage image = ImageIO.read(stream);
+        if (image == null) {
+            throw new IOException("Not a supported image");
+        }
+        return toArgbImage(image);
+    }
+
+    /**
+     * Writes an image as a PNG file, which is lossless and keeps every embedded bit. The pixels are read
+     * straight from the image by a {@link PngWriter} with its default settings, without a copy of the image.
+     *
+     * @param image The image to write.
+     * @param file The file to write, created or replaced.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writePng(PixelBuffer image, Path file) throws IOException {
+        new PngWriter().write(image, file);
+    }
+
+    /**
+     * Writes an image as a PNG file with the compression level, filter and threads of a writer.
+     *
+     * @param image The image to write.
+     * @param file The file to write, created or replaced.
+     * @param writer The writer holding the settings, which may be shared by threads as long as it is not changed.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writePng(PixelBuffer image, Path file, PngWriter writer) throws IOException {
+        writer.write(image, file);
+    }
+
+    /**
+     * Reads all pixels of a BufferedImage, converting them to 8 bit ARGB.
+     *
+     * @param image The image to read.
+     * @return A new image holding the pixels.
+     */
+    public static ArgbImage toArgbImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        return new ArgbImage(width, height, pixels);
+    }
+}
@@ -0,0 +1,53 @@
+package model.image;
+
+/**
+ * A read-only view of the pixels of an image as packed ARGB ints, 8 bits per channel with alpha in the
+ * highest byte. Pixels are addressed row by row, pixel {@code (x, y)} has the index {@code y * width + x}.
+ * The model works on this view instead of a UI toolkit image, so the same code serves the UI, the command
+ * line and images that only exist as an overlay over another image.
+ */
+public interface PixelBuffer {
+
+    /**
+     * @return The width of the image in pixels.
+     */
+    int getWidth();
+
+    /**
+     * @return The height of the image in pixels.
+     */
+    int getHeight();
+
+    /**
+     * Returns a pixel by its index.
+     *
+     * @param index The index of the pixel, {@code y * width + x}.
+     * @return The packed ARGB value of the pixel.
+     */
+    int getArgb(int index);
+
+    /**
+     * Returns a pixel by its coordinates.
+     *
+     * @param x The column of the pixel.
+     * @param y The row of the pixel.
+     * @return The packed ARGB value of the pixel.
+     */
+    default int getArgb(int x, int y) {
+        return getArgb(y * getWidth() + x);
+    }
+
+    /**
+     * Copies consecutive pixels into an array.
+     *
+     * @param index The index of the first pixel to copy.
+     * @param destination The array receiving the pixels.
+     * @param offset The index in the array of the first copied pixel.
+     * @param length The number of pixels to copy.
+     */
+    default void getPixels(int index, int[] destination, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            destination[offset + i] = getArgb(index + i);
+        }
+    }
+}
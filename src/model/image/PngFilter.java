@@ -0,0 +1,39 @@
+package model.image;
+
+/**
+ * Enumerates the filters the {@link PngWriter} can apply to every row before compressing it. A filter
+ * replaces every byte by its difference to a prediction from the bytes to its left and above, which
+ * compresses better than the bytes themselves.
+ */
+public enum PngFilter {
+    /**
+     * The bytes are kept, the fastest choice.
+     */
+    NONE,
+
+    /**
+     * Every byte is predicted by the same channel of the pixel to its left.
+     */
+    SUB,
+
+    /**
+     * Every byte is predicted by the same byte of the row above.
+     */
+    UP,
+
+    /**
+     * Every byte is predicted by the mean of the bytes to its left and above.
+     */
+    AVERAGE,
+
+    /**
+     * Every byte is predicted by whichever of left, above and above left is closest to left + above - above left.
+     */
+    PAETH,
+
+    /**
+     * Every row is filtered with all five filters and the one with the smallest sum of absolute differences is
+     * kept, the heuristic of libpng and ImageIO.
+     */
+    ADAPTIVE
+}
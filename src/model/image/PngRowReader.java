@@ -0,0 +1,246 @@
+package model.image;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes the rows of a PNG file from the top, inflating the image data only as far as the rows asked for,
+ * so the rest of the file is never read. ImageIO decodes every row of a PNG even when asked for a region.
+ * <p>
+ * Only non-interlaced PNGs of 8 bit RGB or RGBA without a transparent color are decoded here, which covers
+ * the images written by {@link ImageFiles#writePng}. {@link #open(Path)} returns null for any other file,
+ * which is left to ImageIO.
+ */
+class PngRowReader implements RowStreamingImage.RowSource {
+    private static final long PNG_SIGNATURE = 0x89504E470D0A1A0AL;
+    private static final int IHDR = 0x49484452;
+    private static final int IDAT = 0x49444154;
+    private static final int TRNS = 0x74524E53;
+    private static final int COLOR_RGB = 2;
+    private static final int COLOR_RGBA = 6;
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final DataInputStream input;
+    private final Inflater inflater = new Inflater();
+    private final byte[] compressed = new byte[INPUT_BUFFER_SIZE];
+    private final int width;
+    private final int height;
+    private final int bytesPerPixel;
+
+    // the filter type followed by the bytes of a row, the previous row is all 0 before the first one
+    private byte[] row;
+    private byte[] previousRow;
+    private int rowsRead;
+    private int remainingInChunk;
+
+    private PngRowReader(DataInputStream input, int width, int height, int bytesPerPixel, int firstChunkLength) {
+        this.input = input;
+        this.width = width;
+        this.height = height;
+        this.bytesPerPixel = bytesPerPixel;
+        this.row = new byte[1 + width * bytesPerPixel];
+        this.previousRow = new byte[row.length];
+        this.remainingInChunk = firstChunkLength;
+    }
+
+    /**
+     * Opens a PNG file and reads its chunks up to the start of the image data.
+     *
+     * @param file The file to open.
+     * @return The reader positioned at the first row, or null if the file is not a PNG this class decodes.
+     * @throws IOException if the file cannot be read.
+     */
+    static PngRowReader open(Path file) throws IOException {
+        InputStream stream = new BufferedInputStream(Files.newInputStream(file), INPUT_BUFFER_SIZE);
+        PngRowReader reader = null;
+        try {
+            reader = open(stream);
+            return reader;
+        } finally {
+            if (reader == null) {
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * Reads a PNG from a stream up to the start of the image data, like {@link #open(Path)}. A stream that
+     * is not a PNG this class decodes is left open where the reading stopped.
+     *
+     * @param stream The stream to read, closed by {@link #close()}.
+     * @return The reader positioned at the first row, or null if the stream is not a PNG this class decodes.
+     * @throws IOException if the stream cannot be read.
+     */
+    static PngRowReader open(InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        try {
+            if (input.readLong() != PNG_SIGNATURE || input.readInt() != 13 || input.readInt() != IHDR) {
+                return null;
+            }
+            int width = input.readInt();
+            int height = input.readInt();
+            int bitDepth = input.readUnsignedByte();
+            int colorType = input.readUnsignedByte();
+            input.skipNBytes(2); // compression and filter method, both always 0
+            int interlace = input.readUnsignedByte();
+            input.skipNBytes(4); // CRC
+            if (bitDepth != 8 || (colorType != COLOR_RGB && colorType != COLOR_RGBA) || interlace != 0
+                    || width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            // skip the chunks before the image data
+            while (true) {
+                int length = input.readInt();
+                int type = input.readInt();
+                if (type == IDAT) {
+                    return new PngRowReader(input, width, height, colorType == COLOR_RGBA ? 4 : 3, length);
+                }
+                if (type == TRNS) {
+                    // a transparent color, ImageIO turns it into an alpha channel
+                    return null;
+                }
+                input.skipNBytes(Integer.toUnsignedLong(length) + 4);
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void readRows(int firstRow, int rowCount, int[] destination, int offset) throws IOException {
+        if (firstRow != rowsRead || firstRow + rowCount > height) {
+            throw new IllegalArgumentException("Rows " + firstRow + " to " + (firstRow + rowCount) + " cannot be read after row " + rowsRead);
+        }
+        for (int i = 0; i < rowCount; i++) {
+            byte[] swap = previousRow;
+            previousRow = row;
+            row = swap;
+            inflate(row);
+            unfilter();
+            toArgb(destination, offset + i * width);
+            rowsRead++;
+        }
+    }
+
+    private void inflate(byte[] buffer) throws IOException {
+        try {
+            int done = 0;
+            while (done < buffer.length) {
+                int inflated = inflater.inflate(buffer, done, buffer.length - done);
+                done += inflated;
+                if (inflated == 0) {
+                    if (inflater.finished() || inflater.needsDictionary()) {
+                        throw new EOFException("The image data ends before row " + rowsRead);
+                    }
+                    if (inflater.needsInput()) {
+                        fillInput();
+                    }
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Damaged image data", e);
+        }
+    }
+
+    /**
+     * Hands the next compressed bytes to the inflater, the image data may be split into many chunks.
+     */
+    private void fillInput() throws IOException {
+        while (remainingInChunk == 0) {
+            input.skipNBytes(4); // CRC of the last chunk
+            int length = input.readInt();
+            if (input.readInt() != IDAT) {
+                throw new EOFException("The image data ends before row " + rowsRead);
+            }
+            remainingInChunk = length;
+        }
+        int read = input.read(compressed, 0, Math.min(compressed.length, remainingInChunk));
+        if (read < 0) {
+            throw new EOFException("The file ends before row " + rowsRead);
+        }
+        remainingInChunk -= read;
+        inflater.setInput(compressed, 0, read);
+    }
+
+    /**
+     * Reverses the filter of the row against the previous row.
+     */
+    private void unfilter() throws IOException {
+        int filter = row[0];
+        switch (filter) {
+            case 0 -> {
+            }
+            case 1 -> {
+                for (int i = 1 + bytesPerPixel; i < row.length; i++) {
+                    row[i] += row[i - bytesPerPixel];
+                }
+            }
+            case 2 -> {
+                for (int i = 1; i < row.length; i++) {
+                    row[i] += previousRow[i];
+                }
+            }
+            case 3 -> {
+                for (int i = 1; i < row.length; i++) {
+                    int left = i > bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+                    row[i] += (byte) ((left + (previousRow[i] & 0xFF)) >>> 1);
+                }
+            }
+            case 4 -> {
+                for (int i = 1; i < row.length; i++) {
+                    int left = i > bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+                    int upLeft = i > bytesPerPixel ? previousRow[i - bytesPerPixel] & 0xFF : 0;
+                    row[i] += (byte) paeth(left, previousRow[i] & 0xFF, upLeft);
+                }
+            }
+            default -> throw new IOException("Unknown PNG filter " + filter + " in row " + rowsRead);
+        }
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        int estimate = left + up - upLeft;
+        int distanceLeft = Math.abs(estimate - left);
+        int distanceUp = Math.abs(estimate - up);
+        int distanceUpLeft = Math.abs(estimate - upLeft);
+        if (distanceLeft <= distanceUp && distanceLeft <= distanceUpLeft) {
+            return left;
+        }
+        return distanceUp <= distanceUpLeft ? up : upLeft;
+    }
+
+    private void toArgb(int[] destination, int offset) {
+        if (bytesPerPixel == 4) {
+            for (int x = 0, i = 1; x < width; x++, i += 4) {
+                destination[offset + x] = (row[i + 3] & 0xFF) << 24 | (row[i] & 0xFF) << 16 | (row[i + 1] & 0xFF) << 8 | (row[i + 2] & 0xFF);
+            }
+        } else {
+            for (int x = 0, i = 1; x < width; x++, i += 3) {
+                destination[offset + x] = 0xFF000000 | (row[i] & 0xFF) << 16 | (row[i + 1] & 0xFF) << 8 | (row[i + 2] & 0xFF);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        input.close();
+    }
+}
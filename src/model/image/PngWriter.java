@@ -0,0 +1,533 @@
+package model.image;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a {@link PixelBuffer} as a PNG file, reading the pixels straight from the buffer a row at a time,
+ * so no second copy of the image exists while it is written. Images without transparency are written as
+ * RGB, the others as RGBA, 8 bits per channel and not interlaced.
+ * <p>
+ * The compression level and the row filter can be set. With more than one thread the rows are split into
+ * chunks of about {@link #CHUNK_SIZE} bytes which are filtered and deflated in parallel, every chunk
+ * primed with the last 32 KB of the one before it, and the compressed chunks are joined into a single zlib
+ * stream in order, the way pigz does. The file decodes to the same pixels with any number of threads.
+ * Every write starts a pool of its own unless an executor is set, which writers running at once share to
+ * bound the number of threads deflating.
+ * The image is then read from several threads at once, which all the buffers of the model allow, apart from
+ * a {@link RowStreamingImage}.
+ */
+public class PngWriter {
+
+    /**
+     * The number of uncompressed bytes deflated by one task when writing in parallel.
+     */
+    public static final int CHUNK_SIZE = 1 << 20;
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IHDR = 0x49484452;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454E44;
+    private static final int COLOR_RGB = 2;
+    private static final int COLOR_RGBA = 6;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private int compressionLevel = 6;
+    private PngFilter filter = PngFilter.ADAPTIVE;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private ExecutorService executor;
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * @param compressionLevel The deflate level, from 0 for no compression to 9 for the smallest file.
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException("The compression level must be from 0 to 9, not " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    public PngFilter getFilter() {
+        return filter;
+    }
+
+    public void setFilter(PngFilter filter) {
+        this.filter = filter;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param threads The number of threads deflating chunks of rows, 1 to deflate the rows in one stream.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed, not " + threads);
+        }
+        this.threads = threads;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @param executor The executor deflating the chunks of rows, which is never shut down by the writer, or
+     *                 null to start a pool of {@link #getThreads()} threads for every write. At most
+     *                 {@code 2 * threads} chunks of a write are in flight either way.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Writes an image into a PNG file.
+     *
+     * @param image The image to write.
+     * @param file The file to write, created or replaced.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(PixelBuffer image, Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE)) {
+            write(image, out);
+        }
+    }
+
+    /**
+     * Writes an image as a PNG into a stream.
+     *
+     * @param image The image to write.
+     * @param out The stream to write to, it is not closed.
+     * @throws IOException if the stream fails.
+     */
+    public void write(PixelBuffer image, OutputStream out) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("A PNG cannot be " + width + "x" + height);
+        }
+        int bytesPerPixel = hasTransparency(image) ? 4 : 3;
+
+        out.write(PNG_SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8;
+        header[9] = (byte) (bytesPerPixel == 4 ? COLOR_RGBA : COLOR_RGB);
+        writeChunk(out, IHDR, header, 0, header.length);
+
+        IdatOutputStream idat = new IdatOutputStream(out);
+        long filteredBytes = (long) height * (1 + Math.multiplyExact(width, bytesPerPixel));
+        if (threads > 1 && filteredBytes > CHUNK_SIZE) {
+            writeParallel(image, bytesPerPixel, idat);
+        } else {
+            writeSequential(image, bytesPerPixel, idat);
+        }
+        idat.flush();
+
+        writeChunk(out, IEND, header, 0, 0);
+        out.flush();
+    }
+
+    private void writeSequential(PixelBuffer image, int bytesPerPixel, IdatOutputStream idat) throws IOException {
+        RowFilter rows = new RowFilter(image, bytesPerPixel, filter);
+        byte[] row = new byte[rows.filteredRowSize()];
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            DeflaterOutputStream zlib = new DeflaterOutputStream(idat, deflater, BUFFER_SIZE);
+            for (int y = 0; y < image.getHeight(); y++) {
+                rows.filterRows(y, 1, row, 0);
+                zlib.write(row);
+            }
+            zlib.finish();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Deflates chunks of rows on a pool of threads, writing them in order as they complete. At most two
+     * chunks per thread are in flight, so the memory stays bounded however large the image is.
+     */
+    private void writeParallel(PixelBuffer image, int bytesPerPixel, IdatOutputStream idat) throws IOException {
+        int filteredRowSize = 1 + image.getWidth() * bytesPerPixel;
+        int rowsPerChunk = Math.max(1, CHUNK_SIZE / filteredRowSize);
+        int height = image.getHeight();
+
+        // the zlib header of the deflate level, then the raw deflate chunks, then the Adler-32 of all rows
+        idat.write(0x78);
+        idat.write(zlibFlags(compressionLevel));
+        long adler = 1;
+
+        ExecutorService pool = executor != null ? executor : Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<CompressedChunk>> pending = new ArrayDeque<>();
+        try {
+            for (int firstRow = 0; firstRow < height; firstRow += rowsPerChunk) {
+                int first = firstRow;
+                int count = Math.min(rowsPerChunk, height - firstRow);
+                pending.add(pool.submit(() -> compressChunk(image, bytesPerPixel, first, count, first + count == height)));
+                if (pending.size() >= 2 * threads) {
+                    adler = writeCompressed(pending.poll(), idat, adler);
+                }
+            }
+            while (!pending.isEmpty()) {
+                adler = writeCompressed(pending.poll(), idat, adler);
+            }
+        } finally {
+            if (pool == executor) {
+                // the chunks left after a failure must not keep a shared executor busy
+                pending.forEach(future -> future.cancel(true));
+            } else {
+                pool.shutdownNow();
+            }
+        }
+
+        byte[] checksum = new byte[4];
+        putInt(checksum, 0, (int) adler);
+        idat.write(checksum);
+    }
+
+    private static long writeCompressed(Future<CompressedChunk> future, OutputStream out, long adler) throws IOException {
+        CompressedChunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing a PNG");
+        } catch (ExecutionException e) {
+            throw new IOException("Compressing a PNG failed", e.getCause());
+        }
+        out.write(chunk.data, 0, chunk.length);
+        return combineAdler32(adler, chunk.adler, chunk.uncompressedLength);
+    }
+
+    /**
+     * Filters and deflates a chunk of rows into a raw deflate block sequence ending on a byte boundary, the
+     * last chunk ends the deflate stream.
+     */
+    private CompressedChunk compressChunk(PixelBuffer image, int bytesPerPixel, int firstRow, int rowCount, boolean last) {
+        RowFilter rows = new RowFilter(image, bytesPerPixel, filter);
+        int rowSize = rows.filteredRowSize();
+        Deflater deflater = new Deflater(compressionLevel, true);
+        try {
+            if (firstRow > 0) {
+                // the rows before the chunk, filtered again, let it refer back into the previous chunk
+                int dictionaryRows = Math.min(firstRow, (DICTIONARY_SIZE + rowSize - 1) / rowSize);
+                byte[] dictionary = new byte[dictionaryRows * rowSize];
+                rows.filterRows(firstRow - dictionaryRows, dictionaryRows, dictionary, 0);
+                int length = Math.min(DICTIONARY_SIZE, dictionary.length);
+                deflater.setDictionary(dictionary, dictionary.length - length, length);
+            }
+            byte[] filtered = new byte[rowCount * rowSize];
+            rows.filterRows(firstRow, rowCount, filtered, 0);
+            Adler32 adler = new Adler32();
+            adler.update(filtered);
+
+            deflater.setInput(filtered);
+            byte[] compressed = new byte[Math.max(BUFFER_SIZE, filtered.length / 2)];
+            int length = 0;
+            if (last) {
+                deflater.finish();
+            }
+            while (true) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                int space = compressed.length - length;
+                int written = deflater.deflate(compressed, length, space, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                length += written;
+                if (last ? deflater.finished() : written < space) {
+                    break;
+                }
+            }
+            return new CompressedChunk(compressed, length, (int) adler.getValue(), filtered.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Combines the Adler-32 of two consecutive pieces of data, as zlib's adler32_combine.
+     */
+    private static long combineAdler32(long first, long second, long secondLength) {
+        final long base = 65521;
+        long remainder = secondLength % base;
+        long sum1 = first & 0xFFFF;
+        long sum2 = remainder * sum1 % base;
+        sum1 += (second & 0xFFFF) + base - 1;
+        sum2 += ((first >>> 16) & 0xFFFF) + ((second >>> 16) & 0xFFFF) + base - remainder;
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum2 >= base << 1) {
+            sum2 -= base << 1;
+        }
+        if (sum2 >= base) {
+            sum2 -= base;
+        }
+        return sum1 | sum2 << 16;
+    }
+
+    /**
+     * The second byte of a zlib header, which records the level and makes the header a multiple of 31.
+     */
+    private static int zlibFlags(int level) {
+        int levelFlags = level <= 1 ? 0 : level <= 5 ? 1 : level == 6 ? 2 : 3;
+        int flags = levelFlags << 6;
+        return flags + 31 - (0x78 * 256 + flags) % 31;
+    }
+
+    private static boolean hasTransparency(PixelBuffer image) {
+        int width = image.getWidth();
+        int[] row = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getPixels(y * width, row, 0, width);
+            for (int argb : row) {
+                if (argb >>> 24 != 0xFF) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void writeChunk(OutputStream out, int type, byte[] data, int offset, int length) throws IOException {
+        byte[] header = new byte[8];
+        putInt(header, 0, length);
+        putInt(header, 4, type);
+        CRC32 crc = new CRC32();
+        crc.update(header, 4, 4);
+        crc.update(data, offset, length);
+        out.write(header);
+        out.write(data, offset, length);
+        byte[] checksum = new byte[4];
+        putInt(checksum, 0, (int) crc.getValue());
+        out.write(checksum);
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /**
+     * The deflated bytes of a chunk of rows and the Adler-32 of its uncompressed bytes.
+     */
+    private static class CompressedChunk {
+        final byte[] data;
+        final int length;
+        final int adler;
+        final int uncompressedLength;
+
+        CompressedChunk(byte[] data, int length, int adler, int uncompressedLength) {
+            this.data = data;
+            this.length = length;
+            this.adler = adler;
+            this.uncompressedLength = uncompressedLength;
+        }
+    }
+
+    /**
+     * Collects the zlib stream into IDAT chunks of {@link #BUFFER_SIZE} bytes. Closing it writes the last
+     * chunk, the underlying stream stays open.
+     */
+    private static class IdatOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int count;
+
+        IdatOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (count == buffer.length) {
+                    flush();
+                }
+                int copied = Math.min(length, buffer.length - count);
+                System.arraycopy(bytes, offset, buffer, count, copied);
+                count += copied;
+                offset += copied;
+                length -= copied;
+            }
+        }
+
+        /**
+         * Writes the collected bytes as one IDAT chunk.
+         */
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                writeChunk(out, IDAT, buffer, 0, count);
+                count = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * Turns rows of pixels into filtered PNG rows: a filter type byte followed by the filtered bytes of
+     * the pixels. The rows are read from the image one at a time, the row above is kept for the filters.
+     */
+    private static class RowFilter {
+        private final PixelBuffer image;
+        private final int width;
+        private final int bytesPerPixel;
+        private final PngFilter filter;
+        private final int[] pixels;
+        private byte[] row;
+        private byte[] rowAbove;
+        // the filtered row for each of the five filter types, only used by the adaptive filter
+        private final byte[][] candidates;
+        private int nextRow = -1;
+
+        RowFilter(PixelBuffer image, int bytesPerPixel, PngFilter filter) {
+            this.image = image;
+            this.width = image.getWidth();
+            this.bytesPerPixel = bytesPerPixel;
+            this.filter = filter;
+            this.pixels = new int[width];
+            this.row = new byte[width * bytesPerPixel];
+            this.rowAbove = new byte[row.length];
+            this.candidates = filter == PngFilter.ADAPTIVE ? new byte[5][1 + row.length] : null;
+        }
+
+        int filteredRowSize() {
+            return 1 + row.length;
+        }
+
+        /**
+         * Filters consecutive rows into a destination, one filtered row after the other.
+         */
+        void filterRows(int firstRow, int rowCount, byte[] destination, int offset) {
+            if (firstRow != nextRow) {
+                if (firstRow > 0) {
+                    readRow(firstRow - 1, rowAbove);
+                } else {
+                    Arrays.fill(rowAbove, (byte) 0);
+                }
+            }
+            for (int y = firstRow; y < firstRow + rowCount; y++) {
+                readRow(y, row);
+                if (filter == PngFilter.ADAPTIVE) {
+                    byte[] best = null;
+                    long bestSum = Long.MAX_VALUE;
+                    for (int type = 0; type < candidates.length; type++) {
+                        long sum = filterRow(type, candidates[type], 0);
+                        if (sum < bestSum) {
+                            bestSum = sum;
+                            best = candidates[type];
+                        }
+                    }
+                    System.arraycopy(best, 0, destination, offset, best.length);
+                } else {
+                    filterRow(filter.ordinal(), destination, offset);
+                }
+                offset += filteredRowSize();
+                byte[] swap = rowAbove;
+                rowAbove = row;
+                row = swap;
+            }
+            nextRow = firstRow + rowCount;
+        }
+
+        private void readRow(int y, byte[] bytes) {
+            image.getPixels(y * width, pixels, 0, width);
+            if (bytesPerPixel == 4) {
+                for (int x = 0, i = 0; x < width; x++, i += 4) {
+                    int argb = pixels[x];
+                    bytes[i] = (byte) (argb >>> 16);
+                    bytes[i + 1] = (byte) (argb >>> 8);
+                    bytes[i + 2] = (byte) argb;
+                    bytes[i + 3] = (byte) (argb >>> 24);
+                }
+            } else {
+                for (int x = 0, i = 0; x < width; x++, i += 3) {
+                    int argb = pixels[x];
+                    bytes[i] = (byte) (argb >>> 16);
+                    bytes[i + 1] = (byte) (argb >>> 8);
+                    bytes[i + 2] = (byte) argb;
+                }
+            }
+        }
+
+        /**
+         * Filters the current row with one filter type, the ordinal of a {@link PngFilter} below ADAPTIVE.
+         *
+         * @return The sum of the absolute values of the filtered bytes, taken as signed, for choosing a filter.
+         */
+        private long filterRow(int type, byte[] destination, int offset) {
+            destination[offset] = (byte) type;
+            int out = offset + 1;
+            int bpp = bytesPerPixel;
+            long sum = 0;
+            for (int i = 0; i < row.length; i++) {
+                int value = row[i] & 0xFF;
+                int left = i >= bpp ? row[i - bpp] & 0xFF : 0;
+                int up = rowAbove[i] & 0xFF;
+                int prediction = switch (type) {
+                    case 0 -> 0;
+                    case 1 -> left;
+                    case 2 -> up;
+                    case 3 -> (left + up) >>> 1;
+                    default -> paeth(left, up, i >= bpp ? rowAbove[i - bpp] & 0xFF : 0);
+                };
+                byte filtered = (byte) (value - prediction);
+                destination[out + i] = filtered;
+                sum += Math.abs(filtered);
+            }
+            return sum;
+        }
+
+        private static int paeth(int left, int up, int upLeft) {
+            int estimate = left + up - upLeft;
+            int distanceLeft = Math.abs(estimate - left);
+            int distanceUp = Math.abs(estimate - up);
+            int distanceUpLeft = Math.abs(estimate - upLeft);
+            if (distanceLeft <= distanceUp && distanceLeft <= distanceUpLeft) {
+                return left;
+            }
+            return distanceUp <= distanceUpLeft ? up : upLeft;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package model.image;
+
+/**
+ * A decoded cover image that can be shared by any number of encodes into it, for instance through a
+ * {@link CoverCache}, so that the cover is decoded once. The tables an encode derives from the cover only
+ * cover the pixels its payload is embedded into, so every encode computes them from the pixels in time
+ * proportional to its payload rather than keeping a table of the whole frame here. The image is never
+ * changed once constructed.
+ */
+public class PreparedCover {
+    private static final long OBJECT_OVERHEAD = 64; // the objects and array headers, roughly
+
+    private final ArgbImage image;
+
+    /**
+     * Prepares a cover.
+     *
+     * @param image The decoded cover, used without copying and never changed.
+     */
+    public PreparedCover(ArgbImage image) {
+        this.image = image;
+    }
+
+    /**
+     * @return The decoded cover.
+     */
+    public ArgbImage getImage() {
+        return image;
+    }
+
+    /**
+     * @return The memory held by the cover in bytes, roughly.
+     */
+    public long getSizeInBytes() {
+        return (long) image.getPixels().length * Integer.BYTES + OBJECT_OVERHEAD;
+    }
+}
@@ -0,0 +1,269 @@
+package model.image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * An image file whose rows are decoded from the top as far as its pixels are asked for. The embedded
+ * sections are the leading pixels of an image, so extracting a short payload from a large image decodes
+ * only its first rows: the rows of the metadata first, then the rows its data length asks for.
+ * <p>
+ * PNGs are decoded by a {@link PngRowReader}, which stops inflating after the last row asked for. Other
+ * formats are read with an ImageIO source region per read, which keeps the memory to the rows read but may
+ * decode the file from its start each time, so the rows read at once double every time. A PNG can also be
+ * decoded from a stream, other formats read from a stream are decoded whole.
+ * <p>
+ * The pixels are read on demand by the methods of {@link PixelBuffer}, which cannot throw checked
+ * exceptions, so a failed read throws an {@link UncheckedIOException}.
+ */
+public class RowStreamingImage implements PixelBuffer, Closeable {
+    private static final int MIN_ROWS_PER_READ = 8;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    // how far into a stream the PNG reader may go before the stream is given to ImageIO instead
+    private static final int STREAM_HEADER_LIMIT = 1 << 20;
+
+    private final RowSource source;
+    private final int width;
+    private final int height;
+
+    // the pixels of the rows read so far
+    private int[] pixels = new int[0];
+    private int rowsRead;
+
+    private RowStreamingImage(RowSource source) {
+        this.source = source;
+        this.width = source.getWidth();
+        this.height = source.getHeight();
+    }
+
+    /**
+     * Opens an image file, reading only its header.
+     *
+     * @param file The file to open.
+     * @return The image, to be closed after use.
+     * @throws IOException if the file cannot be read or is not an image.
+     */
+    public static RowStreamingImage open(Path file) throws IOException {
+        RowSource source = PngRowReader.open(file);
+        if (source == null) {
+            source = RegionReader.open(file);
+        }
+        return new RowStreamingImage(source);
+    }
+
+    /**
+     * Opens an image from a stream, such as the body of a request, reading only its header. A PNG is
+     * decoded from the stream as its rows are asked for; any other format cannot be read by region from a
+     * stream, it is decoded whole by ImageIO right away.
+     *
+     * @param stream The stream to read, closed by {@link #close()}.
+     * @return The image, to be closed after use.
+     * @throws IOException if the stream cannot be read or is not an image.
+     */
+    public static RowStreamingImage open(InputStream stream) throws IOException {
+        BufferedInputStream input = new BufferedInputStream(stream, STREAM_BUFFER_SIZE);
+        input.mark(STREAM_HEADER_LIMIT);
+        RowSource source = PngRowReader.open(input);
+        if (source == null) {
+            try {
+                input.reset();
+            } catch (IOException e) {
+                input.close();
+                throw new IOException("The chunks before the image data are longer than " + STREAM_HEADER_LIMIT + " bytes", e);
+            }
+            source = new DecodedSource(input);
+        } else {
+            // the header is no longer kept for ImageIO
+            input.mark(0);
+        }
+        return new RowStreamingImage(source);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getArgb(int index) {
+        readPixels(index + 1);
+        return pixels[index];
+    }
+
+    @Override
+    public void getPixels(int index, int[] destination, int offset, int length) {
+        readPixels(index + length);
+        System.arraycopy(pixels, index, destination, offset, length);
+    }
+
+    /**
+     * @return The number of rows decoded so far.
+     */
+    public int getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Makes sure the first pixels of the image are read, reading further rows if needed.
+     *
+     * @param count The number of leading pixels needed.
+     */
+    private void readPixels(int count) {
+        if (count <= (long) rowsRead * width) {
+            return;
+        }
+        int rowsNeeded = (int) Math.min(height, ((long) count + width - 1) / width);
+        int rows = Math.min(height, Math.max(rowsNeeded, Math.max(MIN_ROWS_PER_READ, 2 * rowsRead)));
+        int[] grown = Arrays.copyOf(pixels, rows * width);
+        try {
+            source.readRows(rowsRead, rows - rowsRead, grown, rowsRead * width);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        pixels = grown;
+        rowsRead = rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    /**
+     * Decodes rows of an image file into packed ARGB pixels.
+     */
+    interface RowSource extends Closeable {
+
+        int getWidth();
+
+        int getHeight();
+
+        /**
+         * Decodes consecutive rows, which follow the rows decoded before.
+         *
+         * @param firstRow The index of the first row.
+         * @param rowCount The number of rows.
+         * @param destination The array receiving the pixels.
+         * @param offset The index in the array of the first pixel.
+         * @throws IOException if the file cannot be read.
+         */
+        void readRows(int firstRow, int rowCount, int[] destination, int offset) throws IOException;
+    }
+
+    /**
+     * The rows of an image decoded whole by ImageIO from a stream, which cannot be read by region.
+     */
+    private static class DecodedSource implements RowSource {
+        private final ArgbImage image;
+
+        DecodedSource(InputStream input) throws IOException {
+            try (input) {
+                BufferedImage decoded = ImageIO.read(input);
+                if (decoded == null) {
+                    throw new IOException("Not a supported image");
+                }
+                image = ImageFiles.toArgbImage(decoded);
+            }
+        }
+
+        @Override
+        public int getWidth() {
+            return image.getWidth();
+        }
+
+        @Override
+        public int getHeight() {
+            return image.getHeight();
+        }
+
+        @Override
+        public void readRows(int firstRow, int rowCount, int[] destination, int offset) {
+            int width = image.getWidth();
+            image.getPixels(firstRow * width, destination, offset, rowCount * width);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Reads rows with an ImageIO reader and a source region, for any format ImageIO understands.
+     */
+    private static class RegionReader implements RowSource {
+        private final ImageInputStream input;
+        private final ImageReader reader;
+        private final int width;
+        private final int height;
+
+        private RegionReader(ImageInputStream input, ImageReader reader) throws IOException {
+            this.input = input;
+            this.reader = reader;
+            this.width = reader.getWidth(0);
+            this.height = reader.getHeight(0);
+        }
+
+        static RegionReader open(Path file) throws IOException {
+            ImageInputStream input = ImageIO.createImageInputStream(file.toFile());
+            if (input == null) {
+                throw new IOException("Cannot read " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                input.close();
+                throw new IOException("Not a supported image: " + file);
+            }
+            ImageReader reader = readers.next();
+            reader.setInput(input, false, true);
+            try {
+                return new RegionReader(input, reader);
+            } catch (IOException e) {
+                reader.dispose();
+                input.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public void readRows(int firstRow, int rowCount, int[] destination, int offset) throws IOException {
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(new Rectangle(0, firstRow, width, rowCount));
+            BufferedImage region = reader.read(0, param);
+            region.getRGB(0, 0, width, rowCount, destination, offset, width);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.dispose();
+            input.close();
+        }
+    }
+}
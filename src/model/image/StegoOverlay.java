@@ -0,0 +1,82 @@
+package model.image;
+
+/**
+ * A copy-on-write view of a cover image in which only the first pixels differ. Embedding only changes the
+ * pixels holding the compact header (magic, version, data length, swaps, offset, direction, polarity and
+ * CRC32C, see {@link model.data_managers.image_metedate.CompactHeader}) and the data right after it, which
+ * are the first pixels of the image, so a candidate image is represented by those pixels alone while all
+ * others are read from the shared cover.
+ * Evaluating a candidate then costs memory and bandwidth proportional to the payload instead of the cover,
+ * and the full image is only built by {@link #materialize()} for the one that is kept.
+ */
+public class StegoOverlay implements PixelBuffer {
+    private final ArgbImage cover;
+    private final int[] prefix;
+
+    /**
+     * Constructs an overlay whose first pixels are owned by the overlay, initially those of the cover.
+     *
+     * @param cover The cover image, shared and never changed.
+     * @param prefixLength The number of leading pixels the overlay owns, at most the number of pixels of the cover.
+     * @throws IllegalArgumentException if the prefix is longer than the cover.
+     */
+    public StegoOverlay(ArgbImage cover, int prefixLength) {
+        if (prefixLength < 0 || prefixLength > cover.getPixels().length) {
+            throw new IllegalArgumentException("A prefix of " + prefixLength + " pixels does not fit into the cover");
+        }
+        this.cover = cover;
+        this.prefix = new int[prefixLength];
+        System.arraycopy(cover.getPixels(), 0, prefix, 0, prefixLength);
+    }
+
+    @Override
+    public int getWidth() {
+        return cover.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return cover.getHeight();
+    }
+
+    @Override
+    public int getArgb(int index) {
+        return index < prefix.length ? prefix[index] : cover.getArgb(index);
+    }
+
+    @Override
+    public void getPixels(int index, int[] destination, int offset, int length) {
+        int fromPrefix = Math.max(0, Math.min(length, prefix.length - index));
+        if (fromPrefix > 0) {
+            System.arraycopy(prefix, index, destination, offset, fromPrefix);
+        }
+        cover.getPixels(index + fromPrefix, destination, offset + fromPrefix, length - fromPrefix);
+    }
+
+    /**
+     * @return The cover image the overlay reads its remaining pixels from.
+     */
+    public ArgbImage getCover() {
+        return cover;
+    }
+
+    /**
+     * Returns the owned leading pixels, which are written in place to change the overlay.
+     *
+     * @return The packed ARGB pixels of the prefix.
+     */
+    public int[] getPrefixPixels() {
+        return prefix;
+    }
+
+    /**
+     * Builds the full image: the cover pixels with the prefix copied over them.
+     *
+     * @return A new image owning all of its pixels.
+     */
+    public ArgbImage materialize() {
+        int[] pixels = cover.getPixels().clone();
+        System.arraycopy(prefix, 0, pixels, 0, prefix.length);
+        return new ArgbImage(cover.getWidth(), cover.getHeight(), pixels);
+    }
+}
@@ -0,0 +1,58 @@
+package model.image;
+
+import java.util.Arrays;
+
+/**
+ * Verifies that a {@link StegoOverlay} reads like the image it stands for: runs of pixels read in the
+ * prefix, across its end and past it match the materialized image, for every start and length around the
+ * boundary. Exits with status 1 if any check fails.
+ */
+public class StegoOverlayCheck {
+    private static final int WIDTH = 7;
+    private static final int HEIGHT = 4;
+    private static final int PREFIX = 5;
+
+    private static int failures;
+
+    public static void main(String[] args) {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | i;
+        }
+        StegoOverlay overlay = new StegoOverlay(new ArgbImage(WIDTH, HEIGHT, pixels), PREFIX);
+        for (int i = 0; i < PREFIX; i++) {
+            overlay.getPrefixPixels()[i] = 0xFFFF0000 | i;
+        }
+        int[] expected = overlay.materialize().getPixels();
+
+        boolean same = true;
+        for (int index = 0; index < pixels.length; index++) {
+            for (int length = 0; index + length <= pixels.length; length++) {
+                int[] destination = new int[length + 2];
+                overlay.getPixels(index, destination, 1, length);
+                same &= Arrays.equals(destination, 1, length + 1, expected, index, index + length);
+            }
+        }
+        check(same, "runs at, across and past the prefix match the materialized image");
+
+        int[] row = new int[WIDTH];
+        boolean rows = true;
+        for (int y = 0; y < HEIGHT; y++) {
+            overlay.getPixels(y * WIDTH, row, 0, WIDTH);
+            rows &= Arrays.equals(row, 0, WIDTH, expected, y * WIDTH, (y + 1) * WIDTH);
+        }
+        check(rows, "every row matches the materialized image");
+
+        System.out.println(failures == 0 ? "all checks passed" : failures + " checks failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void check(boolean passed, String description) {
+        System.out.println((passed ? "ok     " : "FAILED ") + description);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package model.payload;
+
+import model.data_managers.BitArray;
+import model.utils.ConstantsClass;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A payload held in a {@link ByteBuffer}: bytes on the heap or a memory-mapped file. The bytes are already
+ * addressable, so the bits are converted straight from the buffer without an intermediate copy.
+ */
+public class ByteBufferPayloadSource implements PayloadSource {
+    private final ByteBuffer bytes;
+
+    /**
+     * Constructs a source of the remaining bytes of a buffer. The buffer itself is not changed.
+     *
+     * @param bytes The buffer holding the payload between its position and its limit.
+     */
+    public ByteBufferPayloadSource(ByteBuffer bytes) {
+        this.bytes = bytes.slice();
+    }
+
+    @Override
+    public long length() {
+        return bytes.limit();
+    }
+
+    @Override
+    public int read(ByteBuffer destination) {
+        if (!bytes.hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(bytes.remaining(), destination.remaining());
+        destination.put(destination.position(), bytes, bytes.position(), count);
+        destination.position(destination.position() + count);
+        bytes.position(bytes.position() + count);
+        return count;
+    }
+
+    @Override
+    public BitArray toBitArray() {
+        if (bytes.remaining() > PayloadBits.MAX_BYTES) {
+            throw new IllegalArgumentException("A payload of " + bytes.remaining() + " bytes is too large, the maximum is " + PayloadBits.MAX_BYTES);
+        }
+        BitArray bits = new BitArray(bytes.remaining() * ConstantsClass.BITS_PER_BYTE);
+        PayloadBits.toBits(bytes, bits, 0);
+        return bits;
+    }
+}
@@ -0,0 +1,39 @@
+package model.payload;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A sink writing the payload into a {@link WritableByteChannel}: a file, a socket, or a stream wrapped
+ * as a channel.
+ */
+public class ChannelPayloadSink implements PayloadSink {
+    private final WritableByteChannel channel;
+    private final boolean ownsChannel;
+
+    /**
+     * Constructs a sink writing into a channel.
+     *
+     * @param channel The channel receiving the payload.
+     * @param ownsChannel Whether closing the sink closes the channel.
+     */
+    public ChannelPayloadSink(WritableByteChannel channel, boolean ownsChannel) {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+    }
+
+    @Override
+    public void write(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+}
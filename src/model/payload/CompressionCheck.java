@@ -0,0 +1,151 @@
+package model.payload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Verifies that payloads round trip through every codec and through a {@link DecompressingPayloadSink} fed
+ * in chunks of every size, that payloads without a header pass through, and that damaged payloads are
+ * rejected. Prints the size and time of every codec for text, binary and repetitive payloads.
+ * Exits with status 1 if any check fails.
+ */
+public class CompressionCheck {
+    private static final int TIMING_ROUNDS = 20;
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(5);
+        byte[][] payloads = {
+                new byte[0],
+                "a".getBytes(StandardCharsets.UTF_8),
+                text(200, random),
+                text(300_000, random),
+                randomBytes(100_000, random),
+                repeated(200_000),
+                Arrays.copyOf(PayloadCompression.MAGIC, 40),
+        };
+        String[] names = {"empty", "one byte", "short text", "long text", "random", "repetitive", "starts with the magic"};
+
+        for (int i = 0; i < payloads.length; i++) {
+            for (PayloadCodec codec : PayloadCodec.values()) {
+                byte[] embedded = compress(payloads[i], codec);
+                for (int chunk : new int[]{1, 7, 4096, Integer.MAX_VALUE}) {
+                    check(Arrays.equals(decompress(embedded, chunk), payloads[i]),
+                            names[i] + " round trips through " + codec + " in chunks of " + Math.min(chunk, embedded.length));
+                }
+                check(embedded.length <= Math.max(payloads[i].length, PayloadCompression.HEADER_SIZE + payloads[i].length)
+                        && (codec == PayloadCodec.NONE || !startsWithMagic(payloads[i]) || embedded.length != payloads[i].length),
+                        names[i] + " is not grown by " + codec + " and never mistaken for compressed");
+            }
+        }
+
+        byte[] compressed = compress(text(50_000, random), PayloadCodec.LZ);
+        checkDamaged(Arrays.copyOf(compressed, compressed.length - 1), "a truncated LZ payload");
+        byte[] corrupted = compressed.clone();
+        corrupted[PayloadCompression.HEADER_SIZE + 4] ^= 0x40;
+        corrupted[PayloadCompression.HEADER_SIZE + 100] ^= 0x11;
+        checkDamaged(corrupted, "a corrupted LZ payload");
+        compressed = compress(text(50_000, random), PayloadCodec.DEFLATE);
+        checkDamaged(Arrays.copyOf(compressed, compressed.length - 1), "a truncated deflate payload");
+        byte[] longer = Arrays.copyOf(compressed, compressed.length + 1);
+        checkDamaged(longer, "a deflate payload with trailing bytes");
+
+        System.out.println();
+        System.out.printf("%-12s %-8s %10s %10s %12s %12s%n", "payload", "codec", "bytes", "embedded", "compress ms", "decompress ms");
+        for (int i = 2; i < 6; i++) {
+            for (PayloadCodec codec : PayloadCodec.values()) {
+                byte[] embedded = compress(payloads[i], codec);
+                long compressNanos = Long.MAX_VALUE;
+                long decompressNanos = Long.MAX_VALUE;
+                for (int round = 0; round < TIMING_ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    compress(payloads[i], codec);
+                    long middle = System.nanoTime();
+                    decompress(embedded, Integer.MAX_VALUE);
+                    compressNanos = Math.min(compressNanos, middle - start);
+                    decompressNanos = Math.min(decompressNanos, System.nanoTime() - middle);
+                }
+                System.out.printf("%-12s %-8s %10d %10d %12.3f %12.3f%n", names[i].split(" ")[names[i].split(" ").length - 1],
+                        codec, payloads[i].length, embedded.length, compressNanos / 1e6, decompressNanos / 1e6);
+            }
+        }
+
+        System.out.println(failures == 0 ? "all checks passed" : failures + " checks failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static byte[] compress(byte[] payload, PayloadCodec codec) throws IOException {
+        PayloadSource embedded = PayloadCompression.compress(PayloadSource.ofBytes(payload), codec);
+        ByteBuffer bytes = ByteBuffer.allocate((int) embedded.length());
+        while (bytes.hasRemaining() && embedded.read(bytes) >= 0) {
+            // read it all
+        }
+        return bytes.array();
+    }
+
+    private static byte[] decompress(byte[] embedded, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DecompressingPayloadSink sink = new DecompressingPayloadSink(PayloadSink.ofStream(out))) {
+            for (int offset = 0; offset < embedded.length; offset += chunk) {
+                sink.write(ByteBuffer.wrap(embedded, offset, Math.min(chunk, embedded.length - offset)));
+            }
+            check(sink.finish() == out.size(), "the decompressed length is counted");
+        }
+        return out.toByteArray();
+    }
+
+    private static void checkDamaged(byte[] embedded, String description) {
+        try {
+            decompress(embedded, 4096);
+            check(false, description + " is rejected");
+        } catch (IOException expected) {
+            check(true, description + " is rejected");
+        }
+    }
+
+    private static boolean startsWithMagic(byte[] bytes) {
+        return bytes.length >= PayloadCompression.MAGIC.length
+                && Arrays.equals(bytes, 0, PayloadCompression.MAGIC.length, PayloadCompression.MAGIC, 0, PayloadCompression.MAGIC.length);
+    }
+
+    /**
+     * Text of random words from a small vocabulary, like the messages embedded through the UI.
+     */
+    private static byte[] text(int length, Random random) {
+        String[] words = {"the", "image", "payload", "hidden", "message", "pixel", "genetic", "algorithm", "of", "and",
+                "report", "quarterly", "numbers", "meeting", "tomorrow", "at", "noon", "confidential", "project", "status"};
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(words[random.nextInt(words.length)]).append(random.nextInt(12) == 0 ? ".\n" : " ");
+        }
+        return text.substring(0, length).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] randomBytes(int length, Random random) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] repeated(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i % 7 == 0 ? 'x' : 'a' + i % 3);
+        }
+        return bytes;
+    }
+
+    private static void check(boolean passed, String description) {
+        if (!passed) {
+            System.out.println("FAILED " + description);
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package model.payload;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A sink that decompresses a payload written by {@link PayloadCompression} on its way into another sink.
+ * The first bytes are held back until they show whether the payload starts with a compression header; a
+ * payload without one passes through as it is. Deflate is inflated as the bytes arrive and LZ is decoded
+ * a block at a time, so the memory stays at one block however large the payload is.
+ * <p>
+ * {@link #finish()} must be called after the last byte, it checks the payload decompressed to its length.
+ */
+public class DecompressingPayloadSink implements PayloadSink {
+    private final PayloadSink target;
+    private final ByteBuffer header = ByteBuffer.allocate(PayloadCompression.HEADER_SIZE);
+
+    // null until the header was read, NONE for a payload passed through as it is
+    private PayloadCodec codec;
+    private boolean hasHeader;
+    private long expectedLength;
+    private long written;
+
+    private Inflater inflater;
+    private byte[] output;
+
+    // the LZ block being received, its length is negative while the 4 bytes of the length are received
+    private final ByteBuffer blockLength = ByteBuffer.allocate(Integer.BYTES);
+    private byte[] block;
+    private int blockSize = -1;
+    private int blockFilled;
+    private boolean blockStored;
+
+    /**
+     * Constructs a sink writing the decompressed payload into another sink.
+     *
+     * @param target The sink receiving the payload, it is not closed.
+     */
+    public DecompressingPayloadSink(PayloadSink target) {
+        this.target = target;
+    }
+
+    @Override
+    public void write(ByteBuffer bytes) throws IOException {
+        if (codec == null) {
+            int count = Math.min(bytes.remaining(), header.remaining());
+            header.put(header.position(), bytes, bytes.position(), count);
+            header.position(header.position() + count);
+            bytes.position(bytes.position() + count);
+            if (header.hasRemaining()) {
+                return;
+            }
+            readHeader();
+        }
+        switch (codec) {
+            case NONE -> writeOutput(bytes);
+            case DEFLATE -> inflate(bytes);
+            case LZ -> decodeBlocks(bytes);
+        }
+    }
+
+    /**
+     * Ends the payload, writing the bytes still held back.
+     *
+     * @return The number of bytes of the decompressed payload.
+     * @throws IOException if the target fails or the compressed payload is damaged or cut short.
+     */
+    public long finish() throws IOException {
+        if (codec == null) {
+            // shorter than a header, so not compressed
+            header.flip();
+            codec = PayloadCodec.NONE;
+            writeOutput(header);
+        }
+        boolean complete = switch (codec) {
+            case NONE -> !hasHeader || written == expectedLength;
+            case DEFLATE -> inflater.finished() && written == expectedLength;
+            case LZ -> blockSize < 0 && blockLength.position() == 0 && written == expectedLength;
+        };
+        if (!complete) {
+            throw damaged();
+        }
+        return written;
+    }
+
+    /**
+     * Reads the codec and length from a full header, or passes the header through as payload bytes if it
+     * is not one.
+     */
+    private void readHeader() throws IOException {
+        header.flip();
+        boolean magic = Arrays.equals(header.array(), 0, PayloadCompression.MAGIC.length,
+                PayloadCompression.MAGIC, 0, PayloadCompression.MAGIC.length);
+        PayloadCodec headerCodec = magic ? PayloadCodec.fromId(header.get(PayloadCompression.MAGIC.length)) : null;
+        long length = header.getLong(PayloadCompression.MAGIC.length + 1);
+        if (headerCodec == null || length < 0) {
+            codec = PayloadCodec.NONE;
+            writeOutput(header);
+            return;
+        }
+        codec = headerCodec;
+        hasHeader = true;
+        expectedLength = length;
+        if (codec == PayloadCodec.DEFLATE) {
+            inflater = new Inflater(true);
+            output = new byte[PayloadSource.BUFFER_SIZE];
+        } else if (codec == PayloadCodec.LZ) {
+            block = new byte[LzBlockCodec.maxCompressedLength(LzBlockCodec.BLOCK_SIZE)];
+            output = new byte[LzBlockCodec.BLOCK_SIZE];
+        }
+    }
+
+    private void inflate(ByteBuffer bytes) throws IOException {
+        inflater.setInput(bytes);
+        try {
+            while (true) {
+                int count = inflater.inflate(output);
+                if (count > 0) {
+                    writeOutput(ByteBuffer.wrap(output, 0, count));
+                } else if (inflater.finished()) {
+                    if (bytes.hasRemaining()) {
+                        throw damaged();
+                    }
+                    return;
+                } else if (inflater.needsInput()) {
+                    return;
+                } else if (inflater.needsDictionary()) {
+                    throw damaged();
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("The compressed payload is damaged", e);
+        }
+    }
+
+    private void decodeBlocks(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            if (blockSize < 0) {
+                while (bytes.hasRemaining() && blockLength.hasRemaining()) {
+                    blockLength.put(bytes.get());
+                }
+                if (blockLength.hasRemaining()) {
+                    return;
+                }
+                int word = blockLength.getInt(0);
+                blockLength.clear();
+                blockStored = (word & PayloadCompression.STORED_BLOCK) != 0;
+                blockSize = word & ~PayloadCompression.STORED_BLOCK;
+                blockFilled = 0;
+                int decodedSize = decodedBlockSize();
+                if (decodedSize == 0 || blockSize > block.length || (blockStored && blockSize != decodedSize)) {
+                    throw damaged();
+                }
+            }
+            int count = Math.min(bytes.remaining(), blockSize - blockFilled);
+            bytes.get(block, blockFilled, count);
+            blockFilled += count;
+            if (blockFilled == blockSize) {
+                int decodedSize = decodedBlockSize();
+                if (blockStored) {
+                    writeOutput(ByteBuffer.wrap(block, 0, blockSize));
+                } else {
+                    LzBlockCodec.decompress(block, 0, blockSize, output, decodedSize);
+                    writeOutput(ByteBuffer.wrap(output, 0, decodedSize));
+                }
+                blockSize = -1;
+            }
+        }
+    }
+
+    /**
+     * @return The number of bytes the next block decodes into, every block but the last is a whole block.
+     */
+    private int decodedBlockSize() {
+        return (int) Math.min(LzBlockCodec.BLOCK_SIZE, expectedLength - written);
+    }
+
+    private void writeOutput(ByteBuffer bytes) throws IOException {
+        int count = bytes.remaining();
+        if (hasHeader && count > expectedLength - written) {
+            throw damaged();
+        }
+        target.write(bytes);
+        written += count;
+    }
+
+    /**
+     * Releases the inflater, the target sink is not closed.
+     */
+    @Override
+    public void close() {
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+    private static IOException damaged() {
+        return new IOException("The compressed payload is damaged");
+    }
+}
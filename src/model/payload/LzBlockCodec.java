@@ -0,0 +1,197 @@
+package model.payload;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A byte-oriented LZ77 codec for blocks of at most {@link #BLOCK_SIZE} bytes, in the sequence format of
+ * LZ4. A block is a list of sequences, each a token byte, its literals and a match:
+ * <pre>
+ * token (literal length | match length - 4, 4 bits each) | more literal length | literals | offset (2 bytes) | more match length
+ * </pre>
+ * A length of 15 in the token continues in the following bytes, each adding its value until one is below
+ * 255. The offset is little-endian and counts back from the current output. The last sequence has no
+ * match, it ends where the block ends.
+ * <p>
+ * Matches are found through a hash table of the last position of every 4 byte prefix, and the search
+ * skips ahead faster the longer it finds nothing, so data that does not compress passes quickly.
+ */
+class LzBlockCodec {
+
+    /**
+     * The largest number of bytes of a block.
+     */
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int HASH_BITS = 14;
+    private static final int SKIP_TRIGGER = 6;
+    private static final int LENGTH_MASK = 15;
+
+    // the last position of every hashed prefix, reused for every block
+    private final int[] table = new int[1 << HASH_BITS];
+
+    /**
+     * Returns the largest size of a compressed block, reached by data that does not compress.
+     *
+     * @param length The number of bytes of the block.
+     * @return The size of the output buffer the block needs.
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses a block.
+     *
+     * @param source The bytes to compress.
+     * @param offset The index of the first byte of the block.
+     * @param length The number of bytes of the block, at most {@link #BLOCK_SIZE}.
+     * @param destination The array receiving the compressed block, at least {@link #maxCompressedLength(int)} long.
+     * @return The number of compressed bytes.
+     */
+    int compress(byte[] source, int offset, int length, byte[] destination) {
+        Arrays.fill(table, -1);
+        int end = offset + length;
+        int matchEnd = end - MIN_MATCH;
+        int anchor = offset;
+        int out = 0;
+        int position = offset;
+        int misses = 0;
+        while (position <= matchEnd) {
+            int prefix = readInt(source, position);
+            int hash = prefix * 0x9E3779B1 >>> (Integer.SIZE - HASH_BITS);
+            int candidate = table[hash];
+            table[hash] = position;
+            if (candidate < 0 || position - candidate > MAX_OFFSET || readInt(source, candidate) != prefix) {
+                position += 1 + (misses++ >>> SKIP_TRIGGER);
+                continue;
+            }
+            misses = 0;
+            int matchLength = MIN_MATCH;
+            while (position + matchLength < end && source[candidate + matchLength] == source[position + matchLength]) {
+                matchLength++;
+            }
+            out = writeSequence(source, anchor, position - anchor, position - candidate, matchLength, destination, out);
+            position += matchLength;
+            anchor = position;
+        }
+        // the literals left over end the block
+        return writeSequence(source, anchor, end - anchor, 0, 0, destination, out);
+    }
+
+    /**
+     * Decompresses a block.
+     *
+     * @param source The compressed bytes.
+     * @param offset The index of the first compressed byte.
+     * @param length The number of compressed bytes.
+     * @param destination The array receiving the bytes of the block.
+     * @param blockLength The number of bytes of the block.
+     * @throws IOException if the compressed bytes are damaged.
+     */
+    static void decompress(byte[] source, int offset, int length, byte[] destination, int blockLength) throws IOException {
+        int in = offset;
+        int end = offset + length;
+        int out = 0;
+        while (true) {
+            if (in >= end) {
+                throw damaged();
+            }
+            int token = source[in++] & 0xFF;
+            int literals = token >>> 4;
+            if (literals == LENGTH_MASK) {
+                int more;
+                do {
+                    if (in >= end) {
+                        throw damaged();
+                    }
+                    more = source[in++] & 0xFF;
+                    literals += more;
+                } while (more == 255);
+            }
+            if (literals > end - in || literals > blockLength - out) {
+                throw damaged();
+            }
+            System.arraycopy(source, in, destination, out, literals);
+            in += literals;
+            out += literals;
+            if (in == end) {
+                break;
+            }
+
+            if (end - in < 2) {
+                throw damaged();
+            }
+            int distance = (source[in] & 0xFF) | (source[in + 1] & 0xFF) << 8;
+            in += 2;
+            int matchLength = (token & LENGTH_MASK) + MIN_MATCH;
+            if ((token & LENGTH_MASK) == LENGTH_MASK) {
+                int more;
+                do {
+                    if (in >= end) {
+                        throw damaged();
+                    }
+                    more = source[in++] & 0xFF;
+                    matchLength += more;
+                } while (more == 255);
+            }
+            if (distance == 0 || distance > out || matchLength > blockLength - out) {
+                throw damaged();
+            }
+            int from = out - distance;
+            if (distance >= matchLength) {
+                System.arraycopy(destination, from, destination, out, matchLength);
+                out += matchLength;
+            } else {
+                // the match overlaps the bytes it produces, a run
+                for (int i = 0; i < matchLength; i++) {
+                    destination[out++] = destination[from + i];
+                }
+            }
+        }
+        if (out != blockLength) {
+            throw damaged();
+        }
+    }
+
+    private static int writeSequence(byte[] source, int literalStart, int literals, int distance, int matchLength,
+                                     byte[] destination, int out) {
+        int tokenIndex = out++;
+        int token = Math.min(literals, LENGTH_MASK) << 4;
+        if (literals >= LENGTH_MASK) {
+            out = writeLength(literals - LENGTH_MASK, destination, out);
+        }
+        System.arraycopy(source, literalStart, destination, out, literals);
+        out += literals;
+        if (matchLength > 0) {
+            destination[out++] = (byte) distance;
+            destination[out++] = (byte) (distance >>> 8);
+            int extra = matchLength - MIN_MATCH;
+            token |= Math.min(extra, LENGTH_MASK);
+            if (extra >= LENGTH_MASK) {
+                out = writeLength(extra - LENGTH_MASK, destination, out);
+            }
+        }
+        destination[tokenIndex] = (byte) token;
+        return out;
+    }
+
+    private static int writeLength(int length, byte[] destination, int out) {
+        while (length >= 255) {
+            destination[out++] = (byte) 255;
+            length -= 255;
+        }
+        destination[out++] = (byte) length;
+        return out;
+    }
+
+    private static int readInt(byte[] bytes, int index) {
+        return (bytes[index] & 0xFF) | (bytes[index + 1] & 0xFF) << 8 | (bytes[index + 2] & 0xFF) << 16 | bytes[index + 3] << 24;
+    }
+
+    private static IOException damaged() {
+        return new IOException("The compressed payload is damaged");
+    }
+}
@@ -0,0 +1,130 @@
+package model.payload;
+
+import model.data_managers.BitArray;
+import model.utils.ConstantsClass;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts between bytes and the bit stream that is embedded into an image. Every byte becomes 8 bits, its
+ * most significant bit first. A {@link BitArray} keeps its first bit in the lowest bit of a word, so 8 bytes
+ * read as one big-endian long become the next 64 bits by reversing the long, and whole words are converted
+ * at once instead of bit by bit. The bytes left over at the end are reversed one at a time with a table.
+ */
+public class PayloadBits {
+
+    /**
+     * The largest payload in bytes whose bits fit into a {@link BitArray}.
+     */
+    public static final int MAX_BYTES = Integer.MAX_VALUE / ConstantsClass.BITS_PER_BYTE;
+
+    // every byte with the order of its bits reversed
+    private static final byte[] REVERSED_BYTES = new byte[1 << ConstantsClass.BITS_PER_BYTE];
+
+    static {
+        for (int value = 0; value < REVERSED_BYTES.length; value++) {
+            REVERSED_BYTES[value] = (byte) (Integer.reverse(value) >>> (Integer.SIZE - ConstantsClass.BITS_PER_BYTE));
+        }
+    }
+
+    private PayloadBits() {
+    }
+
+    /**
+     * Converts bytes into their bits.
+     *
+     * @param bytes The bytes to convert.
+     * @return A new BitArray of 8 bits per byte.
+     */
+    public static BitArray fromBytes(byte[] bytes) {
+        BitArray bits = new BitArray(bytes.length * ConstantsClass.BITS_PER_BYTE);
+        toBits(ByteBuffer.wrap(bytes), bits, 0);
+        return bits;
+    }
+
+    /**
+     * Converts text into the bits of its UTF-8 encoding.
+     *
+     * @param text The text to convert.
+     * @return A new BitArray of 8 bits per encoded byte.
+     */
+    public static BitArray fromText(String text) {
+        return fromBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Converts bits back into bytes.
+     *
+     * @param bits The bits to convert.
+     * @return A new array of one byte per 8 bits.
+     * @throws IllegalArgumentException if the number of bits is not a multiple of 8.
+     */
+    public static byte[] toBytes(BitArray bits) {
+        if (bits.size() % ConstantsClass.BITS_PER_BYTE != 0) {
+            throw new IllegalArgumentException("BitArray size must be a multiple of " + ConstantsClass.BITS_PER_BYTE);
+        }
+        byte[] bytes = new byte[bits.size() / ConstantsClass.BITS_PER_BYTE];
+        toBytes(bits, 0, ByteBuffer.wrap(bytes), bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Writes the bits of all remaining bytes of a buffer into a BitArray, a word at a time.
+     * The buffer is consumed, its byte order is left unchanged.
+     *
+     * @param source The bytes to convert.
+     * @param destination The BitArray receiving the bits.
+     * @param bitIndex The index of the first bit to write.
+     * @throws IndexOutOfBoundsException if the bits do not fit into the destination.
+     */
+    public static void toBits(ByteBuffer source, BitArray destination, int bitIndex) {
+        if (bitIndex < 0 || (long) bitIndex + (long) source.remaining() * ConstantsClass.BITS_PER_BYTE > destination.size()) {
+            throw new IndexOutOfBoundsException("Cannot write " + source.remaining() + " bytes at bit " + bitIndex);
+        }
+        ByteOrder order = source.order();
+        source.order(ByteOrder.BIG_ENDIAN);
+        while (source.remaining() >= Long.BYTES) {
+            destination.setLong(bitIndex, Long.SIZE, Long.reverse(source.getLong()));
+            bitIndex += Long.SIZE;
+        }
+        while (source.hasRemaining()) {
+            destination.setLong(bitIndex, ConstantsClass.BITS_PER_BYTE, reverseByte(source.get()));
+            bitIndex += ConstantsClass.BITS_PER_BYTE;
+        }
+        source.order(order);
+    }
+
+    /**
+     * Writes bytes from the bits of a BitArray into a buffer, a word at a time.
+     * The byte order of the buffer is left unchanged.
+     *
+     * @param source The bits to convert.
+     * @param bitIndex The index of the first bit to read.
+     * @param destination The buffer receiving the bytes.
+     * @param byteCount The number of bytes to write.
+     * @throws IndexOutOfBoundsException if the bits are out of range.
+     */
+    public static void toBytes(BitArray source, int bitIndex, ByteBuffer destination, int byteCount) {
+        if (bitIndex < 0 || byteCount < 0 || (long) bitIndex + (long) byteCount * ConstantsClass.BITS_PER_BYTE > source.size()) {
+            throw new IndexOutOfBoundsException("Cannot read " + byteCount + " bytes at bit " + bitIndex);
+        }
+        ByteOrder order = destination.order();
+        destination.order(ByteOrder.BIG_ENDIAN);
+        int end = bitIndex + byteCount * ConstantsClass.BITS_PER_BYTE;
+        while (end - bitIndex >= Long.SIZE) {
+            destination.putLong(Long.reverse(source.getLong(bitIndex, Long.SIZE)));
+            bitIndex += Long.SIZE;
+        }
+        while (bitIndex < end) {
+            destination.put(reverseByte(source.getLong(bitIndex, ConstantsClass.BITS_PER_BYTE)));
+            bitIndex += ConstantsClass.BITS_PER_BYTE;
+        }
+        destination.order(order);
+    }
+
+    private static byte reverseByte(long value) {
+        return REVERSED_BYTES[(int) value & 0xFF];
+    }
+}
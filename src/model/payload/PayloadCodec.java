@@ -0,0 +1,51 @@
+package model.payload;
+
+/**
+ * Enumerates the codecs a payload can be compressed with before it is embedded. Every payload bit costs
+ * pixels, distortion and work in every evaluation of the genetic algorithm, so a payload that compresses
+ * is embedded compressed. The codec is recorded by its id in the header of the compressed payload.
+ */
+public enum PayloadCodec {
+    /**
+     * The payload is embedded as it is.
+     */
+    NONE(0),
+
+    /**
+     * Raw deflate at the best compression, the smallest output.
+     */
+    DEFLATE(1),
+
+    /**
+     * A byte-oriented LZ77 of independent 64 KB blocks, much faster than deflate at a lower ratio.
+     */
+    LZ(2);
+
+    private final int id;
+
+    PayloadCodec(int id) {
+        this.id = id;
+    }
+
+    /**
+     * @return The id of the codec in the header of a compressed payload.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Finds the codec of an id.
+     *
+     * @param id The id read from a header.
+     * @return The codec, or null if no codec has this id.
+     */
+    public static PayloadCodec fromId(int id) {
+        for (PayloadCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,200 @@
+package model.payload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a payload before it is embedded. A compressed payload starts with a header recording its codec
+ * and the length of the payload it decompresses into:
+ * <pre>
+ * magic (4 bytes) | codec id (1) | decompressed length (8, big-endian) | compressed bytes
+ * </pre>
+ * The header is part of the embedded bytes, so the image format is unchanged and a payload without it,
+ * such as every payload embedded before compression existed, is decoded as it is. A compression that does
+ * not make the payload smaller is dropped. A payload that is not compressed but happens to start with the
+ * magic is stored under a header with {@link PayloadCodec#NONE}, so it is never mistaken for a compressed
+ * one.
+ * <p>
+ * The header is read back by a {@link DecompressingPayloadSink}.
+ */
+public class PayloadCompression {
+
+    /**
+     * The number of bytes of the header of a compressed payload.
+     */
+    public static final int HEADER_SIZE = 4 + 1 + 8;
+
+    static final byte[] MAGIC = {(byte) 0x89, 'G', 'S', 'Z'};
+
+    // the high bit of the length of a block marks a block stored without compression
+    static final int STORED_BLOCK = 0x80000000;
+
+    private PayloadCompression() {
+    }
+
+    /**
+     * Reads a payload and compresses it, if the codec makes it smaller. With {@link PayloadCodec#NONE} only
+     * the first bytes of the payload are read here, to look for the magic.
+     *
+     * @param source The payload.
+     * @param codec The codec to compress with.
+     * @return The payload to embed, of a length known up front.
+     * @throws IOException if the payload cannot be read.
+     * @throws IllegalArgumentException if the payload is too large for a BitArray.
+     */
+    public static PayloadSource compress(PayloadSource source, PayloadCodec codec) throws IOException {
+        if (codec == PayloadCodec.NONE) {
+            return store(source);
+        }
+        byte[] bytes = readAll(source);
+        byte[] compressed = codec == PayloadCodec.DEFLATE ? deflate(bytes) : lz(bytes);
+        if (compressed != null) {
+            return PayloadSource.ofBytes(compressed);
+        }
+        if (startsWithMagic(bytes)) {
+            ByteBuffer stored = ByteBuffer.allocate(HEADER_SIZE + bytes.length);
+            writeHeader(stored, PayloadCodec.NONE, bytes.length);
+            stored.put(bytes);
+            return PayloadSource.ofBytes(stored.array());
+        }
+        return PayloadSource.ofBytes(bytes);
+    }
+
+    /**
+     * Deflates the payload, giving up as soon as the output is not smaller than the payload.
+     *
+     * @return The compressed payload with its header, or null if it does not shrink.
+     */
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 2));
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            writeHeader(header, PayloadCodec.DEFLATE, bytes.length);
+            out.write(header.array(), 0, HEADER_SIZE);
+            byte[] buffer = new byte[PayloadSource.BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+                if (out.size() >= bytes.length) {
+                    return null;
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Compresses the payload in independent blocks, every block is stored as it is if it does not shrink.
+     *
+     * @return The compressed payload with its header, or null if it does not shrink.
+     */
+    private static byte[] lz(byte[] bytes) {
+        LzBlockCodec codec = new LzBlockCodec();
+        int blocks = (bytes.length + LzBlockCodec.BLOCK_SIZE - 1) / LzBlockCodec.BLOCK_SIZE;
+        // a stored block only adds its length, so the output never grows beyond this
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + bytes.length + blocks * Integer.BYTES);
+        writeHeader(out, PayloadCodec.LZ, bytes.length);
+        byte[] block = new byte[LzBlockCodec.maxCompressedLength(LzBlockCodec.BLOCK_SIZE)];
+        for (int offset = 0; offset < bytes.length; offset += LzBlockCodec.BLOCK_SIZE) {
+            int length = Math.min(LzBlockCodec.BLOCK_SIZE, bytes.length - offset);
+            int compressed = codec.compress(bytes, offset, length, block);
+            if (compressed < length) {
+                out.putInt(compressed);
+                out.put(block, 0, compressed);
+            } else {
+                out.putInt(STORED_BLOCK | length);
+                out.put(bytes, offset, length);
+            }
+            if (out.position() >= bytes.length) {
+                return null;
+            }
+        }
+        return out.position() < bytes.length ? Arrays.copyOf(out.array(), out.position()) : null;
+    }
+
+    /**
+     * Embeds a payload as it is, reading only as many bytes as the magic has to tell whether it needs a header.
+     */
+    private static PayloadSource store(PayloadSource source) throws IOException {
+        ByteBuffer prefix = ByteBuffer.allocate((int) Math.min(MAGIC.length, source.length()));
+        while (prefix.hasRemaining()) {
+            if (source.read(prefix) < 0) {
+                throw new EOFException("The payload ended after " + prefix.position() + " of " + source.length() + " bytes");
+            }
+        }
+        prefix.flip();
+        if (!prefix.equals(ByteBuffer.wrap(MAGIC))) {
+            return new PrefixedPayloadSource(prefix, source);
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + MAGIC.length);
+        writeHeader(header, PayloadCodec.NONE, source.length());
+        header.put(prefix);
+        header.flip();
+        return new PrefixedPayloadSource(header, source);
+    }
+
+    private static void writeHeader(ByteBuffer destination, PayloadCodec codec, long length) {
+        destination.put(MAGIC);
+        destination.put((byte) codec.getId());
+        destination.putLong(length);
+    }
+
+    private static boolean startsWithMagic(byte[] bytes) {
+        return bytes.length >= MAGIC.length && Arrays.equals(bytes, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    private static byte[] readAll(PayloadSource source) throws IOException {
+        long length = source.length();
+        if (length > PayloadBits.MAX_BYTES) {
+            throw new IllegalArgumentException("A payload of " + length + " bytes is too large, the maximum is " + PayloadBits.MAX_BYTES);
+        }
+        ByteBuffer bytes = ByteBuffer.allocate((int) length);
+        while (bytes.hasRemaining()) {
+            if (source.read(bytes) < 0) {
+                throw new EOFException("The payload ended after " + bytes.position() + " of " + length + " bytes");
+            }
+        }
+        return bytes.array();
+    }
+
+    /**
+     * The rest of a payload behind bytes already read from it or put in front of it.
+     */
+    private static class PrefixedPayloadSource implements PayloadSource {
+        private final ByteBuffer prefix;
+        private final PayloadSource rest;
+        private final long length;
+
+        PrefixedPayloadSource(ByteBuffer prefix, PayloadSource rest) {
+            this.prefix = prefix;
+            this.rest = rest;
+            this.length = prefix.remaining() + rest.length() - Math.min(MAGIC.length, rest.length());
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            if (!prefix.hasRemaining()) {
+                return rest.read(destination);
+            }
+            int count = Math.min(prefix.remaining(), destination.remaining());
+            destination.put(destination.position(), prefix, prefix.position(), count);
+            destination.position(destination.position() + count);
+            prefix.position(prefix.position() + count);
+            return count;
+        }
+    }
+}
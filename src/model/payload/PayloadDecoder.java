@@ -0,0 +1,89 @@
+package model.payload;
+
+import model.data_managers.BitArray;
+import model.data_managers.DataExtractor;
+import model.data_managers.DataManipulation;
+import model.data_managers.image_metedate.CompactHeader;
+import model.data_managers.image_metedate.ImageMetadata;
+import model.image.PixelBuffer;
+import model.utils.ConstantsClass;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the payload hidden in an image into a {@link PayloadSink}. The data is extracted, the swaps are
+ * undone with the word-level inverse of their {@link model.data_managers.SwapPlan}, and the bits are converted
+ * into bytes through a buffer of {@link #BUFFER_SIZE} bytes, which is the only memory the output takes.
+ * A payload compressed by {@link PayloadCompression} is decompressed on its way into the sink.
+ * <p>
+ * The payload of an image with a {@link CompactHeader} must match the checksum of the header, an image
+ * whose payload does not is rejected rather than decoded into damaged bytes.
+ */
+public class PayloadDecoder {
+
+    /**
+     * The size of the buffer the decoded bytes pass through on their way into the sink.
+     */
+    public static final int BUFFER_SIZE = 8192;
+
+    private final DataExtractor extractor;
+
+    /**
+     * Constructs a decoder for an image.
+     *
+     * @param stegoImage The image holding the payload.
+     */
+    public PayloadDecoder(PixelBuffer stegoImage) {
+        this.extractor = new DataExtractor(stegoImage);
+    }
+
+    /**
+     * Decodes the payload and writes it into a sink.
+     *
+     * @param sink The sink receiving the payload, it is not closed.
+     * @return The number of bytes written, or -1 if the image was not encoded by this algorithm or its
+     *         payload fails the checksum of its header.
+     * @throws IOException if the sink fails or the compressed payload is damaged.
+     */
+    public long decodeTo(PayloadSink sink) throws IOException {
+        ImageMetadata metadata = extractor.extractMetadata();
+        BitArray payload = restore(metadata);
+        if (payload != null && metadata.isCompact() && CompactHeader.checksum(payload) != metadata.getChecksum()) {
+            // damaged, or a legacy image whose first bits happen to read as a compact header
+            payload = restore(extractor.extractLegacyMetadata());
+        }
+        if (payload == null) {
+            return -1;
+        }
+
+        int totalBytes = payload.size() / ConstantsClass.BITS_PER_BYTE;
+        ByteBuffer buffer = ByteBuffer.allocate(Math.min(BUFFER_SIZE, Math.max(1, totalBytes)));
+        try (DecompressingPayloadSink output = new DecompressingPayloadSink(sink)) {
+            for (int written = 0; written < totalBytes; ) {
+                int count = Math.min(buffer.capacity(), totalBytes - written);
+                buffer.clear();
+                PayloadBits.toBytes(payload, written * ConstantsClass.BITS_PER_BYTE, buffer, count);
+                buffer.flip();
+                output.write(buffer);
+                written += count;
+            }
+            return output.finish();
+        }
+    }
+
+    /**
+     * Extracts the data described by the metadata and undoes its manipulation.
+     *
+     * @return The payload bits, or null if the image does not hold data described by the metadata.
+     */
+    private BitArray restore(ImageMetadata metadata) {
+        BitArray data = extractor.extractData(metadata);
+        if (data == null || data.size() % ConstantsClass.BITS_PER_BYTE != 0) {
+            return null;
+        }
+        // the inverse of the swap plan the payload was encoded with, both are below half the data length
+        return new DataManipulation(data).restoreBitArray((int) metadata.getNumberOfSwaps(),
+                (int) metadata.getOffset(), metadata.getDataDirection(), metadata.getDataPolarity());
+    }
+}
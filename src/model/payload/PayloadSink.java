@@ -0,0 +1,67 @@
+package model.payload;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The destination of a decoded payload. The payload is handed over in chunks as it is converted from bits,
+ * so it never has to exist as a whole in any other form.
+ */
+public interface PayloadSink extends Closeable {
+
+    /**
+     * Takes the next bytes of the payload.
+     *
+     * @param bytes The bytes between the position and the limit of the buffer, all of them are consumed.
+     * @throws IOException if the bytes cannot be written.
+     */
+    void write(ByteBuffer bytes) throws IOException;
+
+    /**
+     * Releases what the sink opened itself, nothing by default.
+     *
+     * @throws IOException if closing fails.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Creates a sink writing into a stream, which is not closed.
+     *
+     * @param stream The stream receiving the payload.
+     * @return The sink.
+     */
+    static PayloadSink ofStream(OutputStream stream) {
+        return new ChannelPayloadSink(Channels.newChannel(stream), false);
+    }
+
+    /**
+     * Creates a sink writing into a channel, which is not closed.
+     *
+     * @param channel The channel receiving the payload.
+     * @return The sink.
+     */
+    static PayloadSink ofChannel(WritableByteChannel channel) {
+        return new ChannelPayloadSink(channel, false);
+    }
+
+    /**
+     * Creates a sink writing into a file, which is created or truncated. Closing the sink closes the file.
+     *
+     * @param file The file receiving the payload.
+     * @return The sink.
+     * @throws IOException if the file cannot be opened.
+     */
+    static PayloadSink ofFile(Path file) throws IOException {
+        return new ChannelPayloadSink(FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING), true);
+    }
+}
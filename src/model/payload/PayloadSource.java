@@ -0,0 +1,120 @@
+package model.payload;
+
+import model.data_managers.BitArray;
+import model.utils.ConstantsClass;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The bytes of a secret to embed into an image, of a length known up front. A source is read once, in
+ * chunks, and its bits are the bits of its bytes, the most significant bit of every byte first. Text is
+ * embedded as its UTF-8 bytes, so every character survives, and binary data is embedded as it is.
+ */
+public interface PayloadSource {
+
+    /**
+     * The size of the buffer the bytes of a source pass through on their way into bits.
+     */
+    int BUFFER_SIZE = 8192;
+
+    /**
+     * @return The number of bytes of the payload.
+     */
+    long length();
+
+    /**
+     * Reads the next bytes of the payload into a buffer, as many as fit and remain.
+     *
+     * @param destination The buffer receiving the bytes, from its position up to its limit.
+     * @return The number of bytes read, or -1 if the whole payload was read.
+     * @throws IOException if the payload cannot be read.
+     */
+    int read(ByteBuffer destination) throws IOException;
+
+    /**
+     * Reads the rest of the payload and converts it into the bits to embed. The bytes pass through a buffer
+     * of {@link #BUFFER_SIZE} bytes and are converted a word at a time.
+     *
+     * @return A new BitArray of 8 bits per byte.
+     * @throws IOException if the payload cannot be read or ends before its length.
+     * @throws IllegalArgumentException if the payload is too large for a BitArray.
+     */
+    default BitArray toBitArray() throws IOException {
+        long length = length();
+        if (length > PayloadBits.MAX_BYTES) {
+            throw new IllegalArgumentException("A payload of " + length + " bytes is too large, the maximum is " + PayloadBits.MAX_BYTES);
+        }
+        BitArray bits = new BitArray((int) length * ConstantsClass.BITS_PER_BYTE);
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(1, length)));
+        int bitIndex = 0;
+        while (bitIndex < bits.size()) {
+            buffer.clear();
+            buffer.limit(Math.min(buffer.capacity(), (bits.size() - bitIndex) / ConstantsClass.BITS_PER_BYTE));
+            int read = read(buffer);
+            if (read < 0) {
+                throw new EOFException("The payload ended after " + bitIndex / ConstantsClass.BITS_PER_BYTE + " of " + length + " bytes");
+            }
+            buffer.flip();
+            PayloadBits.toBits(buffer, bits, bitIndex);
+            bitIndex += read * ConstantsClass.BITS_PER_BYTE;
+        }
+        return bits;
+    }
+
+    /**
+     * Creates a source of bytes in memory, which are used without copying.
+     *
+     * @param bytes The payload.
+     * @return The source.
+     */
+    static PayloadSource ofBytes(byte[] bytes) {
+        return new ByteBufferPayloadSource(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Creates a source of the UTF-8 encoding of a text.
+     *
+     * @param text The payload.
+     * @return The source.
+     */
+    static PayloadSource ofText(String text) {
+        return ofBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a source of the next bytes of a stream. The stream is read in chunks, it is not closed.
+     *
+     * @param stream The stream holding the payload.
+     * @param length The number of bytes of the payload.
+     * @return The source.
+     */
+    static PayloadSource ofStream(InputStream stream, long length) {
+        return new StreamPayloadSource(stream, length);
+    }
+
+    /**
+     * Creates a source of the contents of a file, which is memory-mapped rather than read into the heap.
+     *
+     * @param file The file holding the payload.
+     * @return The source.
+     * @throws IOException if the file cannot be mapped.
+     * @throws IllegalArgumentException if the file is too large for a BitArray.
+     */
+    static PayloadSource ofFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > PayloadBits.MAX_BYTES) {
+                throw new IllegalArgumentException("The file " + file + " of " + size + " bytes is too large, the maximum is " + PayloadBits.MAX_BYTES);
+            }
+            // the mapping stays valid after the channel is closed
+            return new ByteBufferPayloadSource(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+}
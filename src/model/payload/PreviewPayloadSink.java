@@ -0,0 +1,65 @@
+package model.payload;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A sink keeping only the first bytes of a payload and counting the rest, for showing a payload of any
+ * size in the UI.
+ */
+public class PreviewPayloadSink implements PayloadSink {
+    private final ByteBuffer preview;
+    private long totalBytes;
+
+    /**
+     * Constructs a sink keeping at most a given number of bytes.
+     *
+     * @param maxBytes The number of leading bytes to keep.
+     */
+    public PreviewPayloadSink(int maxBytes) {
+        this.preview = ByteBuffer.allocate(maxBytes);
+    }
+
+    @Override
+    public void write(ByteBuffer bytes) {
+        totalBytes += bytes.remaining();
+        int kept = Math.min(bytes.remaining(), preview.remaining());
+        preview.put(preview.position(), bytes, bytes.position(), kept);
+        preview.position(preview.position() + kept);
+        bytes.position(bytes.limit());
+    }
+
+    /**
+     * Decodes the kept bytes as UTF-8. A character cut off by the end of the preview is replaced.
+     *
+     * @return The text of the preview.
+     */
+    public String getPreviewText() {
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(preview.duplicate().flip())
+                    .toString();
+        } catch (CharacterCodingException e) {
+            // cannot happen, errors are replaced
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return The number of bytes of the whole payload.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return Whether the payload is longer than the preview.
+     */
+    public boolean isTruncated() {
+        return totalBytes > preview.capacity();
+    }
+}
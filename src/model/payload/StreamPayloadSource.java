@@ -0,0 +1,53 @@
+package model.payload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A payload read from an {@link InputStream}, such as a socket or a pipe. The stream is read into the
+ * buffer given to {@link #read(ByteBuffer)}, so no more than one buffer of the payload is held at a time.
+ */
+public class StreamPayloadSource implements PayloadSource {
+    private final InputStream stream;
+    private final long length;
+    private long remaining;
+
+    /**
+     * Constructs a source of the next bytes of a stream.
+     *
+     * @param stream The stream holding the payload, it is not closed.
+     * @param length The number of bytes of the payload.
+     * @throws IllegalArgumentException if the length is negative.
+     */
+    public StreamPayloadSource(InputStream stream, long length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("The length of a payload cannot be negative: " + length);
+        }
+        this.stream = stream;
+        this.length = length;
+        this.remaining = length;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public int read(ByteBuffer destination) throws IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+        if (!destination.hasArray()) {
+            throw new IllegalArgumentException("A stream is read into a heap buffer");
+        }
+        int count = (int) Math.min(remaining, destination.remaining());
+        int read = stream.read(destination.array(), destination.arrayOffset() + destination.position(), count);
+        if (read > 0) {
+            destination.position(destination.position() + read);
+            remaining -= read;
+        }
+        return read;
+    }
+}
@@ -0,0 +1,171 @@
+package model.shard;
+
+import model.image.PixelBuffer;
+import model.payload.DecompressingPayloadSink;
+import model.payload.PayloadDecoder;
+import model.payload.PayloadSink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Reassembles a sharded payload from the images of its shards, which may come in any order. Every shard is
+ * checked against the first one added, so shards of another payload are rejected, and the payload is only
+ * written once all shards are present and the hash of their concatenation matches the hash in the headers.
+ * A payload compressed before it was sharded is decompressed on its way into the sink.
+ * <p>
+ * The number of shards comes from a header that may be damaged or forged, so nothing is allocated by it:
+ * the shards added are kept by their index, and a set of more shards than the images given is rejected
+ * with its first shard, since it could never be completed.
+ */
+public class ShardAssembler {
+    /**
+     * The largest number of missing indexes listed by {@link #getMissing()}.
+     */
+    public static final int MAX_LISTED_MISSING = 32;
+
+    private final int maxShards;
+    private final TreeMap<Integer, ByteBuffer> shards = new TreeMap<>();
+    private ShardHeader header;
+
+    /**
+     * Constructs an assembler accepting a payload of any number of shards.
+     */
+    public ShardAssembler() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs an assembler for a known number of images.
+     *
+     * @param maxShards The number of images that will be given, a payload of more shards is rejected.
+     * @throws IllegalArgumentException if the number is not positive.
+     */
+    public ShardAssembler(int maxShards) {
+        if (maxShards < 1) {
+            throw new IllegalArgumentException("At least one image is needed, not " + maxShards);
+        }
+        this.maxShards = maxShards;
+    }
+
+    /**
+     * Decodes an image and adds the shard it holds.
+     *
+     * @param stegoImage The image holding a shard.
+     * @return true if the shard was added, false if the image holds no shard.
+     * @throws IOException if the shard cannot be decoded.
+     * @throws IllegalArgumentException if the shard belongs to another payload, its index was already added or
+     *                                  the payload has more shards than the images given.
+     */
+    public boolean addImage(PixelBuffer stegoImage) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (new PayloadDecoder(stegoImage).decodeTo(PayloadSink.ofStream(bytes)) < 0) {
+            return false;
+        }
+        return add(bytes.toByteArray());
+    }
+
+    /**
+     * Adds the decoded bytes of a shard, its header followed by its part of the payload.
+     *
+     * @param shard The bytes of the shard, used without copying.
+     * @return true if the shard was added, false if the bytes are not a shard.
+     * @throws IllegalArgumentException if the shard belongs to another payload, its index was already added or
+     *                                  the payload has more shards than the images given.
+     */
+    public boolean add(byte[] shard) {
+        ByteBuffer buffer = ByteBuffer.wrap(shard);
+        ShardHeader shardHeader = ShardHeader.readFrom(buffer);
+        if (shardHeader == null) {
+            return false;
+        }
+        if (header == null) {
+            if (shardHeader.getTotal() > maxShards) {
+                throw new IllegalArgumentException("The payload has " + shardHeader.getTotal() + " shards, only "
+                        + maxShards + " images are given");
+            }
+            header = shardHeader;
+        } else if (!header.isSameSet(shardHeader)) {
+            throw new IllegalArgumentException("Shard " + shardHeader.getIndex() + " belongs to another payload");
+        }
+        if (shards.putIfAbsent(shardHeader.getIndex(), buffer.slice()) != null) {
+            throw new IllegalArgumentException("Shard " + shardHeader.getIndex() + " was given twice");
+        }
+        return true;
+    }
+
+    /**
+     * @return true if every shard of the payload was added.
+     */
+    public boolean isComplete() {
+        return header != null && getMissingCount() == 0;
+    }
+
+    /**
+     * @return The number of shards not added yet, 0 before the first shard.
+     */
+    public int getMissingCount() {
+        return header == null ? 0 : header.getTotal() - shards.size();
+    }
+
+    /**
+     * @return The lowest indexes of the shards not added yet, at most {@link #MAX_LISTED_MISSING}, empty
+     *         before the first shard.
+     */
+    public List<Integer> getMissing() {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; header != null && i < header.getTotal() && missing.size() < MAX_LISTED_MISSING; i++) {
+            if (!shards.containsKey(i)) {
+                missing.add(i);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * @return The number of shards of the payload, or 0 before the first shard.
+     */
+    public int getTotal() {
+        return header == null ? 0 : header.getTotal();
+    }
+
+    /**
+     * Verifies the reassembled payload and writes it into a sink.
+     *
+     * @param sink The sink receiving the payload, it is not closed.
+     * @return The number of bytes written.
+     * @throws IOException if the sink fails or the compressed payload is damaged.
+     * @throws IllegalArgumentException if shards are missing or the payload does not match its length or hash.
+     */
+    public long writeTo(PayloadSink sink) throws IOException {
+        if (header == null) {
+            throw new IllegalArgumentException("No shard was given");
+        }
+        int missing = getMissingCount();
+        if (missing > 0) {
+            throw new IllegalArgumentException("Missing " + missing + " of " + header.getTotal() + " shards, "
+                    + (missing > MAX_LISTED_MISSING ? "the first are " : "") + getMissing());
+        }
+        MessageDigest digest = ShardHeader.newDigest();
+        long length = 0;
+        for (ByteBuffer shard : shards.values()) {
+            digest.update(shard.duplicate());
+            length += shard.remaining();
+        }
+        if (length != header.getPayloadLength() || !Arrays.equals(digest.digest(), header.getPayloadHash())) {
+            throw new IllegalArgumentException("The reassembled payload does not match the hash of its shards");
+        }
+        try (DecompressingPayloadSink output = new DecompressingPayloadSink(sink)) {
+            for (ByteBuffer shard : shards.values()) {
+                output.write(shard.duplicate());
+            }
+            return output.finish();
+        }
+    }
+}
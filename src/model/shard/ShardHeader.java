@@ -0,0 +1,131 @@
+package model.shard;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * The header leading the bytes embedded into every cover of a sharded payload. It tells where the shard
+ * goes and which payload it belongs to: the index of the shard, the number of shards, the length of the
+ * whole payload and its SHA-256 hash, which also verifies the payload once it is reassembled.
+ * <pre>
+ * magic (4 bytes) | version (1) | index (4) | total (4) | payload length (8) | SHA-256 of the payload (32)
+ * </pre>
+ * All numbers are big-endian.
+ */
+public class ShardHeader {
+
+    /**
+     * The number of bytes of a header.
+     */
+    public static final int SIZE = 4 + 1 + 4 + 4 + 8 + 32;
+
+    /**
+     * The length of the payload hash in bytes.
+     */
+    public static final int HASH_LENGTH = 32;
+
+    private static final int MAGIC = 0x47535348; // "GSSH"
+    private static final byte VERSION = 1;
+
+    private final int index;
+    private final int total;
+    private final long payloadLength;
+    private final byte[] payloadHash;
+
+    /**
+     * Constructs a header.
+     *
+     * @param index The index of the shard, from 0.
+     * @param total The number of shards of the payload.
+     * @param payloadLength The number of bytes of the whole payload.
+     * @param payloadHash The SHA-256 hash of the whole payload, not copied.
+     * @throws IllegalArgumentException if the index is out of range or the hash has the wrong length.
+     */
+    public ShardHeader(int index, int total, long payloadLength, byte[] payloadHash) {
+        if (total < 1 || index < 0 || index >= total || payloadLength < 0) {
+            throw new IllegalArgumentException("Invalid shard " + index + " of " + total + " for " + payloadLength + " bytes");
+        }
+        if (payloadHash.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("The payload hash must be " + HASH_LENGTH + " bytes");
+        }
+        this.index = index;
+        this.total = total;
+        this.payloadLength = payloadLength;
+        this.payloadHash = payloadHash;
+    }
+
+    /**
+     * Writes the header into a buffer.
+     *
+     * @param destination The buffer receiving {@link #SIZE} bytes at its position.
+     */
+    public void writeTo(ByteBuffer destination) {
+        destination.putInt(MAGIC);
+        destination.put(VERSION);
+        destination.putInt(index);
+        destination.putInt(total);
+        destination.putLong(payloadLength);
+        destination.put(payloadHash);
+    }
+
+    /**
+     * Reads a header from the start of the bytes of a shard.
+     *
+     * @param source The buffer holding the header at its position, which is moved past it.
+     * @return The header, or null if the bytes do not start with a valid header.
+     */
+    public static ShardHeader readFrom(ByteBuffer source) {
+        if (source.remaining() < SIZE || source.getInt() != MAGIC || source.get() != VERSION) {
+            return null;
+        }
+        int index = source.getInt();
+        int total = source.getInt();
+        long payloadLength = source.getLong();
+        byte[] payloadHash = new byte[HASH_LENGTH];
+        source.get(payloadHash);
+        if (total < 1 || index < 0 || index >= total || payloadLength < 0) {
+            return null;
+        }
+        return new ShardHeader(index, total, payloadLength, payloadHash);
+    }
+
+    /**
+     * Checks whether another header belongs to the same payload.
+     *
+     * @param other The other header.
+     * @return true if both have the same number of shards, payload length and hash.
+     */
+    public boolean isSameSet(ShardHeader other) {
+        return total == other.total && payloadLength == other.payloadLength && Arrays.equals(payloadHash, other.payloadHash);
+    }
+
+    /**
+     * @return A new SHA-256 digest, for hashing a payload.
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform provides SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public long getPayloadLength() {
+        return payloadLength;
+    }
+
+    public byte[] getPayloadHash() {
+        return payloadHash.clone();
+    }
+}
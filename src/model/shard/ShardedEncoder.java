@@ -0,0 +1,169 @@
+package model.shard;
+
+import model.data_managers.BitArray;
+import model.genetic_algorithm.GeneticAlgorithm;
+import model.genetic_algorithm.GeneticAlgorithmConfig;
+import model.image.ArgbImage;
+import model.payload.PayloadBits;
+import model.payload.PayloadSource;
+import model.utils.ConstantsClass;
+import model.utils.UtilsMethods;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Encodes a payload too large for one cover into an ordered set of covers. The payload is split into one
+ * shard per cover in proportion to the capacity of the covers, so every cover is filled to about the same
+ * ratio, and every shard is led by a {@link ShardHeader}. The genetic algorithm of every shard searches its
+ * own cover on a pool of threads, so a large payload spreads over the cores as well as the covers.
+ * <p>
+ * The payload is read once, straight into the bits of the shards, and hashed on the way.
+ */
+public class ShardedEncoder {
+    private final GeneticAlgorithmConfig config;
+    private final int threads;
+
+    /**
+     * Constructs an encoder.
+     *
+     * @param config The configuration of the genetic algorithm of every shard, shared and only read.
+     * @param threads The number of shards searched at the same time.
+     */
+    public ShardedEncoder(GeneticAlgorithmConfig config, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive");
+        }
+        this.config = config;
+        this.threads = threads;
+    }
+
+    /**
+     * Splits a payload over covers in proportion to the bytes every cover holds after its shard header.
+     *
+     * @param payloadLength The number of bytes of the payload.
+     * @param covers The covers, in the order of the shards.
+     * @return The number of payload bytes of every shard.
+     * @throws IllegalArgumentException if the covers cannot hold the payload.
+     */
+    public static int[] planShards(long payloadLength, List<ArgbImage> covers) {
+        if (covers.isEmpty()) {
+            throw new IllegalArgumentException("No cover to shard the payload into");
+        }
+        int[] capacities = new int[covers.size()];
+        long totalCapacity = 0;
+        for (int i = 0; i < capacities.length; i++) {
+            ArgbImage cover = covers.get(i);
+            capacities[i] = UtilsMethods.secretMessageMaxLength(cover.getWidth(), cover.getHeight()) - ShardHeader.SIZE;
+            if (capacities[i] < 0) {
+                throw new IllegalArgumentException("Cover " + i + " is too small to hold a shard header");
+            }
+            totalCapacity += capacities[i];
+        }
+        if (payloadLength > totalCapacity) {
+            throw new IllegalArgumentException("The payload of " + payloadLength + " bytes is too large, the max size for these "
+                    + capacities.length + " images is " + totalCapacity + " bytes");
+        }
+
+        int[] lengths = new int[capacities.length];
+        long assigned = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            // at most the capacity of the cover, since the payload is at most the total capacity
+            lengths[i] = totalCapacity == 0 ? 0 : (int) (Math.multiplyExact(payloadLength, capacities[i]) / totalCapacity);
+            assigned += lengths[i];
+        }
+        // the bytes lost to rounding down, fewer than the number of covers
+        for (int i = 0; assigned < payloadLength; i++) {
+            if (lengths[i] < capacities[i]) {
+                lengths[i]++;
+                assigned++;
+            }
+        }
+        return lengths;
+    }
+
+    /**
+     * Encodes a payload into covers, one shard per cover, and waits for the last shard.
+     *
+     * @param covers The covers, in the order of the shards, never changed.
+     * @param payload The payload.
+     * @return The encoded images, in the order of the covers.
+     * @throws IOException if the payload cannot be read.
+     * @throws InterruptedException if the calling thread is interrupted, the searches are stopped.
+     * @throws IllegalArgumentException if the covers cannot hold the payload.
+     */
+    public List<ArgbImage> encode(List<ArgbImage> covers, PayloadSource payload) throws IOException, InterruptedException {
+        BitArray[] shards = readShards(payload, planShards(payload.length(), covers));
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, shards.length));
+        try {
+            List<Future<ArgbImage>> pending = new ArrayList<>(shards.length);
+            for (int i = 0; i < shards.length; i++) {
+                ArgbImage cover = covers.get(i);
+                BitArray shard = shards[i];
+                pending.add(pool.submit(() -> new GeneticAlgorithm(cover, shard, config).run()));
+            }
+            List<ArgbImage> encoded = new ArrayList<>(shards.length);
+            for (Future<ArgbImage> future : pending) {
+                encoded.add(future.get());
+            }
+            return encoded;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the payload into the bits of the shards after the room for their headers, then writes the
+     * headers, which need the hash of the whole payload.
+     */
+    private static BitArray[] readShards(PayloadSource payload, int[] lengths) throws IOException {
+        MessageDigest digest = ShardHeader.newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(PayloadSource.BUFFER_SIZE);
+        BitArray[] shards = new BitArray[lengths.length];
+        long read = 0;
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new BitArray((ShardHeader.SIZE + lengths[i]) * ConstantsClass.BITS_PER_BYTE);
+            int bitIndex = ShardHeader.SIZE * ConstantsClass.BITS_PER_BYTE;
+            while (bitIndex < shards[i].size()) {
+                buffer.clear();
+                buffer.limit(Math.min(buffer.capacity(), (shards[i].size() - bitIndex) / ConstantsClass.BITS_PER_BYTE));
+                int count = payload.read(buffer);
+                if (count < 0) {
+                    throw new EOFException("The payload ended after " + read + " of " + payload.length() + " bytes");
+                }
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                PayloadBits.toBits(buffer, shards[i], bitIndex);
+                bitIndex += count * ConstantsClass.BITS_PER_BYTE;
+                read += count;
+            }
+        }
+
+        byte[] hash = digest.digest();
+        ByteBuffer header = ByteBuffer.allocate(ShardHeader.SIZE);
+        for (int i = 0; i < shards.length; i++) {
+            header.clear();
+            new ShardHeader(i, shards.length, payload.length(), hash).writeTo(header);
+            header.flip();
+            PayloadBits.toBits(header, shards[i], 0);
+        }
+        return shards;
+    }
+}
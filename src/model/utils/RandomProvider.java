@@ -0,0 +1,35 @@
+package model.utils;
+
+import java.util.SplittableRandom;
+
+/**
+ * Provides a random number generator per thread. Every thread gets its own {@link SplittableRandom}
+ * split from a common root, so concurrent encodes never contend on a shared generator and the
+ * streams of different threads are statistically independent.
+ */
+public class RandomProvider {
+    private static final SplittableRandom root = new SplittableRandom();
+
+    private static final ThreadLocal<SplittableRandom> generators = ThreadLocal.withInitial(RandomProvider::split);
+
+    /**
+     * Returns the generator of the calling thread. The generator must not be shared with other threads.
+     *
+     * @return The random number generator of the current thread.
+     */
+    public static SplittableRandom current() {
+        return generators.get();
+    }
+
+    /**
+     * Splits a new independent generator from the root. The root itself is not thread safe,
+     * so splitting is synchronized; it only happens once per thread.
+     *
+     * @return A new generator.
+     */
+    private static SplittableRandom split() {
+        synchronized (root) {
+            return root.split();
+        }
+    }
+}
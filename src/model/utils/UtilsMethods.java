@@ -1,9 +1,12 @@
 package model.utils;
 
 import model.data_managers.BitArray;
-import model.data_managers.image_metedate.ImageMetadata;
+import model.data_managers.EmbeddingLayout;
+import model.data_managers.image_metedate.CompactHeader;
+import model.payload.PayloadBits;
 
 import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Provides utility methods for various operations required in the context of
@@ -21,7 +24,7 @@ public class UtilsMethods {
      * @return The minimum number of bits required to represent the given integer.
      */
     public static int bitsNeeded(int number) {
-        // Special case for zero, as log(0) is undefined.
+        // Special case for zero, which has no set bit.
         if (number == 0) {
             return 1;
         }
@@ -33,21 +36,44 @@ public class UtilsMethods {
             }
             number = -number;
         }
-        // Calculate the number of bits (log2(number) + 1).
-        return (int) (Math.log(number) / Math.log(2)) + 1;
+        // The number of bits is floor(log2(number)) + 1, the position of the highest set bit.
+        return Integer.SIZE - Integer.numberOfLeadingZeros(number);
+    }
+
+    /**
+     * Calculates the minimum number of bits required to represent a given long value, like
+     * {@link #bitsNeeded(int)}. The capacity of a large image does not fit into an int.
+     *
+     * @param number The long whose bit requirement is to be calculated.
+     * @return The minimum number of bits required to represent the given long.
+     */
+    public static int bitsNeeded(long number) {
+        if (number == 0) {
+            return 1;
+        }
+        if (number < 0) {
+            if (number == Long.MIN_VALUE) {
+                return 64;
+            }
+            number = -number;
+        }
+        return Long.SIZE - Long.numberOfLeadingZeros(number);
     }
 
     /**
      * Calculates the maximum amount of data (in bits) that can be stored in an image,
      * excluding any header or metadata. This calculation is based on the image dimensions
      * and the bits per byte that can be replaced in each pixel's color channels.
+     * The result is a long, 9 bits per pixel overflow an int from about 238 megapixels on.
      *
      * @param imageWidth  The width of the image in pixels.
      * @param imageHeight The height of the image in pixels.
      * @return The maximum number of bits that can be stored in the image without a header.
+     * @throws ArithmeticException if the dimensions are too large for a long.
      */
-    public static int maxDataSizeNoHeaderInBits(int imageWidth, int imageHeight){
-        return (ConstantsClass.BITS_REPLACED_PER_BYTE * ConstantsClass.BYTES_IN_PIXEL * imageHeight * imageWidth);
+    public static long maxDataSizeNoHeaderInBits(int imageWidth, int imageHeight){
+        return Math.multiplyExact((long) ConstantsClass.BITS_REPLACED_PER_BYTE * ConstantsClass.BYTES_IN_PIXEL,
+                (long) imageHeight * imageWidth);
     }
 
     /**
@@ -59,8 +85,8 @@ public class UtilsMethods {
      * @param imageHeight The height of the image in pixels.
      * @return The maximum number of swaps and offset size based on the image dimensions.
      */
-    public static int maxNumberOfSwapsAndOffsetSize(int imageWidth, int imageHeight){
-        return (ConstantsClass.BITS_REPLACED_PER_BYTE * ConstantsClass.BYTES_IN_PIXEL * imageHeight * imageWidth) / 2;
+    public static long maxNumberOfSwapsAndOffsetSize(int imageWidth, int imageHeight){
+        return maxDataSizeNoHeaderInBits(imageWidth, imageHeight) / 2;
     }
 
     /**
@@ -75,6 +101,17 @@ public class UtilsMethods {
         return bitDataLength / 2;
     }
 
+    /**
+     * Determines the number of swap operations for a data length read from metadata,
+     * like {@link #numberOfSwapsForData(int)}.
+     *
+     * @param bitDataLength The length of the data in bits.
+     * @return The number of swaps that can be performed on the data.
+     */
+    public static long numberOfSwapsForData(long bitDataLength){
+        return bitDataLength / 2;
+    }
+
     /**
      * Combines two arrays of the same type into a single array. This method is generic and
      * can work with any object type, provided that both arrays are of the same type.
@@ -94,15 +131,20 @@ public class UtilsMethods {
 
     /**
      * Calculates the maximum length of a secret message that can be encoded into an image,
-     * taking into account the image dimensions and the space required for metadata.
+     * taking into account the image dimensions and the pixels of its {@link CompactHeader}.
+     * The embedded sections are held in one {@link BitArray} while encoding and decoding, so
+     * the capacity of an image is capped at {@link Integer#MAX_VALUE} bits, about 256 MB.
      *
      * @param imageWidth  The width of the image in pixels.
      * @param imageHeight The height of the image in pixels.
-     * @return The maximum length of the secret message in characters.
+     * @return The maximum length of the secret message in bytes.
      */
     public static int secretMessageMaxLength(int imageWidth, int imageHeight){
-        return (maxDataSizeNoHeaderInBits(imageWidth, imageHeight) - ImageMetadata.getSizeInBits(imageWidth, imageHeight))
-                / ConstantsClass.BITS_PER_BYTE - ConstantsClass.ENCODING_PASSKEY.length();
+        long capacity = Math.min(maxDataSizeNoHeaderInBits(imageWidth, imageHeight), Integer.MAX_VALUE);
+        // the header of the longest data that could fit is the largest header the message needs
+        long headerBits = EmbeddingLayout.pixelsFor((long) CompactHeader.getSizeInBits(capacity))
+                * ConstantsClass.BITS_REPLACED_PER_BYTE * ConstantsClass.BYTES_IN_PIXEL;
+        return (int) ((capacity - headerBits) / ConstantsClass.BITS_PER_BYTE);
     }
 
     /**
@@ -114,26 +156,8 @@ public class UtilsMethods {
      * @throws IllegalArgumentException If the BitArray size is not a multiple of 8.
      */
     public static String convertBitArrayToItsChars(BitArray bitArray){
-        StringBuilder text = new StringBuilder();
-        int size = bitArray.size();
-
-        // Ensure the BitArray length is a multiple of BITS_PER_BYTE
-        if (size % ConstantsClass.BITS_PER_BYTE != 0) {
-            throw new IllegalArgumentException("BitArray size must be a multiple of " + ConstantsClass.BITS_PER_BYTE);
-        }
-
-        for (int bitIndex = 0; bitIndex < size; bitIndex += ConstantsClass.BITS_PER_BYTE) {
-            int value = 0;
-            for (int i = 0; i < ConstantsClass.BITS_PER_BYTE; i++) {
-                value <<= 1;
-                if (bitArray.get(bitIndex + i)) {
-                    value |= 1;
-                }
-            }
-            char c = (char) value;
-            text.append(c);
-        }
-        return text.toString();
+        // every byte is one character, which is exactly ISO-8859-1
+        return new String(PayloadBits.toBytes(bitArray), StandardCharsets.ISO_8859_1);
     }
 
     public static int calculatePadding(int originalSize){
@@ -0,0 +1,167 @@
+package server;
+
+import model.image.ArgbImage;
+import model.image.PngWriter;
+import model.utils.UtilsMethods;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Starts a {@link SteganographyServer} on a free loopback port and checks every endpoint over HTTP: a payload
+ * round trips through encode and decode, a second encode into the cover finds it in the cache, the capacity
+ * matches {@link UtilsMethods#secretMessageMaxLength}, a deadline stops a long search early, a full queue is
+ * answered with 429, distinct covers turned away are never decoded, and bad requests are answered with
+ * their status. Exits with status 1 if any check fails.
+ */
+public class ServerCheck {
+    private static int failures;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        ServerConfig config = new ServerConfig();
+        config.setPort(0);
+        config.setSearchers(1);
+        config.setQueueCapacity(1);
+        SteganographyServer server = new SteganographyServer(config);
+        server.start();
+        String base = "http://127.0.0.1:" + server.getPort();
+        HttpClient client = HttpClient.newHttpClient();
+        try {
+            Random random = new Random(3);
+            byte[] cover = png(randomImage(160, 120, random));
+            byte[] payload = "a payload sent to the server over loopback, ".repeat(20).getBytes(StandardCharsets.UTF_8);
+
+            HttpResponse<byte[]> encoded = client.send(encodeRequest(base + "/encode?generations=5", cover, payload),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            check(encoded.statusCode() == 200 && encoded.headers().firstValue("X-Psnr").isPresent(), "encode answers with a PNG");
+            HttpResponse<byte[]> decoded = client.send(post(base + "/decode", encoded.body()), HttpResponse.BodyHandlers.ofByteArray());
+            check(decoded.statusCode() == 200 && Arrays.equals(decoded.body(), payload), "the payload round trips");
+            check(client.send(post(base + "/decode", cover), HttpResponse.BodyHandlers.ofString()).statusCode() == 422,
+                    "a plain cover is answered with 422");
+
+            HttpResponse<byte[]> again = client.send(encodeRequest(base + "/encode?generations=5", cover, "another payload".getBytes(StandardCharsets.UTF_8)),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            HttpResponse<String> cache = client.send(HttpRequest.newBuilder(URI.create(base + "/cache")).build(), HttpResponse.BodyHandlers.ofString());
+            check(again.statusCode() == 200 && cache.body().contains("\"hits\": 1, \"misses\": 1,"),
+                    "a second encode into the same cover finds it in the cache: " + cache.body().trim());
+
+            String expected = "\"maxBytes\": " + UtilsMethods.secretMessageMaxLength(160, 120);
+            HttpResponse<String> byQuery = client.send(HttpRequest.newBuilder(URI.create(base + "/capacity?width=160&height=120")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> byImage = client.send(post(base + "/capacity", cover), HttpResponse.BodyHandlers.ofString());
+            check(byQuery.statusCode() == 200 && byQuery.body().contains(expected), "capacity by dimensions");
+            check(byImage.statusCode() == 200 && byImage.body().contains(expected), "capacity by image");
+
+            long start = System.nanoTime();
+            HttpResponse<byte[]> limited = client.send(encodeRequest(base + "/encode?generations=10000&deadline-ms=400", cover, payload),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            int generations = Integer.parseInt(limited.headers().firstValue("X-Generations-Run").orElse("0"));
+            check(limited.statusCode() == 200 && generations > 0 && generations < 10000 && millis < 2000,
+                    "a deadline of 400 ms stops the search after " + generations + " generations, " + millis + " ms");
+
+            // one search runs and one waits, the others find the queue full
+            List<CompletableFuture<HttpResponse<String>>> flood = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                flood.add(client.sendAsync(encodeRequest(base + "/encode?generations=10000&deadline-ms=1500", cover, payload),
+                        HttpResponse.BodyHandlers.ofString()));
+            }
+            int rejected = 0;
+            for (CompletableFuture<HttpResponse<String>> response : flood) {
+                HttpResponse<String> answer = response.join();
+                if (answer.statusCode() == 429 && answer.headers().firstValue("Retry-After").isPresent()) {
+                    rejected++;
+                }
+            }
+            check(rejected > 0, rejected + " of 6 concurrent encodes are answered with 429");
+
+            // covers that find no place are answered before they are read, let alone decoded
+            long missesBefore = cacheCounter(client, base, "misses");
+            List<CompletableFuture<HttpResponse<String>>> distinct = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                distinct.add(client.sendAsync(encodeRequest(base + "/encode?generations=10000&deadline-ms=1500",
+                        png(randomImage(160, 120, random)), payload), HttpResponse.BodyHandlers.ofString()));
+            }
+            int turnedAway = 0;
+            for (CompletableFuture<HttpResponse<String>> response : distinct) {
+                if (response.join().statusCode() == 429) {
+                    turnedAway++;
+                }
+            }
+            long decodes = cacheCounter(client, base, "misses") - missesBefore;
+            check(turnedAway > 0 && decodes == 6 - turnedAway,
+                    turnedAway + " of 6 distinct covers are answered with 429, " + decodes + " are decoded");
+
+            check(client.send(post(base + "/encode", cover), HttpResponse.BodyHandlers.ofString()).statusCode() == 400,
+                    "an encode without the cover length is answered with 400");
+            check(client.send(encodeRequest(base + "/encode?generations=abc", cover, payload), HttpResponse.BodyHandlers.ofString())
+                    .statusCode() == 400, "a bad parameter is answered with 400");
+            check(client.send(HttpRequest.newBuilder(URI.create(base + "/decode")).build(), HttpResponse.BodyHandlers.ofString())
+                    .statusCode() == 405, "a GET of decode is answered with 405");
+            byte[] tooLarge = new byte[UtilsMethods.secretMessageMaxLength(160, 120) + 1];
+            random.nextBytes(tooLarge);
+            check(client.send(encodeRequest(base + "/encode?compress=none", cover, tooLarge), HttpResponse.BodyHandlers.ofString())
+                    .statusCode() == 413, "a payload larger than the cover holds is answered with 413");
+        } finally {
+            server.stop(0);
+        }
+
+        System.out.println(failures == 0 ? "all checks passed" : failures + " checks failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static HttpRequest encodeRequest(String uri, byte[] cover, byte[] payload) {
+        byte[] body = Arrays.copyOf(cover, cover.length + payload.length);
+        System.arraycopy(payload, 0, body, cover.length, payload.length);
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("X-Cover-Length", Integer.toString(cover.length))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    private static long cacheCounter(HttpClient client, String base, String name) throws IOException, InterruptedException {
+        String body = client.send(HttpRequest.newBuilder(URI.create(base + "/cache")).build(), HttpResponse.BodyHandlers.ofString()).body();
+        Matcher matcher = Pattern.compile("\"" + name + "\": (\\d+)").matcher(body);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static HttpRequest post(String uri, byte[] body) {
+        return HttpRequest.newBuilder(URI.create(uri)).POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+    }
+
+    private static ArgbImage randomImage(int width, int height, Random random) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return new ArgbImage(width, height, pixels);
+    }
+
+    private static byte[] png(ArgbImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PngWriter().write(image, out);
+        return out.toByteArray();
+    }
+
+    private static void check(boolean passed, String description) {
+        System.out.println((passed ? "ok     " : "FAILED ") + description);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package server;
+
+import model.image.PngFilter;
+import model.payload.PayloadCodec;
+
+import java.net.InetAddress;
+
+/**
+ * Holds the settings of a {@link SteganographyServer}. A new instance listens on the loopback address with
+ * one genetic algorithm thread per processor, so only the settings that should differ need to be set.
+ */
+public class ServerConfig {
+    private InetAddress address = InetAddress.getLoopbackAddress();
+    private int port = 8080;
+    private int searchers = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 2 * Runtime.getRuntime().availableProcessors();
+    private long maxRequestBytes = 256L * 1024 * 1024;
+    private long defaultDeadlineMillis = 60_000;
+    private long maxDeadlineMillis = 600_000;
+    private int maxGenerations = 10_000;
+    private int maxPopulationSize = 1_000;
+    private PayloadCodec codec = PayloadCodec.DEFLATE;
+    private long coverCacheBytes = 512L * 1024 * 1024;
+    private int pngCompressionLevel = 6;
+    private PngFilter pngFilter = PngFilter.ADAPTIVE;
+
+    /**
+     * @return The address the server listens on, the loopback address unless it should be reachable from other hosts.
+     */
+    public InetAddress getAddress() {
+        return address;
+    }
+
+    public void setAddress(InetAddress address) {
+        this.address = address;
+    }
+
+    /**
+     * @return The port the server listens on, 0 for any free port.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * @return The number of platform threads running the genetic algorithm.
+     */
+    public int getSearchers() {
+        return searchers;
+    }
+
+    public void setSearchers(int searchers) {
+        this.searchers = searchers;
+    }
+
+    /**
+     * @return The number of encodes that can wait for a searcher, more are answered with 429.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @return The largest request body in bytes, larger ones are answered with 413.
+     */
+    public long getMaxRequestBytes() {
+        return maxRequestBytes;
+    }
+
+    public void setMaxRequestBytes(long maxRequestBytes) {
+        this.maxRequestBytes = maxRequestBytes;
+    }
+
+    /**
+     * @return The deadline of an encode that does not ask for one, in milliseconds from its arrival.
+     */
+    public long getDefaultDeadlineMillis() {
+        return defaultDeadlineMillis;
+    }
+
+    public void setDefaultDeadlineMillis(long defaultDeadlineMillis) {
+        this.defaultDeadlineMillis = defaultDeadlineMillis;
+    }
+
+    /**
+     * @return The longest deadline an encode may ask for, in milliseconds.
+     */
+    public long getMaxDeadlineMillis() {
+        return maxDeadlineMillis;
+    }
+
+    public void setMaxDeadlineMillis(long maxDeadlineMillis) {
+        this.maxDeadlineMillis = maxDeadlineMillis;
+    }
+
+    /**
+     * @return The largest number of generations an encode may ask for.
+     */
+    public int getMaxGenerations() {
+        return maxGenerations;
+    }
+
+    public void setMaxGenerations(int maxGenerations) {
+        this.maxGenerations = maxGenerations;
+    }
+
+    /**
+     * @return The largest population an encode may ask for.
+     */
+    public int getMaxPopulationSize() {
+        return maxPopulationSize;
+    }
+
+    public void setMaxPopulationSize(int maxPopulationSize) {
+        this.maxPopulationSize = maxPopulationSize;
+    }
+
+    /**
+     * @return The codec payloads are compressed with unless an encode asks for another.
+     */
+    public PayloadCodec getCodec() {
+        return codec;
+    }
+
+    public void setCodec(PayloadCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * @return The memory the decoded covers of recent encodes may hold in bytes, 0 to decode every cover.
+     */
+    public long getCoverCacheBytes() {
+        return coverCacheBytes;
+    }
+
+    public void setCoverCacheBytes(long coverCacheBytes) {
+        this.coverCacheBytes = coverCacheBytes;
+    }
+
+    /**
+     * @return The deflate level of the PNGs answered to encodes, from 0 for no compression to 9 for the smallest.
+     */
+    public int getPngCompressionLevel() {
+        return pngCompressionLevel;
+    }
+
+    public void setPngCompressionLevel(int pngCompressionLevel) {
+        this.pngCompressionLevel = pngCompressionLevel;
+    }
+
+    /**
+     * @return The row filter of the PNGs answered to encodes.
+     */
+    public PngFilter getPngFilter() {
+        return pngFilter;
+    }
+
+    public void setPngFilter(PngFilter pngFilter) {
+        this.pngFilter = pngFilter;
+    }
+}
@@ -0,0 +1,491 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.genetic_algorithm.GeneticAlgorithm;
+import model.genetic_algorithm.GeneticAlgorithmConfig;
+import model.image.CoverCache;
+import model.image.PngFilter;
+import model.image.PngWriter;
+import model.image.PreparedCover;
+import model.image.RowStreamingImage;
+import model.payload.PayloadCodec;
+import model.payload.PayloadCompression;
+import model.payload.PayloadDecoder;
+import model.payload.PayloadSink;
+import model.payload.PayloadSource;
+import model.utils.UtilsMethods;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An HTTP server that encodes, decodes and reports the capacity of images, built on the HTTP server of the
+ * JDK. Every request is handled on its own virtual thread, which reads the request and writes the response
+ * as streams. The work of an encode, decoding the cover, compressing the payload, the genetic algorithm and
+ * deflating the PNG, runs on a fixed pool of platform threads with a bounded queue. An encode takes its place on a searcher or
+ * in the queue before its body is buffered, so at most that many covers and payloads are held in memory;
+ * an encode that finds no place is answered with 429 and a {@code Retry-After} header. Decodes and capacity
+ * requests only stream the rows they need and run on their request threads.
+ * <pre>
+ * POST /encode?generations=n&amp;population=n&amp;local-search=n&amp;compress=codec&amp;deadline-ms=n
+ *      X-Cover-Length: &lt;bytes of the cover&gt;, the body is the cover image followed by the payload
+ *      200 image/png, with X-Psnr, X-Generations-Run, X-Payload-Bytes and X-Embedded-Bytes
+ * POST /decode, the body is the stego image
+ *      200 application/octet-stream, the payload; 422 if the image holds none
+ * GET  /capacity?width=n&amp;height=n, or POST /capacity with an image body of which only the header is read
+ *      200 application/json, {"width": n, "height": n, "maxBytes": n}
+ * GET  /cache
+ *      200 application/json, the hits, misses, evictions, entries and bytes of the cover cache
+ * </pre>
+ * Decoded covers are kept in a {@link CoverCache} keyed by the hash of their bytes, so encodes into a cover
+ * seen recently skip decoding and preparing it. The PNGs answered use the compression level and the row
+ * filter of the {@link ServerConfig}.
+ * <p>
+ * The deadline of an encode starts when the request arrives and covers reading it, the wait in the queue
+ * and the search. It becomes the time limit of the genetic algorithm, which returns its fittest embedding
+ * so far instead of starting a generation it would not finish; an encode still queued at its deadline is
+ * answered with 503. Errors are answered with a status and a plain text message, except once a payload is
+ * being streamed: a decode that fails then drops the connection, so a truncated payload is never taken for
+ * a whole one.
+ */
+public class SteganographyServer {
+    private static final String COVER_LENGTH = "X-Cover-Length";
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final ServerConfig config;
+    private final HttpServer server;
+    private final ExecutorService requests;
+    private final ThreadPoolExecutor searchers;
+    private final Semaphore encodeSlots;
+    private final CoverCache coverCache;
+    private final PngWriter pngWriter;
+
+    /**
+     * Binds a server, which does not accept requests before {@link #start()}.
+     *
+     * @param config The settings of the server.
+     * @throws IOException if the address cannot be bound.
+     */
+    public SteganographyServer(ServerConfig config) throws IOException {
+        if (config.getSearchers() < 1 || config.getQueueCapacity() < 1) {
+            throw new IllegalArgumentException("The number of searchers and the queue capacity must be positive");
+        }
+        this.config = config;
+        server = HttpServer.create(new InetSocketAddress(config.getAddress(), config.getPort()), 0);
+        requests = Executors.newVirtualThreadPerTaskExecutor();
+        searchers = new ThreadPoolExecutor(config.getSearchers(), config.getSearchers(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                Thread.ofPlatform().name("server-search-", 0).daemon().factory());
+        encodeSlots = new Semaphore(config.getSearchers() + config.getQueueCapacity());
+        coverCache = new CoverCache(config.getCoverCacheBytes());
+        pngWriter = new PngWriter();
+        pngWriter.setCompressionLevel(config.getPngCompressionLevel());
+        pngWriter.setFilter(config.getPngFilter());
+        // the PNG is deflated by the searcher that found the embedding, the searchers bound the threads
+        pngWriter.setThreads(1);
+        server.setExecutor(requests);
+        server.createContext("/encode", exchange -> handle(exchange, "POST", this::encode));
+        server.createContext("/decode", exchange -> handle(exchange, "POST", this::decode));
+        server.createContext("/capacity", exchange -> handle(exchange, null, this::capacity));
+        server.createContext("/cache", exchange -> handle(exchange, "GET", this::cacheStatistics));
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        ServerConfig config = new ServerConfig();
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing the value of " + args[i]);
+            }
+            if (args[i].equals("--png-filter")) {
+                config.setPngFilter(PngFilter.valueOf(args[i + 1].toUpperCase(Locale.ROOT)));
+                continue;
+            }
+            int value = Integer.parseInt(args[i + 1]);
+            switch (args[i]) {
+                case "--port" -> config.setPort(value);
+                case "--searchers" -> config.setSearchers(value);
+                case "--queue" -> config.setQueueCapacity(value);
+                case "--cache-mb" -> config.setCoverCacheBytes(value * 1024L * 1024);
+                case "--png-level" -> config.setPngCompressionLevel(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        SteganographyServer server = new SteganographyServer(config);
+        server.start();
+        System.err.println("listening on http://" + config.getAddress().getHostAddress() + ":" + server.getPort());
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, gives the running ones a moment to end and stops the searchers.
+     *
+     * @param delaySeconds The number of seconds to wait for running requests.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        searchers.shutdownNow();
+        requests.shutdownNow();
+    }
+
+    /**
+     * @return The port the server listens on, the one picked if the configured port is 0.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) {
+        try {
+            if (method != null && !method.equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", method);
+                throw new RequestException(405, exchange.getRequestMethod() + " is not allowed, use " + method);
+            }
+            endpoint.handle(exchange);
+            exchange.close();
+        } catch (RequestException e) {
+            respondWithError(exchange, e.status, e.getMessage());
+        } catch (RejectedExecutionException e) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respondWithError(exchange, 429, "Too many encodes are waiting, try again later");
+        } catch (IllegalArgumentException e) {
+            respondWithError(exchange, 400, e.getMessage());
+        } catch (IOException | UncheckedIOException e) {
+            respondWithError(exchange, 400, e instanceof UncheckedIOException ? e.getCause().getMessage() : e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respondWithError(exchange, 503, "The server is stopping");
+        } catch (RuntimeException e) {
+            respondWithError(exchange, 500, "Internal error: " + e);
+        }
+    }
+
+    /**
+     * Answers with an error, or drops the connection if the response has already started, since closing
+     * its body would end it like a complete one.
+     */
+    private static void respondWithError(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            throw new IllegalStateException("The response failed after it started: " + message);
+        }
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (IOException e) {
+            // the client is gone
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void encode(HttpExchange exchange) throws IOException, InterruptedException, RequestException {
+        long arrival = System.nanoTime();
+        Map<String, String> query = query(exchange.getRequestURI());
+        long deadlineMillis = longParameter(query, "deadline-ms", config.getDefaultDeadlineMillis(), 1, config.getMaxDeadlineMillis());
+        long deadline = arrival + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+
+        GeneticAlgorithmConfig gaConfig = new GeneticAlgorithmConfig();
+        gaConfig.setVerbose(false);
+        gaConfig.setGenerations((int) longParameter(query, "generations", gaConfig.getGenerations(), 1, config.getMaxGenerations()));
+        gaConfig.setPopulationSize((int) longParameter(query, "population", gaConfig.getPopulationSize(), 2, config.getMaxPopulationSize()));
+        gaConfig.setLocalSearchCount((int) longParameter(query, "local-search", gaConfig.getLocalSearchCount(), 0, config.getMaxPopulationSize()));
+        PayloadCodec codec = query.containsKey("compress") ? parseCodec(query.get("compress")) : config.getCodec();
+
+        long bodyLength = bodyLength(exchange);
+        String coverHeader = exchange.getRequestHeaders().getFirst(COVER_LENGTH);
+        if (coverHeader == null) {
+            throw new RequestException(400, "The " + COVER_LENGTH + " header gives the length of the cover at the start of the body");
+        }
+        long coverLength = parseLong(COVER_LENGTH, coverHeader, 1, bodyLength);
+        long payloadLength = bodyLength - coverLength;
+        if (payloadLength == 0) {
+            throw new RequestException(400, "Nothing to encode, the body holds only the cover");
+        }
+
+        if (coverLength > MAX_ARRAY_LENGTH || payloadLength > MAX_ARRAY_LENGTH) {
+            throw new RequestException(413, "The cover and the payload must each be smaller than " + MAX_ARRAY_LENGTH + " bytes");
+        }
+
+        // the body is only buffered once the encode has a place on a searcher or in the queue
+        if (!encodeSlots.tryAcquire()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            throw new RequestException(429, "Too many encodes are waiting, try again later");
+        }
+        try {
+            encode(exchange, coverLength, payloadLength, codec, gaConfig, deadline);
+        } finally {
+            encodeSlots.release();
+        }
+    }
+
+    private void encode(HttpExchange exchange, long coverLength, long payloadLength, PayloadCodec codec,
+                        GeneticAlgorithmConfig gaConfig, long deadline) throws IOException, InterruptedException, RequestException {
+        InputStream body = exchange.getRequestBody();
+        byte[] coverBytes = body.readNBytes((int) coverLength);
+        byte[] payload = body.readNBytes((int) payloadLength);
+        if (coverBytes.length != coverLength || payload.length != payloadLength) {
+            throw new RequestException(400, "The body ended after " + (coverBytes.length + payload.length) + " of " + (coverLength + payloadLength) + " bytes");
+        }
+        // decoding the cover, compressing and searching run on a searcher, this thread waits without holding one
+        Future<Encoded> search = searchers.submit(() -> search(coverBytes, payload, codec, gaConfig, deadline));
+        Encoded encoded;
+        try {
+            encoded = search.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RequestException requestException) {
+                throw requestException;
+            } else if (e.getCause() instanceof IllegalArgumentException illegalArgument) {
+                throw illegalArgument;
+            } else if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IllegalStateException("The search failed", e.getCause());
+        } catch (InterruptedException e) {
+            search.cancel(true);
+            throw e;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "image/png");
+        exchange.getResponseHeaders().set("X-Psnr", String.format(Locale.ROOT, "%.3f", encoded.psnr));
+        exchange.getResponseHeaders().set("X-Generations-Run", Integer.toString(encoded.generationsRun));
+        exchange.getResponseHeaders().set("X-Payload-Bytes", Long.toString(payloadLength));
+        exchange.getResponseHeaders().set("X-Embedded-Bytes", Long.toString(encoded.embeddedBytes));
+        exchange.sendResponseHeaders(200, encoded.png.length);
+        exchange.getResponseBody().write(encoded.png);
+    }
+
+    /**
+     * Decodes the cover, compresses the payload, searches for its embedding and writes the PNG, on a
+     * searcher thread.
+     */
+    private Encoded search(byte[] coverBytes, byte[] payload, PayloadCodec codec, GeneticAlgorithmConfig gaConfig,
+                           long deadline) throws IOException, RequestException {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new RequestException(503, "The deadline passed while the encode was queued");
+        }
+        // a cover seen recently is neither decoded nor prepared again
+        PreparedCover cover = coverCache.get(coverBytes);
+        PayloadSource embedded = PayloadCompression.compress(PayloadSource.ofBytes(payload), codec);
+        int maxBytes = UtilsMethods.secretMessageMaxLength(cover.getImage().getWidth(), cover.getImage().getHeight());
+        if (embedded.length() > maxBytes) {
+            throw new RequestException(413, "The payload of " + embedded.length() + " bytes is too large, the max size for this image is " + maxBytes + " bytes");
+        }
+        gaConfig.setTimeLimitMillis(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        GeneticAlgorithm geneticAlgorithm = new GeneticAlgorithm(cover, embedded, gaConfig);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        pngWriter.write(geneticAlgorithm.run(), png);
+        return new Encoded(png.toByteArray(), geneticAlgorithm.getFittestChromosome().getFitnessScore(),
+                geneticAlgorithm.getGenerationsRun(), embedded.length());
+    }
+
+    private void decode(HttpExchange exchange) throws IOException, RequestException {
+        bodyLength(exchange);
+        long decodedBytes;
+        ResponseSink sink = new ResponseSink(exchange);
+        try (RowStreamingImage stegoImage = RowStreamingImage.open(exchange.getRequestBody())) {
+            // only the rows holding the payload are read from the body
+            decodedBytes = new PayloadDecoder(stegoImage).decodeTo(sink);
+        }
+        if (decodedBytes < 0) {
+            throw new RequestException(422, "The image was not encoded by this algorithm");
+        }
+        sink.finish();
+    }
+
+    private void capacity(HttpExchange exchange) throws IOException, RequestException {
+        int width;
+        int height;
+        if (exchange.getRequestMethod().equals("POST")) {
+            bodyLength(exchange);
+            // only the header of the image is read
+            try (RowStreamingImage image = RowStreamingImage.open(exchange.getRequestBody())) {
+                width = image.getWidth();
+                height = image.getHeight();
+            }
+        } else if (exchange.getRequestMethod().equals("GET")) {
+            Map<String, String> query = query(exchange.getRequestURI());
+            if (!query.containsKey("width") || !query.containsKey("height")) {
+                throw new RequestException(400, "Give the width and height of the image, or POST the image");
+            }
+            width = (int) longParameter(query, "width", 0, 1, Integer.MAX_VALUE);
+            height = (int) longParameter(query, "height", 0, 1, Integer.MAX_VALUE);
+        } else {
+            exchange.getResponseHeaders().set("Allow", "GET, POST");
+            throw new RequestException(405, exchange.getRequestMethod() + " is not allowed, use GET or POST");
+        }
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new RequestException(400, "An image of " + width + "x" + height + " has more pixels than an image can hold");
+        }
+        int maxBytes = Math.max(0, UtilsMethods.secretMessageMaxLength(width, height));
+        byte[] body = String.format(Locale.ROOT, "{\"width\": %d, \"height\": %d, \"maxBytes\": %d}%n", width, height, maxBytes)
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private void cacheStatistics(HttpExchange exchange) throws IOException {
+        byte[] body = String.format(Locale.ROOT, "{\"hits\": %d, \"misses\": %d, \"evictions\": %d, \"entries\": %d, \"bytes\": %d, \"maxBytes\": %d}%n",
+                coverCache.getHits(), coverCache.getMisses(), coverCache.getEvictions(), coverCache.getEntries(),
+                coverCache.getSizeInBytes(), coverCache.getMaxBytes()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * Checks the length of the request body against the largest one allowed.
+     *
+     * @return The length of the body.
+     */
+    private long bodyLength(HttpExchange exchange) throws RequestException {
+        String header = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (header == null) {
+            throw new RequestException(411, "The request needs a Content-Length");
+        }
+        long length = parseLong("Content-Length", header, 0, Long.MAX_VALUE);
+        if (length > config.getMaxRequestBytes()) {
+            throw new RequestException(413, "The body of " + length + " bytes is larger than " + config.getMaxRequestBytes() + " bytes");
+        }
+        return length;
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = equals < 0 ? parameter : parameter.substring(0, equals);
+            String value = equals < 0 ? "" : parameter.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static long longParameter(Map<String, String> query, String name, long defaultValue, long min, long max) throws RequestException {
+        String value = query.get(name);
+        return value == null ? defaultValue : parseLong(name, value, min, max);
+    }
+
+    private static long parseLong(String name, String value, long min, long max) throws RequestException {
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed >= min && parsed <= max) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // answered below
+        }
+        throw new RequestException(400, name + " must be a number from " + min + " to " + max + ", not " + value);
+    }
+
+    private static PayloadCodec parseCodec(String name) throws RequestException {
+        for (PayloadCodec codec : PayloadCodec.values()) {
+            if (codec.name().equals(name.toUpperCase(Locale.ROOT))) {
+                return codec;
+            }
+        }
+        throw new RequestException(400, "Unknown codec " + name + ", use deflate, lz or none");
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        void handle(HttpExchange exchange) throws IOException, InterruptedException, RequestException;
+    }
+
+    /**
+     * A request answered with an error status.
+     */
+    private static class RequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * The outcome of a search.
+     */
+    private static class Encoded {
+        private final byte[] png;
+        private final double psnr;
+        private final int generationsRun;
+        private final long embeddedBytes;
+
+        Encoded(byte[] png, double psnr, int generationsRun, long embeddedBytes) {
+            this.png = png;
+            this.psnr = psnr;
+            this.generationsRun = generationsRun;
+            this.embeddedBytes = embeddedBytes;
+        }
+    }
+
+    /**
+     * Streams a decoded payload as the response body, starting the response with its first bytes, so an
+     * image that holds no payload can still be answered with an error.
+     */
+    private static class ResponseSink implements PayloadSink {
+        private final HttpExchange exchange;
+        private PayloadSink body;
+
+        ResponseSink(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void write(ByteBuffer bytes) throws IOException {
+            if (body == null) {
+                exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+                exchange.sendResponseHeaders(200, 0);
+                body = PayloadSink.ofStream(exchange.getResponseBody());
+            }
+            body.write(bytes);
+        }
+
+        /**
+         * Starts the response of an empty payload, which had no bytes to start it.
+         */
+        void finish() throws IOException {
+            if (body == null) {
+                exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+                exchange.sendResponseHeaders(200, -1);
+            }
+        }
+    }
+}
@@ -21,6 +21,11 @@ import java.util.function.Consumer;
  * This interface allows users to encode and decode secret messages within images.
  */
 public class SteganographyUI extends Application{
+    /**
+     * The size in pixels of the square the loaded image is shown in.
+     */
+    public static final int IMAGE_VIEW_SIZE = 300;
+
     private TextArea secretMessageArea;
     private ImageView imageView;
     private Consumer<ActionEvent> onEncodeAction;
@@ -78,8 +83,8 @@ public class SteganographyUI extends Application{
         // Configure and add components to layout
         secretMessageArea.setPromptText("Secret Message");
         secretMessageArea.setWrapText(true);
-        imageView.setFitHeight(300);
-        imageView.setFitWidth(300);
+        imageView.setFitHeight(IMAGE_VIEW_SIZE);
+        imageView.setFitWidth(IMAGE_VIEW_SIZE);
         imageView.setPreserveRatio(true);
 
         // Set IDs for styling